@@ -23,6 +23,7 @@ import com.sparrowwallet.sparrow.io.bbqr.BBQR;
 import com.sparrowwallet.sparrow.io.bbqr.BBQRType;
 import com.sparrowwallet.sparrow.net.ElectrumServer;
 import com.sparrowwallet.sparrow.net.ServerType;
+import com.sparrowwallet.sparrow.net.TransactionCache;
 import com.sparrowwallet.sparrow.preferences.PreferenceGroup;
 import com.sparrowwallet.sparrow.preferences.PreferencesDialog;
 import com.sparrowwallet.sparrow.paynym.PayNymDialog;
@@ -229,6 +230,10 @@ public class AppController implements Initializable {
 
     private final Map<File, File> renamedWallets = new HashMap<>();
 
+    private final Deque<WalletLoad> walletLoads = new ArrayDeque<>();
+
+    private final List<Runnable> afterWalletLoads = new ArrayList<>();
+
     private final ChangeListener<Boolean> serverToggleOnlineListener = (observable, oldValue, newValue) -> {
         Platform.runLater(() -> setServerToggleTooltip(getCurrentBlockHeight()));
     };
@@ -1095,24 +1100,38 @@ public class AppController implements Initializable {
     }
 
     public void openWalletFile(File file, boolean forceSameWindow) {
+        if(BackupStore.hasManifestExtension(file)) {
+            if(BackupStore.isManifest(file)) {
+                restoreBackup(file, forceSameWindow);
+            } else {
+                showErrorDialog("Error Restoring Backup", file.getName() + " is not a valid wallet backup.");
+            }
+            return;
+        }
+
         try {
             Storage storage = new Storage(file);
             if(!storage.isEncrypted()) {
+                //Unencrypted wallets are loaded concurrently, but opened in the order requested
+                WalletLoad walletLoad = new WalletLoad();
                 Storage.LoadWalletService loadWalletService = new Storage.LoadWalletService(storage);
-                loadWalletService.setExecutor(Storage.LoadWalletService.getSingleThreadedExecutor());
+                loadWalletService.setExecutor(Storage.LoadWalletService.getConcurrentExecutor());
                 loadWalletService.setOnSucceeded(workerStateEvent -> {
                     WalletAndKey walletAndKey = loadWalletService.getValue();
-                    openWallet(storage, walletAndKey, this, forceSameWindow);
+                    completeWalletLoad(walletLoad, () -> openWallet(storage, walletAndKey, this, forceSameWindow));
                 });
                 loadWalletService.setOnFailed(workerStateEvent -> {
                     Throwable exception = workerStateEvent.getSource().getException();
-                    if(exception instanceof StorageException) {
-                        showErrorDialog("Error Opening Wallet", exception.getMessage());
-                    } else if(!attemptImportWallet(file, null)) {
-                        log.error("Error opening wallet", exception);
-                        showErrorDialog("Error Opening Wallet", exception.getMessage() == null || exception.getMessage().contains("Expected BEGIN_OBJECT") ? "Unsupported wallet file format." : exception.getMessage());
-                    }
+                    completeWalletLoad(walletLoad, () -> {
+                        if(exception instanceof StorageException) {
+                            showErrorDialog("Error Opening Wallet", exception.getMessage());
+                        } else if(!attemptImportWallet(file, null)) {
+                            log.error("Error opening wallet", exception);
+                            showErrorDialog("Error Opening Wallet", exception.getMessage() == null || exception.getMessage().contains("Expected BEGIN_OBJECT") ? "Unsupported wallet file format." : exception.getMessage());
+                        }
+                    });
                 });
+                walletLoads.add(walletLoad);
                 loadWalletService.start();
             } else {
                 WalletPasswordDialog dlg = new WalletPasswordDialog(storage.getWalletName(null), WalletPasswordDialog.PasswordRequirement.LOAD);
@@ -1161,6 +1180,40 @@ public class AppController implements Initializable {
         }
     }
 
+    private void restoreBackup(File manifestFile, boolean forceSameWindow) {
+        Storage.RestoreBackupService restoreBackupService = new Storage.RestoreBackupService(manifestFile);
+        restoreBackupService.setOnSucceeded(workerStateEvent -> {
+            EventManager.get().post(new StatusEvent("Restored backup to " + restoreBackupService.getValue().getAbsolutePath()));
+            openWalletFile(restoreBackupService.getValue(), forceSameWindow);
+        });
+        restoreBackupService.setOnFailed(workerStateEvent -> {
+            log.error("Error restoring backup", workerStateEvent.getSource().getException());
+            showErrorDialog("Error Restoring Backup", workerStateEvent.getSource().getException().getMessage());
+        });
+        restoreBackupService.start();
+    }
+
+    private void completeWalletLoad(WalletLoad walletLoad, Runnable onLoaded) {
+        walletLoad.onLoaded = onLoaded;
+        while(!walletLoads.isEmpty() && walletLoads.peek().onLoaded != null) {
+            walletLoads.poll().onLoaded.run();
+        }
+
+        if(walletLoads.isEmpty()) {
+            List<Runnable> runnables = new ArrayList<>(afterWalletLoads);
+            afterWalletLoads.clear();
+            runnables.forEach(Runnable::run);
+        }
+    }
+
+    public void runAfterWalletLoads(Runnable runnable) {
+        if(walletLoads.isEmpty()) {
+            runnable.run();
+        } else {
+            afterWalletLoads.add(runnable);
+        }
+    }
+
     private void openWallet(Storage storage, WalletAndKey walletAndKey, AppController appController, boolean forceSameWindow) {
         try {
             storage.restorePublicKeysFromSeed(walletAndKey.getWallet(), walletAndKey.getKey());
@@ -2165,6 +2218,7 @@ public class AppController implements Initializable {
 
                         try {
                             tabs.getTabs().remove(tabs.getSelectionModel().getSelectedItem());
+                            removeCachedTransactions(selectedWalletForm.getMasterWallet());
                             deleteStorage(storage, true);
                         } finally {
                             encryptionFullKey.clear();
@@ -2188,11 +2242,21 @@ public class AppController implements Initializable {
                 }
             } else {
                 tabs.getTabs().remove(tabs.getSelectionModel().getSelectedItem());
+                removeCachedTransactions(selectedWalletForm.getMasterWallet());
                 deleteStorage(storage, true);
             }
         }
     }
 
+    private void removeCachedTransactions(Wallet masterWallet) {
+        Set<String> txids = masterWallet.getAllWallets().stream().flatMap(wallet -> wallet.getTransactions().keySet().stream()).map(Sha256Hash::toString).collect(Collectors.toSet());
+        if(!txids.isEmpty()) {
+            TransactionCache.RemoveTransactionsService removeTransactionsService = new TransactionCache.RemoveTransactionsService(txids);
+            removeTransactionsService.setOnFailed(event -> log.error("Error removing cached transactions", event.getSource().getException()));
+            removeTransactionsService.start();
+        }
+    }
+
     private void deleteStorage(Storage storage, boolean deleteBackups) {
         if(storage.isClosed()) {
             Platform.runLater(() -> {
@@ -3135,4 +3199,8 @@ public class AppController implements Initializable {
             }
         }
     }
+
+    private static class WalletLoad {
+        private Runnable onLoaded;
+    }
 }
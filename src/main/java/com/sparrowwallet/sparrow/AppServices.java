@@ -48,6 +48,7 @@ import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.util.Duration;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.controlsfx.glyphfont.Glyph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,12 +60,10 @@ import java.awt.event.KeyEvent;
 import java.io.File;
 import java.io.IOException;
 import java.net.*;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import static com.sparrowwallet.sparrow.control.DownloadVerifierDialog.*;
@@ -78,12 +77,15 @@ public class AppServices {
     public static final int ENUMERATE_HW_PERIOD_SECS = 30;
     private static final int RATES_PERIOD_SECS = 5 * 60;
     private static final int VERSION_CHECK_PERIOD_HOURS = 24;
+    private static final int PUBLIC_SERVER_PROBE_DELAY_SECS = 30;
+    private static final int PUBLIC_SERVER_PROBE_PERIOD_MINS = 15;
     private static final int CONNECTION_DELAY_SECS = 2;
     private static final int RATES_DELAY_SECS_DEFAULT = 2;
     private static final int RATES_DELAY_SECS_WINDOWS = 5;
     private static final ExchangeSource DEFAULT_EXCHANGE_SOURCE = ExchangeSource.COINGECKO;
     private static final Currency DEFAULT_FIAT_CURRENCY = Currency.getInstance("USD");
     private static final String TOR_DEFAULT_PROXY_CIRCUIT_ID = "default";
+    private static final String MEMPOOL_HISTORY_FILENAME = "mempool.dat";
 
     public static final List<Integer> TARGET_BLOCKS_RANGE = List.of(1, 2, 3, 4, 5, 10, 25, 50);
     public static final List<Long> LONG_FEE_RATES_RANGE = List.of(1L, 2L, 4L, 8L, 16L, 32L, 64L, 128L, 256L, 512L, 1024L, 2048L, 4096L, 8192L);
@@ -117,6 +119,8 @@ public class AppServices {
 
     private VersionCheckService versionCheckService;
 
+    private PublicServerProbeService publicServerProbeService;
+
     private TorService torService;
 
     private ScheduledService<Void> preventSleepService;
@@ -127,7 +131,10 @@ public class AppServices {
 
     private static Map<Integer, Double> targetBlockFeeRates;
 
-    private static final TreeMap<Date, Set<MempoolRateSize>> mempoolHistogram = new TreeMap<>();
+    private static MempoolHistory mempoolHistory;
+
+    //Saves run one at a time in submission order, so an older snapshot of the history never replaces a newer one
+    private static final ExecutorService mempoolHistorySaveExecutor = Executors.newSingleThreadExecutor(new BasicThreadFactory.Builder().namingPattern("MempoolHistorySave").daemon(true).build());
 
     private static Double minimumRelayFeeRate;
 
@@ -161,6 +168,7 @@ public class AppServices {
                 connectionService.cancel();
                 ratesService.cancel();
                 versionCheckService.cancel();
+                publicServerProbeService.cancel();
 
                 if(httpClientService != null) {
                     HttpClientService.ShutdownService shutdownService = new HttpClientService.ShutdownService(httpClientService);
@@ -190,6 +198,7 @@ public class AppServices {
         feeRatesService = createFeeRatesService();
         ratesService = createRatesService(config.getExchangeSource(), config.getFiatCurrency());
         versionCheckService = createVersionCheckService();
+        publicServerProbeService = createPublicServerProbeService();
         torService = createTorService();
         preventSleepService = createPreventSleepService();
 
@@ -225,6 +234,12 @@ public class AppServices {
         if(config.isPreventSleep()) {
             restartService(preventSleepService);
         }
+
+        if(config.getServerType() == ServerType.PUBLIC_ELECTRUM_SERVER && config.isAutoSelectPublicServer()) {
+            restartService(publicServerProbeService);
+        } else if(publicServerProbeService.isRunning()) {
+            publicServerProbeService.cancel();
+        }
     }
 
     private void restartService(ScheduledService<?> service) {
@@ -254,6 +269,14 @@ public class AppServices {
             versionCheckService.cancel();
         }
 
+        if(publicServerProbeService != null) {
+            publicServerProbeService.cancel();
+        }
+
+        if(mempoolHistory != null) {
+            mempoolHistory.save(getMempoolHistoryFile());
+        }
+
         if(httpClientService != null) {
             HttpClientService.ShutdownService shutdownService = new HttpClientService.ShutdownService(httpClientService);
             shutdownService.start();
@@ -406,6 +429,25 @@ public class AppServices {
         return versionCheckService;
     }
 
+    private PublicServerProbeService createPublicServerProbeService() {
+        PublicServerProbeService probeService = new PublicServerProbeService();
+        probeService.setDelay(Duration.seconds(PUBLIC_SERVER_PROBE_DELAY_SECS));
+        probeService.setPeriod(Duration.minutes(PUBLIC_SERVER_PROBE_PERIOD_MINS));
+        probeService.setRestartOnFailure(true);
+
+        probeService.setOnSucceeded(successEvent -> {
+            Server betterServer = probeService.getValue();
+            if(betterServer != null && Config.get().getServerType() == ServerType.PUBLIC_ELECTRUM_SERVER && isConnected()) {
+                log.info("Reconnecting to faster public server " + betterServer.getDisplayName());
+                onlineProperty.set(false);
+                Config.get().setPublicElectrumServer(betterServer);
+                onlineProperty.set(true);
+            }
+        });
+
+        return probeService;
+    }
+
     private Hwi.ScheduledEnumerateService createDeviceEnumerateService() {
         Hwi.ScheduledEnumerateService enumerateService = new Hwi.ScheduledEnumerateService(null);
         enumerateService.setPeriod(Duration.seconds(Config.get().getEnumerateHwPeriod()));
@@ -724,7 +766,19 @@ public class AppServices {
     }
 
     public static TreeMap<Date, Set<MempoolRateSize>> getMempoolHistogram() {
-        return mempoolHistogram;
+        return getMempoolHistory().getSnapshots(MempoolHistory.Tier.MINUTE);
+    }
+
+    public static synchronized MempoolHistory getMempoolHistory() {
+        if(mempoolHistory == null) {
+            mempoolHistory = MempoolHistory.load(getMempoolHistoryFile());
+        }
+
+        return mempoolHistory;
+    }
+
+    private static File getMempoolHistoryFile() {
+        return new File(Storage.getSparrowDir(), MEMPOOL_HISTORY_FILENAME);
     }
 
     private void addMempoolRateSizes(Set<MempoolRateSize> rateSizes) {
@@ -732,21 +786,13 @@ public class AppServices {
             return;
         }
 
-        LocalDateTime dateMinute = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
-        if(mempoolHistogram.isEmpty()) {
-            mempoolHistogram.put(Date.from(dateMinute.minusMinutes(1).atZone(ZoneId.systemDefault()).toInstant()), rateSizes);
-        }
-
-        mempoolHistogram.put(Date.from(dateMinute.atZone(ZoneId.systemDefault()).toInstant()), rateSizes);
-
-        Date yesterday = Date.from(LocalDateTime.now().minusDays(1).atZone(ZoneId.systemDefault()).toInstant());
-        mempoolHistogram.keySet().removeIf(date -> date.before(yesterday));
+        //Build the depth index on arrival rather than when the snapshot is first rendered
+        MempoolDepthIndex.get(rateSizes);
 
-        ZonedDateTime twoHoursAgo = LocalDateTime.now().minusHours(2).atZone(ZoneId.systemDefault());
-        mempoolHistogram.keySet().removeIf(date -> {
-            ZonedDateTime dateTime = date.toInstant().atZone(ZoneId.systemDefault());
-            return dateTime.isBefore(twoHoursAgo) && (dateTime.getMinute() % 10 != 0);
-        });
+        MempoolHistory history = getMempoolHistory();
+        if(history.add(new Date(), rateSizes)) {
+            mempoolHistorySaveExecutor.submit(() -> history.save(getMempoolHistoryFile()));
+        }
     }
 
     public static Double getMinimumRelayFeeRate() {
@@ -899,20 +945,7 @@ public class AppServices {
 
     public static void openFileUriArgumentsAfterWalletLoading(Window window) {
         if(!argFiles.isEmpty() || !argUris.isEmpty()) {
-            Service<Void> service = new Service<>() {
-                @Override
-                protected Task<Void> createTask() {
-                    return new Task<>() {
-                        @Override
-                        protected Void call() {
-                            Platform.runLater(() -> openFileUriArguments(window));
-                            return null;
-                        }
-                    };
-                }
-            };
-            service.setExecutor(Storage.LoadWalletService.getSingleThreadedExecutor());
-            service.start();
+            Platform.runLater(() -> openFileUriArguments(window));
         }
     }
 
@@ -6,8 +6,10 @@ import com.sparrowwallet.sparrow.control.WalletIcon;
 import com.sparrowwallet.sparrow.glyphfont.FontAwesome5;
 import com.sparrowwallet.sparrow.glyphfont.FontAwesome5Brands;
 import com.sparrowwallet.sparrow.io.Config;
+import com.sparrowwallet.sparrow.io.Server;
 import com.sparrowwallet.sparrow.io.Storage;
 import com.sparrowwallet.sparrow.net.PublicElectrumServer;
+import com.sparrowwallet.sparrow.net.ServerLatencyScores;
 import com.sparrowwallet.sparrow.net.ServerType;
 import com.sparrowwallet.sparrow.preferences.PreferenceGroup;
 import com.sparrowwallet.sparrow.preferences.PreferencesDialog;
@@ -65,8 +67,9 @@ public class SparrowDesktop extends Application {
                     createNewWallet = optNewWallet.isPresent() && optNewWallet.get();
                 } else if(Network.get() == Network.MAINNET) {
                     Config.get().setServerType(ServerType.PUBLIC_ELECTRUM_SERVER);
-                    List<PublicElectrumServer> servers = PublicElectrumServer.getServers();
-                    Config.get().setPublicElectrumServer(servers.get(new Random().nextInt(servers.size())).getServer());
+                    List<Server> servers = PublicElectrumServer.getServers().stream().map(PublicElectrumServer::getServer).collect(Collectors.toList());
+                    Optional<Server> optBest = new ServerLatencyScores(Config.get().getPublicServerLatencies()).getBest(servers);
+                    Config.get().setPublicElectrumServer(optBest.orElse(servers.get(new Random().nextInt(servers.size()))));
                 }
             }
         }
@@ -111,7 +114,7 @@ public class SparrowDesktop extends Application {
                 }
             }
 
-            AppServices.openFileUriArgumentsAfterWalletLoading(stage);
+            appController.runAfterWalletLoads(() -> AppServices.openFileUriArgumentsAfterWalletLoading(stage));
 
             AppServices.get().start();
         });
@@ -1,31 +1,38 @@
 package com.sparrowwallet.sparrow.control;
 
-import com.google.common.collect.Lists;
 import com.sparrowwallet.drongo.BitcoinUnit;
 import com.sparrowwallet.drongo.wallet.Wallet;
 import com.sparrowwallet.sparrow.UnitFormat;
 import com.sparrowwallet.sparrow.io.Config;
-import com.sparrowwallet.sparrow.wallet.Entry;
 import com.sparrowwallet.sparrow.wallet.TransactionEntry;
 import com.sparrowwallet.sparrow.wallet.WalletTransactionsEntry;
+import javafx.animation.PauseTransition;
 import javafx.beans.NamedArg;
 import javafx.scene.Node;
 import javafx.scene.chart.*;
+import javafx.util.Duration;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class BalanceChart extends LineChart<Number, Number> {
-    private static final int MAX_VALUES = 500;
+    private static final int DEFAULT_MAX_VALUES = 500;
+    private static final int MIN_VALUES = 50;
+    private static final double PIXELS_PER_VALUE = 2.0;
 
     private XYChart.Series<Number, Number> balanceSeries;
 
+    //All confirmed balance points in date order, of which a downsampled selection is plotted
+    private List<BalancePoint> balancePoints = new ArrayList<>();
+    private int plottedMaxValues;
+
     private TransactionEntry selectedEntry;
 
+    private final PauseTransition resizePause = new PauseTransition(Duration.millis(200));
+
     public BalanceChart(@NamedArg("xAxis") Axis<Number> xAxis, @NamedArg("yAxis") Axis<Number> yAxis) {
         super(xAxis, yAxis);
     }
@@ -37,65 +44,113 @@ public class BalanceChart extends LineChart<Number, Number> {
         update(walletTransactionsEntry);
 
         setUnitFormat(walletTransactionsEntry.getWallet(), Config.get().getUnitFormat(), Config.get().getBitcoinUnit());
+
+        //Downsample again once resizing has settled, as the number of points plotted depends on the available width
+        resizePause.setOnFinished(event -> {
+            if(getMaxValues() != plottedMaxValues && balancePoints.size() > Math.min(getMaxValues(), plottedMaxValues)) {
+                plot();
+            }
+        });
+        widthProperty().addListener((observable, oldValue, newValue) -> resizePause.playFromStart());
     }
 
     public void update(WalletTransactionsEntry walletTransactionsEntry) {
         setVisible(!walletTransactionsEntry.getChildren().isEmpty());
-        balanceSeries.getData().clear();
 
-        List<Data<Number, Number>> balanceDataList = getTransactionEntries(walletTransactionsEntry)
+        List<BalancePoint> updatedPoints = walletTransactionsEntry.getChildren().stream()
                 .map(entry -> (TransactionEntry)entry)
                 .filter(txEntry -> txEntry.getBlockTransaction().getHeight() > 0)
-                .map(txEntry -> new XYChart.Data<>((Number)txEntry.getBlockTransaction().getDate().getTime(), (Number)txEntry.getBalance(), txEntry))
+                .map(txEntry -> new BalancePoint(txEntry.getBlockTransaction().getDate().getTime(), txEntry.getBalance(), txEntry))
                 .collect(Collectors.toList());
 
-        int size = balanceDataList.size() * 2;
-        for(int i = 0; i < size; i+= 2) {
-            Data<Number, Number> data = balanceDataList.get(i);
-
-            if(i + 1 < balanceDataList.size()) {
-                Data<Number, Number> nextData = balanceDataList.get(i + 1);
-                Data<Number, Number> interstitialData = new Data<>(nextData.getXValue(), data.getYValue(), null);
-                balanceDataList.add(i + 1, interstitialData);
-            } else {
-                Date now = new Date();
-                Data<Number, Number> interstitialData = new Data<>(now.getTime(), data.getYValue(), null);
-                balanceDataList.add(interstitialData);
-            }
+        List<BalancePoint> previousPoints = balancePoints;
+        balancePoints = updatedPoints;
+
+        if(isAppended(previousPoints, updatedPoints) && balanceSeries.getData().size() + (updatedPoints.size() - previousPoints.size()) * 2 <= getMaxValues() * 2) {
+            append(updatedPoints.subList(previousPoints.size() - 1, updatedPoints.size()));
+        } else if(!isSame(previousPoints, updatedPoints)) {
+            plot();
         }
+    }
+
+    private void plot() {
+        plottedMaxValues = getMaxValues();
+        List<BalancePoint> sampledPoints = LargestTriangleThreeBuckets.downsample(balancePoints, plottedMaxValues, BalancePoint::time, BalancePoint::balance);
+        List<Data<Number, Number>> balanceDataList = getStepData(sampledPoints);
 
         if(!balanceDataList.isEmpty()) {
-            long min = balanceDataList.stream().map(data -> data.getXValue().longValue()).min(Long::compare).get();
-            long max = balanceDataList.stream().map(data -> data.getXValue().longValue()).max(Long::compare).get();
+            long min = balanceDataList.get(0).getXValue().longValue();
+            long max = balanceDataList.get(balanceDataList.size() - 1).getXValue().longValue();
 
             DateAxisFormatter dateAxisFormatter = new DateAxisFormatter(max - min);
             NumberAxis xAxis = (NumberAxis)getXAxis();
             xAxis.setTickLabelFormatter(dateAxisFormatter);
         }
 
-        balanceSeries.getData().addAll(balanceDataList);
+        balanceSeries.getData().setAll(balanceDataList);
 
         if(selectedEntry != null) {
             select(selectedEntry);
         }
     }
 
-    private Stream<Entry> getTransactionEntries(WalletTransactionsEntry walletTransactionsEntry) {
-        int total = walletTransactionsEntry.getChildren().size();
-        if(walletTransactionsEntry.getChildren().size() <= MAX_VALUES) {
-            return walletTransactionsEntry.getChildren().stream();
+    /**
+     * Adds newly confirmed points to the end of the plotted series without downsampling again.
+     * The first point provided is the last point already plotted, which is followed by an interstitial point to the current date that needs to be replaced.
+     */
+    private void append(List<BalancePoint> tailPoints) {
+        List<Data<Number, Number>> tailData = getStepData(tailPoints);
+        if(!balanceSeries.getData().isEmpty()) {
+            balanceSeries.getData().remove(balanceSeries.getData().size() - 1);
         }
+        balanceSeries.getData().addAll(tailData.subList(1, tailData.size()));
 
-        int bucketSize = total / MAX_VALUES;
-        List<List<Entry>> buckets = Lists.partition(walletTransactionsEntry.getChildren(), bucketSize);
-        List<Entry> reducedEntries = new ArrayList<>(MAX_VALUES);
-        for(List<Entry> bucket : buckets) {
-            long max = bucket.stream().mapToLong(entry -> Math.abs(entry.getValue())).max().orElse(0);
-            Entry bucketEntry = bucket.stream().filter(entry -> entry.getValue() == max || entry.getValue() == -max).findFirst().orElseThrow();
-            reducedEntries.add(bucketEntry);
+        if(selectedEntry != null) {
+            select(selectedEntry);
         }
+    }
 
-        return reducedEntries.stream();
+    /**
+     * Converts balance points into a stepped series, where each balance is held until the date of the next point, or the current date for the last point.
+     */
+    private static List<Data<Number, Number>> getStepData(List<BalancePoint> points) {
+        List<Data<Number, Number>> balanceDataList = new ArrayList<>(points.size() * 2);
+        for(int i = 0; i < points.size(); i++) {
+            BalancePoint point = points.get(i);
+            balanceDataList.add(new XYChart.Data<>(point.time(), point.balance(), point.entry()));
+
+            long nextTime = (i + 1 < points.size() ? points.get(i + 1).time() : new Date().getTime());
+            balanceDataList.add(new XYChart.Data<>(nextTime, point.balance(), null));
+        }
+
+        return balanceDataList;
+    }
+
+    private int getMaxValues() {
+        double width = getXAxis().getWidth();
+        if(width <= 0) {
+            return DEFAULT_MAX_VALUES;
+        }
+
+        return Math.max(MIN_VALUES, (int)(width / PIXELS_PER_VALUE));
+    }
+
+    private static boolean isAppended(List<BalancePoint> previousPoints, List<BalancePoint> updatedPoints) {
+        return !previousPoints.isEmpty() && updatedPoints.size() > previousPoints.size() && isSame(previousPoints, updatedPoints.subList(0, previousPoints.size()));
+    }
+
+    private static boolean isSame(List<BalancePoint> points, List<BalancePoint> otherPoints) {
+        if(points.size() != otherPoints.size()) {
+            return false;
+        }
+
+        for(int i = 0; i < points.size(); i++) {
+            if(!points.get(i).isSame(otherPoints.get(i))) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     public void select(TransactionEntry transactionEntry) {
@@ -128,4 +183,10 @@ public class BalanceChart extends LineChart<Number, Number> {
         NumberAxis yaxis = (NumberAxis)getYAxis();
         yaxis.setTickLabelFormatter(new CoinAxisFormatter(yaxis, format, unit));
     }
+
+    private record BalancePoint(long time, long balance, TransactionEntry entry) {
+        public boolean isSame(BalancePoint other) {
+            return time == other.time && balance == other.balance && entry.getBlockTransaction().getHash().equals(other.entry.getBlockTransaction().getHash());
+        }
+    }
 }
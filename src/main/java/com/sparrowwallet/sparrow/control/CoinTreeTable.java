@@ -14,10 +14,13 @@ import com.sparrowwallet.sparrow.io.Storage;
 import com.sparrowwallet.sparrow.net.ServerType;
 import com.sparrowwallet.sparrow.wallet.Entry;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.event.EventHandler;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.Hyperlink;
 import javafx.scene.control.Label;
+import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeTableColumn;
 import javafx.scene.control.TreeTableView;
 import javafx.scene.layout.StackPane;
@@ -33,6 +36,37 @@ public class CoinTreeTable extends TreeTableView<Entry> {
     private CurrencyRate currencyRate;
     protected static final double STANDARD_WIDTH = 100.0;
 
+    //Child items are created lazily and may have been created while collapsed, so sort them when shown
+    private final EventHandler<TreeItem.TreeModificationEvent<Entry>> branchExpandedHandler = event -> {
+        TreeItem<Entry> treeItem = event.getTreeItem();
+        if(treeItem != getRoot() && getComparator() != null && !treeItem.isLeaf()) {
+            FXCollections.sort(treeItem.getChildren(), getComparator());
+        }
+    };
+
+    public CoinTreeTable() {
+        //The default sort policy sorts all descendants, which would create the child items of every collapsed branch
+        setSortPolicy(treeTable -> {
+            if(getRoot() instanceof RecursiveTreeItem<Entry> rootItem) {
+                if(getComparator() != null) {
+                    rootItem.sortMaterialised(getComparator());
+                }
+                return true;
+            }
+
+            return TreeTableView.DEFAULT_SORT_POLICY.call(treeTable);
+        });
+
+        rootProperty().addListener((observable, oldRoot, newRoot) -> {
+            if(oldRoot != null) {
+                oldRoot.removeEventHandler(TreeItem.branchExpandedEvent(), branchExpandedHandler);
+            }
+            if(newRoot != null) {
+                newRoot.addEventHandler(TreeItem.branchExpandedEvent(), branchExpandedHandler);
+            }
+        });
+    }
+
     public BitcoinUnit getBitcoinUnit() {
         return bitcoinUnit;
     }
@@ -124,9 +124,10 @@ public class FileWalletExportPane extends TitledDescriptionPane {
             dlg.initOwner(buttonBox.getScene().getWindow());
             Optional<SecureString> password = dlg.showAndWait();
             if(password.isPresent()) {
-                final String walletId = AppServices.get().getOpenWallets().get(wallet).getWalletId(wallet);
+                Storage storage = AppServices.get().getOpenWallets().get(wallet);
+                final String walletId = storage.getWalletId(wallet);
                 String walletPassword = password.get().asString();
-                Storage.DecryptWalletService decryptWalletService = new Storage.DecryptWalletService(copy, password.get());
+                Storage.DecryptWalletService decryptWalletService = new Storage.DecryptWalletService(copy, storage, password.get());
                 decryptWalletService.setOnSucceeded(workerStateEvent -> {
                     EventManager.get().post(new StorageEvent(walletId, TimedEvent.Action.END, "Done"));
                     Wallet decryptedWallet = decryptWalletService.getValue();
@@ -0,0 +1,64 @@
+package com.sparrowwallet.sparrow.control;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Downsamples a series of points ordered by x value to a threshold number of points while retaining its visual shape,
+ * using the Largest-Triangle-Three-Buckets algorithm. The first and last points are always retained. Between them, the points are
+ * divided into equal buckets, and from each bucket the point forming the largest triangle with the previously selected point and the
+ * average of the next bucket is chosen.
+ */
+public class LargestTriangleThreeBuckets {
+    public static <T> List<T> downsample(List<T> points, int threshold, ToDoubleFunction<T> xFunction, ToDoubleFunction<T> yFunction) {
+        if(threshold < 3 || points.size() <= threshold) {
+            return new ArrayList<>(points);
+        }
+
+        List<T> sampled = new ArrayList<>(threshold);
+        double bucketSize = (double)(points.size() - 2) / (threshold - 2);
+
+        int selected = 0;
+        sampled.add(points.get(selected));
+
+        for(int bucket = 0; bucket < threshold - 2; bucket++) {
+            int bucketStart = (int)Math.floor(bucket * bucketSize) + 1;
+            int bucketEnd = (int)Math.floor((bucket + 1) * bucketSize) + 1;
+
+            int nextBucketStart = bucketEnd;
+            int nextBucketEnd = Math.min((int)Math.floor((bucket + 2) * bucketSize) + 1, points.size());
+            double averageX = 0;
+            double averageY = 0;
+            for(int i = nextBucketStart; i < nextBucketEnd; i++) {
+                averageX += xFunction.applyAsDouble(points.get(i));
+                averageY += yFunction.applyAsDouble(points.get(i));
+            }
+            int nextBucketCount = nextBucketEnd - nextBucketStart;
+            averageX /= nextBucketCount;
+            averageY /= nextBucketCount;
+
+            double selectedX = xFunction.applyAsDouble(points.get(selected));
+            double selectedY = yFunction.applyAsDouble(points.get(selected));
+
+            double maxArea = -1;
+            int maxAreaIndex = bucketStart;
+            for(int i = bucketStart; i < bucketEnd; i++) {
+                double x = xFunction.applyAsDouble(points.get(i));
+                double y = yFunction.applyAsDouble(points.get(i));
+                //Twice the triangle area, which is sufficient for comparison
+                double area = Math.abs((selectedX - averageX) * (y - selectedY) - (selectedX - x) * (averageY - selectedY));
+                if(area > maxArea) {
+                    maxArea = area;
+                    maxAreaIndex = i;
+                }
+            }
+
+            selected = maxAreaIndex;
+            sampled.add(points.get(selected));
+        }
+
+        sampled.add(points.get(points.size() - 1));
+        return sampled;
+    }
+}
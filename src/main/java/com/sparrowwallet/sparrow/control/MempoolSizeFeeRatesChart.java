@@ -4,6 +4,7 @@ import com.sparrowwallet.sparrow.AppServices;
 import com.sparrowwallet.sparrow.Theme;
 import com.sparrowwallet.sparrow.glyphfont.FontAwesome5;
 import com.sparrowwallet.sparrow.io.Config;
+import com.sparrowwallet.sparrow.net.MempoolDepthIndex;
 import com.sparrowwallet.sparrow.net.MempoolRateSize;
 import javafx.application.Platform;
 import javafx.beans.NamedArg;
@@ -38,6 +39,8 @@ import java.util.stream.Collectors;
 
 public class MempoolSizeFeeRatesChart extends StackedAreaChart<String, Number> {
     private static final DateFormat dateFormatter = new SimpleDateFormat("HH:mm");
+    private static final DateFormat dayTimeFormatter = new SimpleDateFormat("d MMM HH:mm");
+    private static final DateFormat dayFormatter = new SimpleDateFormat("d MMM");
     public static final int DEFAULT_MAX_PERIOD_HOURS = 2;
     private static final double Y_VALUE_BREAK_MVB = 3.0;
     private static final List<Integer> FEE_RATES_INTERVALS = List.of(1, 2, 3, 4, 5, 6, 8, 10, 12, 15, 20, 30, 40, 50, 60, 70, 80, 90, 100, 125, 150, 175, 200, 250, 300, 350, 400, 500, 600, 700, 800);
@@ -74,7 +77,7 @@ public class MempoolSizeFeeRatesChart extends StackedAreaChart<String, Number> {
                 expandedChart = new MempoolSizeFeeRatesChart();
                 expandedChart.initialize();
                 expandedChart.getStyleClass().add("vsizeChart");
-                expandedChart.update(AppServices.getMempoolHistogram());
+                expandedChart.update(AppServices.getMempoolHistory().getSnapshots(expandedChart.maxPeriodHours));
                 expandedChart.setLegendVisible(false);
                 expandedChart.setAnimated(false);
                 expandedChart.setPrefWidth(700);
@@ -85,15 +88,22 @@ public class MempoolSizeFeeRatesChart extends StackedAreaChart<String, Number> {
                 ToggleGroup periodGroup = new ToggleGroup();
                 ToggleButton period2 = new ToggleButton("2H");
                 ToggleButton period24 = new ToggleButton("24H");
-                SegmentedButton periodButtons = new SegmentedButton(period2, period24);
+                ToggleButton period7d = new ToggleButton("7D");
+                ToggleButton period90d = new ToggleButton("90D");
+                Map<Toggle, Integer> periodHours = Map.of(period2, 2, period24, 24, period7d, 24 * 7, period90d, 24 * 90);
+                SegmentedButton periodButtons = new SegmentedButton(period2, period24, period7d, period90d);
                 periodButtons.setToggleGroup(periodGroup);
                 periodGroup.selectedToggleProperty().addListener((observable, oldValue, newValue) -> {
-                    expandedChart.maxPeriodHours = (newValue == period2 ? 2 : 24);
-                    expandedChart.update(AppServices.getMempoolHistogram());
+                    expandedChart.maxPeriodHours = (newValue == null ? DEFAULT_MAX_PERIOD_HOURS : periodHours.get(newValue));
+                    expandedChart.update(AppServices.getMempoolHistory().getSnapshots(expandedChart.maxPeriodHours));
                 });
 
-                Optional<Date> optEarliest = AppServices.getMempoolHistogram().keySet().stream().findFirst();
-                period24.setDisable(optEarliest.isEmpty() || optEarliest.get().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime().isAfter(LocalDateTime.now().minusHours(2)));
+                //Only enable a period if there is history from before the start of the next shortest period
+                Optional<Date> optEarliest = AppServices.getMempoolHistory().getEarliest();
+                LocalDateTime earliest = optEarliest.isEmpty() ? LocalDateTime.now() : optEarliest.get().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+                period24.setDisable(earliest.isAfter(LocalDateTime.now().minusHours(periodHours.get(period2))));
+                period7d.setDisable(earliest.isAfter(LocalDateTime.now().minusHours(periodHours.get(period24))));
+                period90d.setDisable(earliest.isAfter(LocalDateTime.now().minusHours(periodHours.get(period7d))));
 
                 Region region = new Region();
                 HBox.setHgrow(region, Priority.SOMETIMES);
@@ -168,7 +178,7 @@ public class MempoolSizeFeeRatesChart extends StackedAreaChart<String, Number> {
             Point2D sceneCoords = this.localToScene(mouseEvent.getX(), mouseEvent.getY());
             String category = categoryAxis.getValueForDisplay(categoryAxis.sceneToLocal(sceneCoords).getX());
             if(category != null) {
-                Optional<String> time = categories.entrySet().stream().filter(entry -> entry.getValue().equals(category)).map(entry -> dateFormatter.format(entry.getKey())).findFirst();
+                Optional<String> time = categories.entrySet().stream().filter(entry -> entry.getValue().equals(category)).map(entry -> getDateFormatter().format(entry.getKey())).findFirst();
                 time.ifPresent(s -> tooltip.setGraphic(new ChartTooltip(category, s, getData())));
             }
         });
@@ -181,13 +191,7 @@ public class MempoolSizeFeeRatesChart extends StackedAreaChart<String, Number> {
             long seriesTotalVSize = 0;
 
             for(Date date : periodRateSizes.keySet()) {
-                Set<MempoolRateSize> rateSizes = periodRateSizes.get(date);
-                long totalVSize = 0;
-                for(MempoolRateSize rateSize : rateSizes) {
-                    if(rateSize.getFee() >= feeRate && rateSize.getFee() < nextFeeRate) {
-                        totalVSize += rateSize.getVSize();
-                    }
-                }
+                long totalVSize = MempoolDepthIndex.get(periodRateSizes.get(date)).getVSizeBetween(feeRate, nextFeeRate);
 
                 series.getData().add(new XYChart.Data<>(categories.get(date), totalVSize));
                 seriesTotalVSize += totalVSize;
@@ -240,7 +244,7 @@ public class MempoolSizeFeeRatesChart extends StackedAreaChart<String, Number> {
         }
 
         if(expandedChart != null) {
-            expandedChart.update(mempoolRateSizes);
+            expandedChart.update(AppServices.getMempoolHistory().getSnapshots(expandedChart.maxPeriodHours));
         }
     }
 
@@ -258,13 +262,21 @@ public class MempoolSizeFeeRatesChart extends StackedAreaChart<String, Number> {
                 TreeMap::new));
     }
 
+    private DateFormat getDateFormatter() {
+        if(maxPeriodHours > 24 * 7) {
+            return dayFormatter;
+        }
+
+        return maxPeriodHours > 24 ? dayTimeFormatter : dateFormatter;
+    }
+
     private Map<Date, String> getCategories(Map<Date, Set<MempoolRateSize>> mempoolHistogram) {
         Map<Date, String> categories = new LinkedHashMap<>();
 
         String invisible = "" + '\ufeff';
         for(Iterator<Date> iter = mempoolHistogram.keySet().iterator(); iter.hasNext(); ) {
             Date date = iter.next();
-            String label = dateFormatter.format(date);
+            String label = getDateFormatter().format(date);
             if(!categories.isEmpty() && iter.hasNext()) {
                 label = invisible;
                 invisible += '\ufeff';
@@ -5,7 +5,7 @@ import com.sparrowwallet.sparrow.AppServices;
 import com.sparrowwallet.sparrow.EventManager;
 import com.sparrowwallet.sparrow.event.PayNymImageLoadedEvent;
 import com.sparrowwallet.sparrow.io.Config;
-import com.sparrowwallet.sparrow.paynym.PayNymService;
+import com.sparrowwallet.sparrow.paynym.PayNymAvatarCache;
 import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -18,11 +18,10 @@ import javafx.scene.shape.Circle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.InputStream;
-import java.net.Proxy;
-import java.net.URI;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class PayNymAvatar extends StackPane {
@@ -30,8 +29,18 @@ public class PayNymAvatar extends StackPane {
 
     private final ObjectProperty<PaymentCode> paymentCodeProperty = new SimpleObjectProperty<>(null);
 
-    private static final Map<String, Image> paymentCodeCache = Collections.synchronizedMap(new HashMap<>());
-    private static final Map<String, Object> paymentCodeLoading = Collections.synchronizedMap(new HashMap<>());
+    //Whether the avatar may be written to the disk cache, which is not the case for the contacts of encrypted wallets
+    private boolean persistent;
+
+    private static final int MAX_CACHED_IMAGES = 200;
+
+    //Recently displayed avatars, bounded so that memory does not grow with the number of PayNyms seen over a long session
+    private static final Map<String, Image> paymentCodeCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+            return size() > MAX_CACHED_IMAGES;
+        }
+    });
 
     public PayNymAvatar() {
         super();
@@ -43,8 +52,8 @@ public class PayNymAvatar extends StackPane {
                 String cacheId = getCacheId(paymentCode, getPrefWidth());
                 if(paymentCodeCache.containsKey(cacheId)) {
                     setImage(paymentCodeCache.get(cacheId));
-                } else if(AppServices.isConnected()) {
-                    PayNymAvatarService payNymAvatarService = new PayNymAvatarService(paymentCode, getPrefWidth());
+                } else {
+                    PayNymAvatarService payNymAvatarService = new PayNymAvatarService(paymentCode, getPrefWidth(), persistent);
                     payNymAvatarService.setOnRunning(runningEvent -> {
                         getChildren().clear();
                     });
@@ -83,6 +92,14 @@ public class PayNymAvatar extends StackPane {
         this.paymentCodeProperty.set(null);
     }
 
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
     private static String getCacheId(PaymentCode paymentCode, double width) {
         return paymentCode.toString();
     }
@@ -90,10 +107,12 @@ public class PayNymAvatar extends StackPane {
     private static class PayNymAvatarService extends Service<Image> {
         private final PaymentCode paymentCode;
         private final double width;
+        private final boolean persistent;
 
-        public PayNymAvatarService(PaymentCode paymentCode, double width) {
+        public PayNymAvatarService(PaymentCode paymentCode, double width, boolean persistent) {
             this.paymentCode = paymentCode;
             this.width = width;
+            this.persistent = persistent;
         }
 
         @Override
@@ -101,41 +120,22 @@ public class PayNymAvatar extends StackPane {
             return new Task<>() {
                 @Override
                 protected Image call() throws Exception {
-                    String paymentCodeStr = paymentCode.toString();
                     String cacheId = getCacheId(paymentCode, width);
-
-                    Object lock = paymentCodeLoading.get(cacheId);
-                    if(lock != null) {
-                        synchronized(lock) {
-                            if(paymentCodeCache.containsKey(cacheId)) {
-                                return paymentCodeCache.get(cacheId);
-                            }
-                        }
-                    } else {
-                        lock = new Object();
-                        paymentCodeLoading.put(cacheId, lock);
+                    Image cachedImage = paymentCodeCache.get(cacheId);
+                    if(cachedImage != null) {
+                        return cachedImage;
                     }
 
-                    synchronized(lock) {
-                        Proxy proxy = AppServices.getProxy();
-                        String url = PayNymService.getHostUrl(proxy != null) + "/" + paymentCodeStr + "/avatar";
-
-                        if(log.isDebugEnabled()) {
-                            log.debug("Requesting PayNym avatar from " + url);
-                        }
-
-                        try(InputStream is = (proxy == null ? new URI(url).toURL().openStream() : new URI(url).toURL().openConnection(proxy).getInputStream())) {
-                            Image image = new Image(is, 150, 150, true, false);
-                            paymentCodeCache.put(cacheId, image);
-                            Platform.runLater(() -> EventManager.get().post(new PayNymImageLoadedEvent(paymentCode, image)));
-                            return image;
-                        } catch(Exception e) {
-                            log.debug("Error loading PayNym avatar", e);
-                            throw e;
-                        } finally {
-                            lock.notifyAll();
-                        }
+                    //Fetches are shared, limited in number and cached on disk by PayNymAvatarCache
+                    byte[] avatar = PayNymAvatarCache.get().getAvatar(paymentCode.toString(), AppServices.isConnected(), persistent);
+                    Image image = new Image(new ByteArrayInputStream(avatar), 150, 150, true, false);
+                    if(image.isError()) {
+                        throw new IOException("Could not decode PayNym avatar", image.getException());
                     }
+
+                    paymentCodeCache.put(cacheId, image);
+                    Platform.runLater(() -> EventManager.get().post(new PayNymImageLoadedEvent(paymentCode, image)));
+                    return image;
                 }
             };
         }
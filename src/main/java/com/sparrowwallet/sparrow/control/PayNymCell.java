@@ -45,6 +45,7 @@ public class PayNymCell extends ListCell<PayNym> {
             PayNymAvatar payNymAvatar = new PayNymAvatar();
             payNymAvatar.setPrefWidth(30);
             payNymAvatar.setPrefHeight(30);
+            payNymAvatar.setPersistent(payNymController != null && payNymController.isAvatarPersistent());
             payNymAvatar.setPaymentCode(payNym.paymentCode());
 
             HBox labelBox = new HBox();
@@ -1,18 +1,32 @@
 package com.sparrowwallet.sparrow.control;
 
+import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+import javafx.event.Event;
 import javafx.scene.Node;
 import javafx.scene.control.TreeItem;
 import javafx.util.Callback;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * A tree item that mirrors a model with observable child lists. Child items are only created when first requested, which for a collapsed
+ * item is generally when it is expanded, and are released again when the item is collapsed. This keeps the number of tree items
+ * proportional to the expanded rows rather than the size of the model.
+ */
 public class RecursiveTreeItem<T> extends TreeItem<T> {
     private final Callback<T, ObservableList<T>> childrenFactory;
     private final Callback<T, Node> graphicsFactory;
 
+    private ObservableList<T> modelChildren;
+    private boolean materialised;
+    private final ListChangeListener<T> modelChildrenListener = this::onModelChildrenChanged;
+    private final WeakListChangeListener<T> weakModelChildrenListener = new WeakListChangeListener<>(modelChildrenListener);
+
     public RecursiveTreeItem(Callback<T, ObservableList<T>> childrenFactory){
         this(null, childrenFactory);
     }
@@ -27,49 +41,114 @@ public class RecursiveTreeItem<T> extends TreeItem<T> {
         this.graphicsFactory = graphicsFactory;
         this.childrenFactory = childrenFactory;
 
-        if(value != null) {
-            addChildrenListener(value);
-        }
-
+        setModelChildren(value);
         valueProperty().addListener((obs, oldValue, newValue)->{
-            if(newValue != null){
-                addChildrenListener(newValue);
+            boolean wasMaterialised = materialised;
+            if(wasMaterialised) {
+                releaseChildren();
+            }
+            setModelChildren(newValue);
+            if(wasMaterialised && modelChildren != null) {
+                materialiseChildren();
+            }
+        });
+
+        expandedProperty().addListener((obs, wasExpanded, expanded) -> {
+            if(!expanded && getParent() != null && materialised) {
+                releaseChildren();
             }
         });
 
         this.setExpanded(false);
     }
 
-    private void addChildrenListener(T value){
-        final ObservableList<T> children = childrenFactory.call(value);
+    @Override
+    public ObservableList<TreeItem<T>> getChildren() {
+        if(!materialised && modelChildren != null) {
+            materialiseChildren();
+        }
 
-        children.forEach(child ->  RecursiveTreeItem.this.getChildren().add(
-                new RecursiveTreeItem<>(child, this.graphicsFactory, childrenFactory)));
+        return super.getChildren();
+    }
 
-        children.addListener((ListChangeListener<T>) change -> {
-            while(change.next()){
+    @Override
+    public boolean isLeaf() {
+        if(materialised) {
+            return super.getChildren().isEmpty();
+        }
 
-                if(change.wasAdded()){
-                    if(change.getFrom() >= RecursiveTreeItem.this.getChildren().size()) {
-                        change.getAddedSubList().forEach(t-> RecursiveTreeItem.this.getChildren().add(new RecursiveTreeItem<>(t, this.graphicsFactory, childrenFactory)));
-                    } else {
-                        change.getAddedSubList().forEach(t-> RecursiveTreeItem.this.getChildren().add(change.getFrom(), new RecursiveTreeItem<>(t, this.graphicsFactory, childrenFactory)));
-                    }
-                }
+        return modelChildren == null || modelChildren.isEmpty();
+    }
+
+    /**
+     * Sorts the child items of this item, and of descendants whose child items have been created. Descendants without child items are
+     * left alone rather than having their child items created just to be sorted, and should be sorted when their child items are shown.
+     */
+    public void sortMaterialised(Comparator<TreeItem<T>> comparator) {
+        FXCollections.sort(getChildren(), comparator);
+        for(TreeItem<T> child : super.getChildren()) {
+            if(child instanceof RecursiveTreeItem<T> recursiveChild && recursiveChild.materialised) {
+                recursiveChild.sortMaterialised(comparator);
+            }
+        }
+    }
+
+    private void setModelChildren(T value) {
+        if(modelChildren != null) {
+            modelChildren.removeListener(weakModelChildrenListener);
+        }
 
-                if(change.wasRemoved()){
-                    change.getRemoved().forEach(t->{
-                        final List<TreeItem<T>> itemsToRemove = RecursiveTreeItem.this
-                                .getChildren()
-                                .stream()
-                                .filter(treeItem -> treeItem.getValue().equals(t))
-                                .collect(Collectors.toList());
+        //The listener is held weakly so that the model does not retain tree items which have been discarded
+        modelChildren = (value == null ? null : childrenFactory.call(value));
+        if(modelChildren != null) {
+            modelChildren.addListener(weakModelChildrenListener);
+        }
+    }
+
+    private void materialiseChildren() {
+        materialised = true;
+        List<TreeItem<T>> childItems = modelChildren.stream().map(this::createChild).collect(Collectors.toList());
+        super.getChildren().setAll(childItems);
+    }
+
+    private void releaseChildren() {
+        materialised = false;
+        super.getChildren().clear();
+    }
+
+    private TreeItem<T> createChild(T child) {
+        return new RecursiveTreeItem<>(child, this.graphicsFactory, childrenFactory);
+    }
 
-                        RecursiveTreeItem.this.getChildren().removeAll(itemsToRemove);
-                    });
+    private void onModelChildrenChanged(ListChangeListener.Change<? extends T> change) {
+        if(!materialised) {
+            //No child items to update, but the row may need to show or hide its disclosure node
+            Event.fireEvent(this, new TreeModificationEvent<>(TreeItem.childrenModificationEvent(), this));
+            return;
+        }
+
+        ObservableList<TreeItem<T>> children = super.getChildren();
+        while(change.next()){
+
+            if(change.wasAdded()){
+                if(change.getFrom() >= children.size()) {
+                    change.getAddedSubList().forEach(t-> children.add(createChild(t)));
+                } else {
+                    change.getAddedSubList().forEach(t-> children.add(change.getFrom(), createChild(t)));
                 }
+            }
 
+            if(change.wasRemoved()){
+                change.getRemoved().forEach(t->{
+                    final List<TreeItem<T>> itemsToRemove = children
+                            .stream()
+                            .filter(treeItem -> treeItem.getValue().equals(t))
+                            .collect(Collectors.toList());
+
+                    children.removeAll(itemsToRemove);
+                });
             }
-        });
+
+        }
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,7 @@ import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TreeTableColumn;
 import javafx.scene.control.TreeTableView;
 
+import java.util.Collection;
 import java.util.Comparator;
 
 public class UtxosTreeTable extends CoinTreeTable {
@@ -106,8 +107,8 @@ public class UtxosTreeTable extends CoinTreeTable {
         }
     }
 
-    public void updateLabel(Entry entry) {
+    public void updateLabels(Collection<Entry> entries) {
         Entry rootEntry = getRoot().getValue();
-        rootEntry.updateLabel(entry);
+        rootEntry.updateLabels(entries);
     }
 }
@@ -0,0 +1,23 @@
+package com.sparrowwallet.sparrow.event;
+
+import com.sparrowwallet.drongo.wallet.Wallet;
+import com.sparrowwallet.drongo.wallet.WalletNode;
+
+import java.util.List;
+
+/**
+ * This event is posted when addresses that are expensive to derive, such as those of BIP47 wallets, have been derived ahead of use.
+ * The derived addresses are persisted so they do not need to be derived again when the wallet is next opened.
+ */
+public class WalletAddressesDerivedEvent extends WalletDataChangedEvent {
+    private final List<WalletNode> derivedNodes;
+
+    public WalletAddressesDerivedEvent(Wallet wallet, List<WalletNode> derivedNodes) {
+        super(wallet);
+        this.derivedNodes = derivedNodes;
+    }
+
+    public List<WalletNode> getDerivedNodes() {
+        return derivedNodes;
+    }
+}
@@ -0,0 +1,373 @@
+package com.sparrowwallet.sparrow.io;
+
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Stores generations of wallet backups as content defined chunks, so that a chunk which is unchanged between generations is only stored once.
+ * Chunk boundaries are found with a gear rolling hash over the content rather than at fixed offsets, so data inserted or removed early in a file
+ * does not change the chunks that follow it. Chunks are named by their SHA-256 hash and shared between all generations in the backup folder.
+ * Each generation is described by a manifest listing its chunks, and is only visible once the manifest has been written.
+ */
+public class BackupStore {
+    private static final Logger log = LoggerFactory.getLogger(BackupStore.class);
+
+    public static final String MANIFEST_EXTENSION = "backup";
+    public static final String CHUNKS_DIR = "chunks";
+
+    static final int MIN_CHUNK_SIZE = 16 * 1024;
+    static final int MAX_CHUNK_SIZE = 256 * 1024;
+    //The top 16 bits of the rolling hash are zero at an average of every 64KB after the minimum chunk size
+    private static final long BOUNDARY_MASK = 0xFFFFL << 48;
+    private static final long[] GEAR = createGear();
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    //Generations hold the read lock while writing, so that chunks they reuse are not removed before their manifest is written
+    private static final ReadWriteLock CHUNKS_LOCK = new ReentrantReadWriteLock();
+
+    private final File backupDir;
+    private final File chunksDir;
+
+    public BackupStore(File backupDir) {
+        this.backupDir = backupDir;
+        this.chunksDir = new File(backupDir, CHUNKS_DIR);
+    }
+
+    public static boolean hasManifestExtension(File file) {
+        return file.getName().endsWith("." + MANIFEST_EXTENSION);
+    }
+
+    /**
+     * Returns true if the file has the manifest extension and is a well formed manifest, without checking its chunks
+     */
+    public static boolean isManifest(File file) {
+        if(!hasManifestExtension(file) || !file.isFile()) {
+            return false;
+        }
+
+        try {
+            readManifest(file);
+            return true;
+        } catch(IOException e) {
+            log.debug("Not a backup manifest: " + file.getAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Creates an output stream for a new generation. The generation is only stored if {@link GenerationOutputStream#commit()} is called before the stream is closed.
+     */
+    public GenerationOutputStream createGeneration(String backupName) throws IOException {
+        if(!chunksDir.exists() && !Storage.createOwnerOnlyDirectory(chunksDir)) {
+            throw new IOException("Could not create backup chunks folder " + chunksDir.getAbsolutePath());
+        }
+
+        return new GenerationOutputStream(new File(backupDir, backupName + "." + MANIFEST_EXTENSION));
+    }
+
+    /**
+     * Restores a generation to the target file, verifying each chunk and the restored file as a whole.
+     * The target file is only created once the restored content has been verified.
+     */
+    public void restore(File manifestFile, File target) throws IOException {
+        Manifest manifest = readManifest(manifestFile);
+        File tempFile = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+        try {
+            try(FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+                readChunks(manifest, outputStream);
+                outputStream.getFD().sync();
+            }
+            Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    /**
+     * Checks that all chunks of a generation are present and unaltered
+     */
+    public void verify(File manifestFile) throws IOException {
+        readChunks(readManifest(manifestFile), OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Securely deletes the given generations, and any chunks no longer used by a remaining generation
+     */
+    public void delete(Collection<File> manifestFiles) {
+        CHUNKS_LOCK.writeLock().lock();
+        try {
+            for(File manifestFile : manifestFiles) {
+                IOUtils.secureDelete(manifestFile);
+            }
+
+            removeUnusedChunks();
+        } finally {
+            CHUNKS_LOCK.writeLock().unlock();
+        }
+    }
+
+    long getChunksSize() {
+        long size = 0;
+        File[] chunkDirs = chunksDir.listFiles(File::isDirectory);
+        for(File chunkDir : chunkDirs == null ? new File[0] : chunkDirs) {
+            File[] chunks = chunkDir.listFiles();
+            for(File chunk : chunks == null ? new File[0] : chunks) {
+                size += chunk.length();
+            }
+        }
+
+        return size;
+    }
+
+    private void readChunks(Manifest manifest, OutputStream outputStream) throws IOException {
+        MessageDigest fileDigest = getSha256();
+        CHUNKS_LOCK.readLock().lock();
+        try {
+            for(Chunk chunk : manifest.chunks) {
+                File chunkFile = getChunkFile(chunk.hash);
+                if(!chunkFile.exists()) {
+                    throw new IOException("Backup chunk " + chunk.hash + " is missing");
+                }
+
+                byte[] data = Files.readAllBytes(chunkFile.toPath());
+                if(data.length != chunk.length || !chunk.hash.equals(HexFormat.of().formatHex(getSha256().digest(data)))) {
+                    throw new IOException("Backup chunk " + chunk.hash + " is corrupted");
+                }
+
+                fileDigest.update(data);
+                outputStream.write(data);
+            }
+        } finally {
+            CHUNKS_LOCK.readLock().unlock();
+        }
+
+        if(!manifest.hash.equals(HexFormat.of().formatHex(fileDigest.digest()))) {
+            throw new IOException("Restored backup does not match the hash of the original file");
+        }
+    }
+
+    private void removeUnusedChunks() {
+        Set<String> usedChunks = new HashSet<>();
+        File[] manifestFiles = backupDir.listFiles(BackupStore::hasManifestExtension);
+        for(File manifestFile : manifestFiles == null ? new File[0] : manifestFiles) {
+            try {
+                readManifest(manifestFile).chunks.forEach(chunk -> usedChunks.add(chunk.hash));
+            } catch(IOException e) {
+                //Keep every chunk rather than risk removing chunks used by a generation that could not be read
+                log.error("Error reading backup manifest " + manifestFile.getAbsolutePath() + ", not removing unused chunks", e);
+                return;
+            }
+        }
+
+        File[] chunkDirs = chunksDir.listFiles(File::isDirectory);
+        for(File chunkDir : chunkDirs == null ? new File[0] : chunkDirs) {
+            File[] chunks = chunkDir.listFiles();
+            for(File chunk : chunks == null ? new File[0] : chunks) {
+                if(!usedChunks.contains(chunk.getName())) {
+                    IOUtils.secureDelete(chunk);
+                }
+            }
+        }
+    }
+
+    private File getChunkFile(String hash) {
+        return new File(new File(chunksDir, hash.substring(0, 2)), hash);
+    }
+
+    private static Manifest readManifest(File manifestFile) throws IOException {
+        try(Reader reader = new InputStreamReader(new FileInputStream(manifestFile), StandardCharsets.UTF_8)) {
+            Manifest manifest = new Gson().fromJson(reader, Manifest.class);
+            if(manifest == null || !isValid(manifest)) {
+                throw new IOException("Invalid backup manifest " + manifestFile.getName());
+            }
+
+            return manifest;
+        } catch(RuntimeException e) {
+            throw new IOException("Invalid backup manifest " + manifestFile.getName(), e);
+        }
+    }
+
+    private static boolean isValid(Manifest manifest) {
+        if(manifest.size < 0 || !isSha256Hex(manifest.hash) || manifest.chunks == null) {
+            return false;
+        }
+
+        //Chunk hashes name files in the chunks folder, so they must not contain anything other than hex
+        long size = 0;
+        for(Chunk chunk : manifest.chunks) {
+            if(chunk == null || !isSha256Hex(chunk.hash) || chunk.length <= 0 || chunk.length > MAX_CHUNK_SIZE) {
+                return false;
+            }
+            size += chunk.length;
+        }
+
+        return size == manifest.size;
+    }
+
+    private static boolean isSha256Hex(String hash) {
+        return hash != null && SHA256_HEX.matcher(hash).matches();
+    }
+
+    private static MessageDigest getSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static long[] createGear() {
+        //The table must be the same in every session for chunk boundaries, and therefore deduplication, to be stable
+        SplittableRandom random = new SplittableRandom(0x53504152524F57L);
+        long[] gear = new long[256];
+        for(int i = 0; i < gear.length; i++) {
+            gear[i] = random.nextLong();
+        }
+
+        return gear;
+    }
+
+    public class GenerationOutputStream extends OutputStream {
+        private final File manifestFile;
+        private final byte[] buffer = new byte[MAX_CHUNK_SIZE];
+        private final MessageDigest fileDigest = getSha256();
+        private final List<Chunk> chunks = new ArrayList<>();
+        private int buffered;
+        private long hash;
+        private long size;
+        private boolean committed;
+        private boolean closed;
+
+        private GenerationOutputStream(File manifestFile) {
+            this.manifestFile = manifestFile;
+            CHUNKS_LOCK.readLock().lock();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte)b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            fileDigest.update(b, off, len);
+            size += len;
+
+            while(len > 0) {
+                //Scan for the next boundary, only hashing once the chunk has reached its minimum size, and then copy up to it in bulk
+                int scanned = Math.min(len, Math.max(0, MIN_CHUNK_SIZE - buffered));
+                boolean boundary = false;
+                while(scanned < len && !boundary) {
+                    hash = (hash << 1) + GEAR[b[off + scanned] & 0xff];
+                    scanned++;
+                    boundary = (hash & BOUNDARY_MASK) == 0 || buffered + scanned == MAX_CHUNK_SIZE;
+                }
+
+                System.arraycopy(b, off, buffer, buffered, scanned);
+                buffered += scanned;
+                off += scanned;
+                len -= scanned;
+
+                if(boundary) {
+                    writeChunk();
+                }
+            }
+        }
+
+        public void commit() throws IOException {
+            if(buffered > 0) {
+                writeChunk();
+            }
+
+            Manifest manifest = new Manifest(size, HexFormat.of().formatHex(fileDigest.digest()), chunks);
+            File tempFile = File.createTempFile(manifestFile.getName(), ".tmp", backupDir);
+            try {
+                try(Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+                    new Gson().toJson(manifest, writer);
+                }
+                Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile.toPath());
+            }
+
+            committed = true;
+        }
+
+        public File getManifestFile() {
+            return manifestFile;
+        }
+
+        @Override
+        public void close() {
+            if(!closed) {
+                closed = true;
+                CHUNKS_LOCK.readLock().unlock();
+                if(!committed) {
+                    log.warn("Backup " + manifestFile.getName() + " was not completed");
+                }
+            }
+        }
+
+        private void writeChunk() throws IOException {
+            MessageDigest chunkDigest = getSha256();
+            chunkDigest.update(buffer, 0, buffered);
+            String chunkHash = HexFormat.of().formatHex(chunkDigest.digest());
+            File chunkFile = getChunkFile(chunkHash);
+            if(!chunkFile.exists()) {
+                File chunkDir = chunkFile.getParentFile();
+                if(!chunkDir.exists() && !Storage.createOwnerOnlyDirectory(chunkDir)) {
+                    throw new IOException("Could not create backup chunks folder " + chunkDir.getAbsolutePath());
+                }
+
+                //A chunk is only visible under its hash once completely written
+                File tempFile = File.createTempFile(chunkHash, ".tmp", chunkDir);
+                try {
+                    try(FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+                        outputStream.write(buffer, 0, buffered);
+                    }
+                    Files.move(tempFile.toPath(), chunkFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tempFile.toPath());
+                }
+            }
+
+            chunks.add(new Chunk(chunkHash, buffered));
+            buffered = 0;
+            hash = 0;
+        }
+    }
+
+    private static class Manifest {
+        private final long size;
+        private final String hash;
+        private final List<Chunk> chunks;
+
+        public Manifest(long size, String hash, List<Chunk> chunks) {
+            this.size = size;
+            this.hash = hash;
+            this.chunks = chunks;
+        }
+    }
+
+    private static class Chunk {
+        private final String hash;
+        private final int length;
+
+        public Chunk(String hash, int length) {
+            this.hash = hash;
+            this.length = length;
+        }
+    }
+}
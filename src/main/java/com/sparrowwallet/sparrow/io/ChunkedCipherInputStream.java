@@ -0,0 +1,124 @@
+package com.sparrowwallet.sparrow.io;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.*;
+import java.security.GeneralSecurityException;
+
+import static com.sparrowwallet.sparrow.io.ChunkedCipherOutputStream.*;
+
+/**
+ * Decrypts a stream written by {@link ChunkedCipherOutputStream} one chunk at a time. No plaintext is returned from a chunk until it has been authenticated,
+ * and a stream that ends before its final chunk fails rather than returning a truncated plaintext.
+ */
+public class ChunkedCipherInputStream extends FilterInputStream {
+    private final SecretKey key;
+    private final byte[] associatedData;
+    private final Cipher cipher;
+    private final byte[] encryptedChunk = new byte[CHUNK_SIZE + TAG_LENGTH_BYTES];
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int limit;
+    private int position;
+    private long chunkIndex;
+    private int lookahead = -1;
+    private boolean finished;
+
+    public ChunkedCipherInputStream(InputStream in, SecretKey key, byte[] associatedData) {
+        super(in);
+        this.key = key;
+        this.associatedData = associatedData;
+
+        try {
+            this.cipher = Cipher.getInstance(TRANSFORMATION);
+        } catch(GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int read = read(b, 0, 1);
+        return read < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0) {
+            return 0;
+        }
+
+        while(position == limit) {
+            if(finished) {
+                return -1;
+            }
+            readChunk();
+        }
+
+        int read = Math.min(len, limit - position);
+        System.arraycopy(chunk, position, b, off, read);
+        position += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        //Skipped chunks are still decrypted, so that every chunk up to the current position is authenticated
+        long skipped = 0;
+        byte[] discard = new byte[(int)Math.min(n, CHUNK_SIZE)];
+        while(skipped < n) {
+            int read = read(discard, 0, (int)Math.min(n - skipped, discard.length));
+            if(read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void readChunk() throws IOException {
+        int length = 0;
+        if(lookahead >= 0) {
+            encryptedChunk[length++] = (byte)lookahead;
+            lookahead = -1;
+        }
+        length += in.readNBytes(encryptedChunk, length, encryptedChunk.length - length);
+
+        boolean last = length < encryptedChunk.length;
+        if(!last) {
+            lookahead = in.read();
+            last = (lookahead < 0);
+        }
+
+        if(length < TAG_LENGTH_BYTES) {
+            throw new IOException("Encrypted stream is truncated at chunk " + chunkIndex);
+        }
+
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BYTES * 8, getNonce(chunkIndex, last)));
+            cipher.updateAAD(associatedData);
+            limit = cipher.doFinal(encryptedChunk, 0, length, chunk, 0);
+        } catch(AEADBadTagException e) {
+            throw new IOException("Encrypted stream failed authentication at chunk " + chunkIndex + (last ? ", or is truncated" : ""), e);
+        } catch(GeneralSecurityException e) {
+            throw new IOException("Error decrypting chunk " + chunkIndex, e);
+        }
+
+        position = 0;
+        chunkIndex++;
+        finished = last;
+    }
+}
@@ -0,0 +1,100 @@
+package com.sparrowwallet.sparrow.io;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+/**
+ * Encrypts a stream in fixed size chunks with AES-GCM, so that neither the plaintext nor the ciphertext is ever held in memory as a whole.
+ * Each chunk is authenticated on its own, with a nonce made from the chunk index and a flag marking the final chunk,
+ * so that chunks cannot be reordered, dropped or truncated without detection. The key must only be used for a single stream.
+ */
+public class ChunkedCipherOutputStream extends FilterOutputStream {
+    public static final int CHUNK_SIZE = 64 * 1024;
+    static final int TAG_LENGTH_BYTES = 16;
+    static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    private final SecretKey key;
+    private final byte[] associatedData;
+    private final Cipher cipher;
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private final byte[] encryptedChunk = new byte[CHUNK_SIZE + TAG_LENGTH_BYTES];
+    private int buffered;
+    private long chunkIndex;
+    private boolean closed;
+
+    public ChunkedCipherOutputStream(OutputStream out, SecretKey key, byte[] associatedData) {
+        super(out);
+        this.key = key;
+        this.associatedData = associatedData;
+
+        try {
+            this.cipher = Cipher.getInstance(TRANSFORMATION);
+        } catch(GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte)b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if(closed) {
+            throw new IOException("Stream closed");
+        }
+
+        while(len > 0) {
+            //A full chunk is only written once more data arrives, as the last chunk must be marked as final
+            if(buffered == CHUNK_SIZE) {
+                writeChunk(false);
+            }
+
+            int copied = Math.min(len, CHUNK_SIZE - buffered);
+            System.arraycopy(b, off, buffer, buffered, copied);
+            buffered += copied;
+            off += copied;
+            len -= copied;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(!closed) {
+            closed = true;
+            try {
+                writeChunk(true);
+                out.flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private void writeChunk(boolean last) throws IOException {
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BYTES * 8, getNonce(chunkIndex, last)));
+            cipher.updateAAD(associatedData);
+            int length = cipher.doFinal(buffer, 0, buffered, encryptedChunk, 0);
+            out.write(encryptedChunk, 0, length);
+        } catch(GeneralSecurityException e) {
+            throw new IOException("Error encrypting chunk " + chunkIndex, e);
+        }
+
+        buffered = 0;
+        chunkIndex++;
+    }
+
+    static byte[] getNonce(long chunkIndex, boolean last) {
+        ByteBuffer nonce = ByteBuffer.allocate(12);
+        nonce.position(3);
+        nonce.putLong(chunkIndex);
+        nonce.put((byte)(last ? 1 : 0));
+        return nonce.array();
+    }
+}
@@ -53,6 +53,7 @@ public class Config {
     private boolean preventSleep = false;
     private List<File> recentWalletFiles;
     private Integer keyDerivationPeriod;
+    private int derivedKeyCacheTimeout = DerivedKeyCache.DEFAULT_IDLE_TIMEOUT_SECS;
     private long dustAttackThreshold = DUST_ATTACK_THRESHOLD_SATS;
     private File hwi;
     private int enumerateHwPeriod = ENUMERATE_HW_PERIOD_SECS;
@@ -62,6 +63,9 @@ public class Config {
     private String webcamDevice;
     private ServerType serverType;
     private Server publicElectrumServer;
+    //Probes every public server (through the proxy if configured) to pick the fastest, which reveals the user's IP address to all of them, so is opt in
+    private boolean autoSelectPublicServer;
+    private Map<String, Double> publicServerLatencies;
     private Server coreServer;
     private List<Server> recentCoreServers;
     private CoreAuthType coreAuthType;
@@ -75,12 +79,18 @@ public class Config {
     private String proxyServer;
     private boolean autoSwitchProxy = true;
     private int maxServerTimeout = DEFAULT_MAX_TIMEOUT;
+    private boolean useFallbackServers;
+    private List<Server> fallbackServers;
     private int maxPageSize = DEFAULT_PAGE_SIZE;
+    //Raw transactions are cached unencrypted and shared between wallets, so caching is opt in and never used for password protected wallets
+    private boolean cacheTransactions;
     private boolean usePayNym;
     private boolean mempoolFullRbf;
     private Double appWidth;
     private Double appHeight;
 
+    private final transient ConfigWriter configWriter = new ConfigWriter(Config::getConfigFile, () -> getGson().toJson(this), ConfigWriter.DEFAULT_WRITE_DELAY_MS);
+
     private static Config INSTANCE;
 
     private static Gson getGson() {
@@ -120,6 +130,7 @@ public class Config {
     public static synchronized Config get() {
         if(INSTANCE == null) {
             INSTANCE = load();
+            Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::flushPending, "ConfigShutdownFlush"));
         }
 
         return INSTANCE;
@@ -366,6 +377,15 @@ public class Config {
         flush();
     }
 
+    public int getDerivedKeyCacheTimeout() {
+        return derivedKeyCacheTimeout;
+    }
+
+    public void setDerivedKeyCacheTimeout(int derivedKeyCacheTimeout) {
+        this.derivedKeyCacheTimeout = derivedKeyCacheTimeout;
+        flush();
+    }
+
     public long getDustAttackThreshold() {
         return dustAttackThreshold;
     }
@@ -467,10 +487,29 @@ public class Config {
     public void changePublicServer() {
         List<Server> otherServers = PublicElectrumServer.getServers().stream().map(PublicElectrumServer::getServer).filter(server -> !server.equals(getPublicElectrumServer())).collect(Collectors.toList());
         if(!otherServers.isEmpty()) {
-            setPublicElectrumServer(otherServers.get(new Random().nextInt(otherServers.size())));
+            Optional<Server> optBest = autoSelectPublicServer ? new ServerLatencyScores(getPublicServerLatencies()).getBest(otherServers) : Optional.empty();
+            setPublicElectrumServer(optBest.orElse(otherServers.get(new Random().nextInt(otherServers.size()))));
         }
     }
 
+    public boolean isAutoSelectPublicServer() {
+        return autoSelectPublicServer;
+    }
+
+    public void setAutoSelectPublicServer(boolean autoSelectPublicServer) {
+        this.autoSelectPublicServer = autoSelectPublicServer;
+        flush();
+    }
+
+    public Map<String, Double> getPublicServerLatencies() {
+        return publicServerLatencies == null ? new HashMap<>() : publicServerLatencies;
+    }
+
+    public void setPublicServerLatencies(Map<String, Double> publicServerLatencies) {
+        this.publicServerLatencies = publicServerLatencies;
+        flush();
+    }
+
     public Server getCoreServer() {
         return coreServer;
     }
@@ -648,10 +687,37 @@ public class Config {
         return maxServerTimeout;
     }
 
+    public boolean isUseFallbackServers() {
+        return useFallbackServers;
+    }
+
+    public void setUseFallbackServers(boolean useFallbackServers) {
+        this.useFallbackServers = useFallbackServers;
+        flush();
+    }
+
+    public List<Server> getFallbackServers() {
+        return fallbackServers == null ? new ArrayList<>() : fallbackServers;
+    }
+
+    public void setFallbackServers(List<Server> fallbackServers) {
+        this.fallbackServers = fallbackServers;
+        flush();
+    }
+
     public int getMaxPageSize() {
         return maxPageSize;
     }
 
+    public boolean isCacheTransactions() {
+        return cacheTransactions;
+    }
+
+    public void setCacheTransactions(boolean cacheTransactions) {
+        this.cacheTransactions = cacheTransactions;
+        flush();
+    }
+
     public boolean isUsePayNym() {
         return usePayNym;
     }
@@ -688,21 +754,12 @@ public class Config {
         flush();
     }
 
-    private synchronized void flush() {
-        Gson gson = getGson();
-        try {
-            File configFile = getConfigFile();
-            if(!configFile.exists()) {
-                Storage.createOwnerOnlyFile(configFile);
-            }
+    private void flush() {
+        configWriter.requestWrite();
+    }
 
-            Writer writer = new FileWriter(configFile);
-            gson.toJson(this, writer);
-            writer.flush();
-            writer.close();
-        } catch (IOException e) {
-            //Ignore
-        }
+    public void flushPending() {
+        configWriter.flush();
     }
 
     private static class FileSerializer implements JsonSerializer<File> {
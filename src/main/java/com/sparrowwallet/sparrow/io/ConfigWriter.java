@@ -0,0 +1,125 @@
+package com.sparrowwallet.sparrow.io;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ConcurrentModificationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Writes a file in the background after it has been changed, coalescing changes made in quick succession into a single write.
+ * Each write goes to a temporary file which is synced and then atomically moved over the original, so that a crash never leaves a partially written file.
+ */
+class ConfigWriter {
+    private static final Logger log = LoggerFactory.getLogger(ConfigWriter.class);
+
+    static final long DEFAULT_WRITE_DELAY_MS = 250;
+
+    private final Supplier<File> fileSupplier;
+    private final Supplier<String> contentSupplier;
+    private final long writeDelayMs;
+    private final AtomicLong requestedSequence = new AtomicLong();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ScheduledExecutorService writeExecutor = Executors.newSingleThreadScheduledExecutor(new BasicThreadFactory.Builder().namingPattern("ConfigWriter").daemon(true).build());
+    private long writtenSequence;
+    private int writeCount;
+
+    ConfigWriter(Supplier<File> fileSupplier, Supplier<String> contentSupplier, long writeDelayMs) {
+        this.fileSupplier = fileSupplier;
+        this.contentSupplier = contentSupplier;
+        this.writeDelayMs = writeDelayMs;
+    }
+
+    public void requestWrite() {
+        requestedSequence.incrementAndGet();
+        schedule();
+    }
+
+    /**
+     * Writes any pending change on the calling thread, returning once it is on disk
+     */
+    public void flush() {
+        writeIfPending();
+    }
+
+    synchronized int getWriteCount() {
+        return writeCount;
+    }
+
+    private void schedule() {
+        if(scheduled.compareAndSet(false, true)) {
+            writeExecutor.schedule(this::scheduledWrite, writeDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scheduledWrite() {
+        try {
+            writeIfPending();
+        } catch(RuntimeException e) {
+            log.error("Error writing " + fileSupplier.get().getAbsolutePath(), e);
+        } finally {
+            //Requests made during the write found this write still scheduled, so schedule another for them
+            scheduled.set(false);
+            if(isPending()) {
+                schedule();
+            }
+        }
+    }
+
+    private synchronized boolean isPending() {
+        return requestedSequence.get() != writtenSequence;
+    }
+
+    private synchronized void writeIfPending() {
+        //Record the sequence before reading the content, so that a change made during the write remains pending
+        long sequence = requestedSequence.get();
+        if(sequence != writtenSequence) {
+            writtenSequence = sequence;
+            write();
+        }
+    }
+
+    private void write() {
+        File file = fileSupplier.get();
+        Path tempFile = null;
+        try {
+            byte[] content = contentSupplier.get().getBytes(StandardCharsets.UTF_8);
+            tempFile = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+            try(FileOutputStream outputStream = new FileOutputStream(tempFile.toFile())) {
+                outputStream.write(content);
+                outputStream.getFD().sync();
+            }
+
+            Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempFile = null;
+            writeCount++;
+        } catch(ConcurrentModificationException e) {
+            //A collection was changed while being serialized, so try again
+            log.debug("Config changed while writing, retrying");
+            requestWrite();
+        } catch(IOException e) {
+            log.error("Error writing " + file.getAbsolutePath(), e);
+        } finally {
+            if(tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch(IOException e) {
+                    //Ignore
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.sparrowwallet.sparrow.io;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds keys derived from wallet passwords for the current session, so that repeated operations on the same wallet file do not run the password KDF again.
+ * Passwords are never stored. Each entry holds an HMAC of the password under a random key generated for the session, which is compared before a cached key is returned.
+ * Entries expire after an idle period, and key bytes are overwritten when an entry expires or is removed.
+ */
+public class DerivedKeyCache {
+    public static final int DEFAULT_IDLE_TIMEOUT_SECS = 300;
+    private static final long EXPIRY_CHECK_PERIOD_SECS = 15;
+
+    private static DerivedKeyCache INSTANCE;
+
+    private final Map<File, CachedKey> cachedKeys = new HashMap<>();
+    private final byte[] sessionKey = new byte[32];
+    private final IntSupplier idleTimeoutSecs;
+    private final LongSupplier clock;
+
+    DerivedKeyCache(IntSupplier idleTimeoutSecs, LongSupplier clock) {
+        this.idleTimeoutSecs = idleTimeoutSecs;
+        this.clock = clock;
+        new SecureRandom().nextBytes(sessionKey);
+    }
+
+    public static synchronized DerivedKeyCache get() {
+        if(INSTANCE == null) {
+            INSTANCE = new DerivedKeyCache(() -> Config.get().getDerivedKeyCacheTimeout(), System::currentTimeMillis);
+            ScheduledExecutorService expiryScheduler = Executors.newSingleThreadScheduledExecutor(new BasicThreadFactory.Builder().namingPattern("DerivedKeyCacheExpiry").daemon(true).build());
+            expiryScheduler.scheduleWithFixedDelay(INSTANCE::removeExpired, EXPIRY_CHECK_PERIOD_SECS, EXPIRY_CHECK_PERIOD_SECS, TimeUnit.SECONDS);
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a copy of the key cached for this wallet file and password, or null if there is none
+     */
+    public synchronized byte[] getKey(File walletFile, CharSequence password) {
+        CachedKey cachedKey = cachedKeys.get(walletFile);
+        if(cachedKey == null) {
+            return null;
+        }
+
+        long now = clock.getAsLong();
+        if(isExpired(cachedKey, now)) {
+            remove(walletFile);
+            return null;
+        }
+
+        if(!MessageDigest.isEqual(cachedKey.verifier, getVerifier(walletFile, password))) {
+            return null;
+        }
+
+        cachedKey.lastAccessed = now;
+        return cachedKey.key.clone();
+    }
+
+    public synchronized void putKey(File walletFile, CharSequence password, byte[] key) {
+        if(idleTimeoutSecs.getAsInt() <= 0) {
+            return;
+        }
+
+        remove(walletFile);
+        cachedKeys.put(walletFile, new CachedKey(getVerifier(walletFile, password), key.clone(), clock.getAsLong()));
+    }
+
+    public synchronized void remove(File walletFile) {
+        CachedKey cachedKey = cachedKeys.remove(walletFile);
+        if(cachedKey != null) {
+            cachedKey.clear();
+        }
+    }
+
+    public synchronized void clear() {
+        cachedKeys.values().forEach(CachedKey::clear);
+        cachedKeys.clear();
+    }
+
+    synchronized void removeExpired() {
+        long now = clock.getAsLong();
+        for(Iterator<CachedKey> iter = cachedKeys.values().iterator(); iter.hasNext(); ) {
+            CachedKey cachedKey = iter.next();
+            if(isExpired(cachedKey, now)) {
+                cachedKey.clear();
+                iter.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return cachedKeys.size();
+    }
+
+    private boolean isExpired(CachedKey cachedKey, long now) {
+        return now - cachedKey.lastAccessed >= TimeUnit.SECONDS.toMillis(idleTimeoutSecs.getAsInt());
+    }
+
+    private byte[] getVerifier(File walletFile, CharSequence password) {
+        ByteBuffer passwordBytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(sessionKey, "HmacSHA256"));
+            mac.update(walletFile.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+            mac.update((byte)0);
+            mac.update(passwordBytes.duplicate());
+            return mac.doFinal();
+        } catch(GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        } finally {
+            if(passwordBytes.hasArray()) {
+                Arrays.fill(passwordBytes.array(), (byte)0);
+            }
+        }
+    }
+
+    private static class CachedKey {
+        private final byte[] verifier;
+        private final byte[] key;
+        private long lastAccessed;
+
+        public CachedKey(byte[] verifier, byte[] key, long lastAccessed) {
+            this.verifier = verifier;
+            this.key = key;
+            this.lastAccessed = lastAccessed;
+        }
+
+        public void clear() {
+            Arrays.fill(verifier, (byte)0);
+            Arrays.fill(key, (byte)0);
+        }
+    }
+}
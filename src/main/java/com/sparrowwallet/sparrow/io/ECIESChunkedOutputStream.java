@@ -0,0 +1,48 @@
+package com.sparrowwallet.sparrow.io;
+
+import com.sparrowwallet.drongo.crypto.ECIESKeyCrypter;
+import com.sparrowwallet.drongo.crypto.ECKey;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Streaming alternative to {@link ECIESOutputStream}. A random content key is encrypted to the public key with ECIES and written in a short header,
+ * and the data is then encrypted with the content key in authenticated chunks by {@link ChunkedCipherOutputStream}.
+ * The header is bound to every chunk as associated data. Streams in this format are read transparently by {@link ECIESInputStream}.
+ */
+public class ECIESChunkedOutputStream extends FilterOutputStream {
+    public static final byte[] CHUNKED_MAGIC = "SCE1".getBytes(StandardCharsets.UTF_8);
+    private static final int CONTENT_KEY_LENGTH = 32;
+
+    public ECIESChunkedOutputStream(OutputStream out, ECKey encryptionKey, byte[] encryptionMagic) throws IOException {
+        super(out);
+
+        if(out == null || encryptionKey == null || encryptionMagic == null) {
+            throw new NullPointerException();
+        }
+
+        byte[] contentKey = new byte[CONTENT_KEY_LENGTH];
+        new SecureRandom().nextBytes(contentKey);
+
+        byte[] keyBlock = new ECIESKeyCrypter().encrypt(contentKey, encryptionMagic, encryptionKey).getEncryptedBytes();
+        byte[] header = ByteBuffer.allocate(CHUNKED_MAGIC.length + 2 + keyBlock.length).put(CHUNKED_MAGIC).putShort((short)keyBlock.length).put(keyBlock).array();
+        out.write(header);
+
+        this.out = new ChunkedCipherOutputStream(out, new SecretKeySpec(contentKey, "AES"), header);
+        Arrays.fill(contentKey, (byte)0);
+    }
+
+    public ECIESChunkedOutputStream(OutputStream out, ECKey encryptionKey) throws IOException {
+        this(out, encryptionKey, "BIE1".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+}
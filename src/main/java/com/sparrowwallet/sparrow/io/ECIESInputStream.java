@@ -5,8 +5,13 @@ import com.sparrowwallet.drongo.crypto.ECIESKeyCrypter;
 import com.sparrowwallet.drongo.crypto.ECKey;
 import com.sparrowwallet.drongo.crypto.EncryptedData;
 
+import javax.crypto.spec.SecretKeySpec;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.sparrowwallet.sparrow.io.ECIESChunkedOutputStream.CHUNKED_MAGIC;
 
 public class ECIESInputStream extends FilterInputStream {
     private boolean decrypted;
@@ -40,12 +45,33 @@ public class ECIESInputStream extends FilterInputStream {
 
     private synchronized void ensureDecrypted() throws IOException {
         if(!decrypted) {
-            byte[] encryptedBytes = ByteStreams.toByteArray(in);
-            in.close();
-            ECIESKeyCrypter keyCrypter = new ECIESKeyCrypter();
-            byte[] decryptedBytes = keyCrypter.decrypt(new EncryptedData(encryptionMagic, encryptedBytes, null, null), decryptionKey);
-            in = new ByteArrayInputStream(decryptedBytes);
+            byte[] magic = in.readNBytes(CHUNKED_MAGIC.length);
+            if(Arrays.equals(magic, CHUNKED_MAGIC)) {
+                in = getChunkedStream();
+            } else {
+                //The legacy format authenticates the ciphertext as a whole, so it must be read completely before decrypting
+                byte[] encryptedBytes = ByteStreams.toByteArray(new SequenceInputStream(new ByteArrayInputStream(magic), in));
+                in.close();
+                ECIESKeyCrypter keyCrypter = new ECIESKeyCrypter();
+                byte[] decryptedBytes = keyCrypter.decrypt(new EncryptedData(encryptionMagic, encryptedBytes, null, null), decryptionKey);
+                in = new ByteArrayInputStream(decryptedBytes);
+            }
             decrypted = true;
         }
     }
+
+    private InputStream getChunkedStream() throws IOException {
+        byte[] length = in.readNBytes(2);
+        if(length.length < 2) {
+            throw new IOException("Encrypted stream is truncated");
+        }
+
+        byte[] keyBlock = in.readNBytes(ByteBuffer.wrap(length).getShort() & 0xffff);
+        ECIESKeyCrypter keyCrypter = new ECIESKeyCrypter();
+        byte[] contentKey = keyCrypter.decrypt(new EncryptedData(encryptionMagic, keyBlock, null, null), decryptionKey);
+        byte[] header = ByteBuffer.allocate(CHUNKED_MAGIC.length + length.length + keyBlock.length).put(CHUNKED_MAGIC).put(length).put(keyBlock).array();
+        InputStream chunkedStream = new ChunkedCipherInputStream(in, new SecretKeySpec(contentKey, "AES"), header);
+        Arrays.fill(contentKey, (byte)0);
+        return chunkedStream;
+    }
 }
@@ -0,0 +1,111 @@
+package com.sparrowwallet.sparrow.io;
+
+import com.google.gson.Gson;
+import com.sparrowwallet.drongo.Utils;
+import com.sparrowwallet.drongo.protocol.Sha256Hash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The wallet transactions as they were when last exported to a particular destination, recorded so that a later export to the same
+ * destination can contain only the transactions that have been added, confirmed, moved by a reorg or removed since.
+ * Checkpoints are stored in the Sparrow home directory, named by a hash of the wallet id and destination path.
+ */
+public class ExportCheckpoint {
+    private static final Logger log = LoggerFactory.getLogger(ExportCheckpoint.class);
+
+    public static final String CHECKPOINTS_DIR = "exports";
+
+    private final Integer blockHeight;
+    private final long timestamp;
+    //Height of each exported transaction by txid, zero or less if unconfirmed
+    private final Map<String, Integer> txHeights;
+
+    public ExportCheckpoint(Integer blockHeight, Map<String, Integer> txHeights) {
+        this.blockHeight = blockHeight;
+        this.timestamp = System.currentTimeMillis();
+        this.txHeights = new LinkedHashMap<>(txHeights);
+    }
+
+    public Integer getBlockHeight() {
+        return blockHeight;
+    }
+
+    public Date getDate() {
+        return new Date(timestamp);
+    }
+
+    public Map<String, Integer> getTxHeights() {
+        return txHeights;
+    }
+
+    public static ExportCheckpoint load(String walletId, File destination) {
+        File checkpointFile = getFile(walletId, destination);
+        if(!checkpointFile.exists()) {
+            return null;
+        }
+
+        try(Reader reader = new InputStreamReader(new FileInputStream(checkpointFile), StandardCharsets.UTF_8)) {
+            ExportCheckpoint checkpoint = new Gson().fromJson(reader, ExportCheckpoint.class);
+            if(checkpoint != null && checkpoint.txHeights != null) {
+                return checkpoint;
+            }
+        } catch(Exception e) {
+            log.warn("Error reading export checkpoint " + checkpointFile.getAbsolutePath(), e);
+        }
+
+        return null;
+    }
+
+    public void save(String walletId, File destination) throws IOException {
+        File checkpointFile = getFile(walletId, destination);
+        File checkpointsDir = checkpointFile.getParentFile();
+        if(!checkpointsDir.exists() && !Storage.createOwnerOnlyDirectory(checkpointsDir)) {
+            throw new IOException("Could not create export checkpoints folder " + checkpointsDir.getAbsolutePath());
+        }
+
+        //Write to a temporary file first so that a failed write leaves the previous checkpoint intact
+        File tempFile = File.createTempFile(checkpointFile.getName(), ".tmp", checkpointsDir);
+        try {
+            try(Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+                new Gson().toJson(this, writer);
+            }
+            Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    public static void delete(String walletId, File destination) {
+        File checkpointFile = getFile(walletId, destination);
+        if(checkpointFile.exists() && !checkpointFile.delete()) {
+            log.warn("Could not delete export checkpoint " + checkpointFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * @return a file alongside the destination for the changes since the checkpoint, so that the full export at the destination is not overwritten
+     */
+    public static File getChangesFile(File destination, Date date) {
+        String name = destination.getName();
+        int extensionIndex = name.lastIndexOf('.');
+        String baseName = extensionIndex > 0 ? name.substring(0, extensionIndex) : name;
+        String extension = extensionIndex > 0 ? name.substring(extensionIndex) : "";
+        return new File(destination.getParentFile(), baseName + "-changes-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(date) + extension);
+    }
+
+    private static File getFile(String walletId, File destination) {
+        String key = walletId + "\n" + destination.getAbsolutePath();
+        String name = Utils.bytesToHex(Sha256Hash.hash(key.getBytes(StandardCharsets.UTF_8)));
+        return new File(new File(Storage.getSparrowDir(), CHECKPOINTS_DIR), name + ".json");
+    }
+}
@@ -136,10 +136,11 @@ public class IOUtils {
             try(RandomAccessFile raf = new RandomAccessFile(file, "rws")) {
                 raf.seek(0);
                 raf.getFilePointer();
-                int pos = 0;
+                long pos = 0;
                 while(pos < length) {
-                    raf.write(data);
-                    pos += data.length;
+                    int len = (int)Math.min(data.length, length - pos);
+                    raf.write(data, 0, len);
+                    pos += len;
                 }
             } catch(IOException e) {
                 log.warn("Error overwriting file for deletion: " + file.getName(), e);
@@ -147,6 +147,7 @@ public class JsonPersistence implements Persistence {
     @Override
     public File storeWallet(Storage storage, Wallet wallet, ECKey encryptionPubKey) throws IOException {
         File walletFile = storage.getWalletFile();
+        boolean chunked = !walletFile.exists() || isChunked(walletFile);
 
         if(walletFile.getName().endsWith(".json")) {
             File noJsonFile = new File(walletFile.getParentFile(), walletFile.getName().substring(0, walletFile.getName().lastIndexOf('.')));
@@ -164,7 +165,8 @@ public class JsonPersistence implements Persistence {
 
         try(OutputStream outputStream = new FileOutputStream(walletFile)) {
             writeBinaryHeader(outputStream);
-            OutputStreamWriter writer = new OutputStreamWriter(new DeflaterOutputStream(new ECIESOutputStream(outputStream, encryptionPubKey, getEncryptionMagic())), StandardCharsets.UTF_8);
+            OutputStream encryptedStream = chunked ? new ECIESChunkedOutputStream(outputStream, encryptionPubKey, getEncryptionMagic()) : new ECIESOutputStream(outputStream, encryptionPubKey, getEncryptionMagic());
+            OutputStreamWriter writer = new OutputStreamWriter(new DeflaterOutputStream(encryptedStream), StandardCharsets.UTF_8);
             gson.toJson(wallet, writer);
             //Close the writer explicitly as the try-resources block will not do so
             writer.close();
@@ -183,6 +185,18 @@ public class JsonPersistence implements Persistence {
         storeWallet(storage, wallet, encryptionPubKey);
     }
 
+    /**
+     * Earlier versions fail to decrypt the chunked format with a misleading error, so existing files keep the format they were written in
+     * and only new files are written in chunks
+     */
+    private boolean isChunked(File walletFile) throws IOException {
+        try(InputStream inputStream = new FileInputStream(walletFile)) {
+            byte[] header = inputStream.readNBytes(BINARY_HEADER_LENGTH + ECIESChunkedOutputStream.CHUNKED_MAGIC.length);
+            return header.length == BINARY_HEADER_LENGTH + ECIESChunkedOutputStream.CHUNKED_MAGIC.length &&
+                    Arrays.equals(ECIESChunkedOutputStream.CHUNKED_MAGIC, Arrays.copyOfRange(header, BINARY_HEADER_LENGTH, header.length));
+        }
+    }
+
     private void writeBinaryHeader(OutputStream outputStream) throws IOException {
         ByteBuffer buf = ByteBuffer.allocate(21);
         buf.put(HEADER_MAGIC_1.getBytes(StandardCharsets.UTF_8));
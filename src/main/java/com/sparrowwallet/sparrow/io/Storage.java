@@ -44,6 +44,8 @@ public class Storage {
     public static final String WALLETS_DIR = "wallets";
     public static final String WALLETS_BACKUP_DIR = "backup";
     public static final String CERTS_DIR = "certs";
+    public static final String RESTORED_BACKUPS_DIR = "restored";
+    public static final int MAX_BACKUP_GENERATIONS = 10;
     public static final List<String> RESERVED_WALLET_NAMES = List.of("temp");
 
     private Persistence persistence;
@@ -135,6 +137,7 @@ public class Storage {
     }
 
     public void close() {
+        clearDerivedKey();
         ClosePersistenceService closePersistenceService = new ClosePersistenceService();
         closePersistenceService.start();
     }
@@ -240,13 +243,15 @@ public class Storage {
             backupName = prefix + "_" + backupName;
         }
 
-        File backupFile = new File(backupDir, backupName);
-        if(!backupFile.exists()) {
-            createOwnerOnlyFile(backupFile);
+        BackupStore backupStore = new BackupStore(backupDir);
+        try(BackupStore.GenerationOutputStream outputStream = backupStore.createGeneration(backupName)) {
+            copyWallet(outputStream);
+            outputStream.commit();
         }
 
-        try(FileOutputStream outputStream = new FileOutputStream(backupFile)) {
-            copyWallet(outputStream);
+        File[] generations = getBackupGenerations(prefix);
+        if(generations.length > MAX_BACKUP_GENERATIONS) {
+            backupStore.delete(Arrays.asList(generations).subList(MAX_BACKUP_GENERATIONS, generations.length));
         }
     }
 
@@ -282,16 +287,35 @@ public class Storage {
         for(File backup : backups) {
             IOUtils.secureDelete(backup);
         }
+
+        File[] generations = getBackupGenerations(prefix);
+        if(generations.length > 0) {
+            new BackupStore(getWalletsBackupDir()).delete(Arrays.asList(generations));
+        }
     }
 
+    //Full copies of the wallet file, as made before backups were stored as chunked generations
     File[] getBackups(String prefix) {
+        return getBackups(prefix, false);
+    }
+
+    File[] getBackupGenerations(String prefix) {
+        return getBackups(prefix, true);
+    }
+
+    private File[] getBackups(String prefix, boolean generations) {
         File backupDir = getWalletsBackupDir();
         String walletName = persistence.getWalletName(walletFile, null);
         String extension = walletFile.getName().substring(walletName.length());
         File[] backups = backupDir.listFiles((dir, name) -> {
-            return name.startsWith((prefix == null ? "" : prefix + "_") + walletName + "-") &&
-                    getBackupDate(name) != null &&
-                    (extension.isEmpty() || name.endsWith(extension));
+            if(BackupStore.hasManifestExtension(new File(dir, name)) != generations) {
+                return false;
+            }
+
+            String walletFileName = generations ? name.substring(0, name.length() - BackupStore.MANIFEST_EXTENSION.length() - 1) : name;
+            return walletFileName.startsWith((prefix == null ? "" : prefix + "_") + walletName + "-") &&
+                    getBackupDate(walletFileName) != null &&
+                    (extension.isEmpty() || walletFileName.endsWith(extension));
         });
 
         backups = backups == null ? new File[0] : backups;
@@ -358,10 +382,34 @@ public class Storage {
 
     public void setEncryptionPubKey(ECKey encryptionPubKey) {
         this.encryptionPubKey = encryptionPubKey;
+        clearDerivedKey();
     }
 
     public ECKey getEncryptionKey(CharSequence password) throws IOException, StorageException {
-        return persistence.getEncryptionKey(password);
+        if(password == null || encryptionPubKey == null || NO_PASSWORD_KEY.equals(encryptionPubKey)) {
+            return persistence.getEncryptionKey(password);
+        }
+
+        byte[] cachedKeyBytes = DerivedKeyCache.get().getKey(walletFile, password);
+        if(cachedKeyBytes != null) {
+            ECKey cachedKey = ECKey.fromPrivate(cachedKeyBytes);
+            Arrays.fill(cachedKeyBytes, (byte)0);
+            if(ECKey.fromPublicOnly(cachedKey).equals(encryptionPubKey)) {
+                return cachedKey;
+            }
+        }
+
+        //Only keys that match the current wallet key are cached, so a new password being set is never cached against the old key
+        ECKey encryptionKey = persistence.getEncryptionKey(password);
+        if(ECKey.fromPublicOnly(encryptionKey).equals(encryptionPubKey)) {
+            DerivedKeyCache.get().putKey(walletFile, password, encryptionKey.getPrivKeyBytes());
+        }
+
+        return encryptionKey;
+    }
+
+    public void clearDerivedKey() {
+        DerivedKeyCache.get().remove(walletFile);
     }
 
     public AsymmetricKeyDeriver getKeyDeriver() {
@@ -653,7 +701,10 @@ public class Storage {
         private final Storage storage;
         private final SecureString password;
 
+        private static final int MAX_CONCURRENT_LOADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
         private static Executor singleThreadedExecutor;
+        private static Executor concurrentExecutor;
 
         public LoadWalletService(Storage storage) {
             this.storage = storage;
@@ -691,6 +742,15 @@ public class Storage {
 
             return singleThreadedExecutor;
         }
+
+        public static Executor getConcurrentExecutor() {
+            if(concurrentExecutor == null) {
+                BasicThreadFactory factory = new BasicThreadFactory.Builder().namingPattern("LoadWalletService-%d").daemon(true).priority(Thread.MIN_PRIORITY).build();
+                concurrentExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_LOADS, factory);
+            }
+
+            return concurrentExecutor;
+        }
     }
 
     public static class KeyDerivationService extends Service<ECKey> {
@@ -731,10 +791,16 @@ public class Storage {
 
     public static class DecryptWalletService extends Service<Wallet> {
         private final Wallet wallet;
+        private final Storage storage;
         private final SecureString password;
 
         public DecryptWalletService(Wallet wallet, SecureString password) {
+            this(wallet, null, password);
+        }
+
+        public DecryptWalletService(Wallet wallet, Storage storage, SecureString password) {
             this.wallet = wallet;
+            this.storage = storage;
             this.password = password;
         }
 
@@ -743,7 +809,24 @@ public class Storage {
             return new Task<>() {
                 protected Wallet call() throws IOException, StorageException {
                     try {
-                        wallet.decrypt(password);
+                        if(storage != null && storage.getKeyDeriver() != null && storage.getEncryptionPubKey() != null && !NO_PASSWORD_KEY.equals(storage.getEncryptionPubKey())) {
+                            //Decrypt with the storage key, which is derived once and then cached for the session
+                            ECKey encryptionFullKey = storage.getEncryptionKey(password);
+                            if(!ECKey.fromPublicOnly(encryptionFullKey).equals(storage.getEncryptionPubKey())) {
+                                throw new InvalidPasswordException("Derived pubkey does not match stored pubkey");
+                            }
+
+                            Key key = new Key(encryptionFullKey.getPrivKeyBytes(), storage.getKeyDeriver().getSalt(), EncryptionType.Deriver.ARGON2);
+                            try {
+                                wallet.decrypt(key);
+                            } finally {
+                                key.clear();
+                                encryptionFullKey.clear();
+                            }
+                        } else {
+                            wallet.decrypt(password);
+                        }
+
                         return wallet;
                     } finally {
                         password.clear();
@@ -807,4 +890,33 @@ public class Storage {
             };
         }
     }
+
+    public static class RestoreBackupService extends Service<File> {
+        private final File manifestFile;
+
+        public RestoreBackupService(File manifestFile) {
+            this.manifestFile = manifestFile;
+        }
+
+        @Override
+        protected Task<File> createTask() {
+            return new Task<>() {
+                protected File call() throws IOException {
+                    File restoredDir = new File(getWalletsBackupDir(), RESTORED_BACKUPS_DIR);
+                    if(!restoredDir.exists() && !createOwnerOnlyDirectory(restoredDir)) {
+                        throw new IOException("Could not create folder " + restoredDir);
+                    }
+
+                    //A generation that has already been restored is opened as is, so that changes made to it are not lost
+                    String name = manifestFile.getName();
+                    File restoredFile = new File(restoredDir, name.substring(0, name.length() - BackupStore.MANIFEST_EXTENSION.length() - 1));
+                    if(!restoredFile.exists()) {
+                        new BackupStore(manifestFile.getParentFile()).restore(manifestFile, restoredFile);
+                    }
+
+                    return restoredFile;
+                }
+            };
+        }
+    }
 }
@@ -133,185 +133,220 @@ public class WalletLabels implements WalletImport, WalletExport {
             throw new IllegalStateException("No wallets to import labels for");
         }
 
+        //Index each wallet once by label reference, so that labels can be applied as they are read
+        List<WalletLabelTargets> walletTargets = new ArrayList<>();
+        for(WalletForm walletForm : walletForms) {
+            if(walletForm.getWallet().isValid()) {
+                walletTargets.add(new WalletLabelTargets(walletForm));
+            }
+        }
+
         Gson gson = new Gson();
-        List<Label> labels = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        long count = 0;
         try {
             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
             String line;
             while((line = reader.readLine()) != null) {
-                Label label;
-                try {
-                    label = gson.fromJson(line, Label.class);
-                } catch(Exception e) {
-                    //Try parse Electrum history CSV, or any CSV with txid,label entries
-                    try {
-                        CsvReader csvReader = new CsvReader(new StringReader(line));
-                        if(csvReader.readRecord() && csvReader.getColumnCount() > 1 && csvReader.get(0).length() == 64 && Utils.isHex(csvReader.get(0))) {
-                            label = new Label(Type.tx, csvReader.get(0), csvReader.get(1), null, null);
-                        } else {
-                            continue;
-                        }
-                    } catch(Exception ex) {
-                        continue;
-                    }
-                }
-
-                if(label == null || label.type == null || label.ref == null) {
+                Label label = parseLabel(gson, line);
+                if(label == null) {
                     continue;
                 }
 
-                if(label.type == Type.output) {
-                    if((label.label == null || label.label.isEmpty()) && label.spendable == null) {
-                        continue;
-                    }
-                } else if(label.label == null || label.label.isEmpty()) {
-                    continue;
+                for(WalletLabelTargets targets : walletTargets) {
+                    targets.apply(label);
                 }
-
-                labels.add(label);
+                count++;
             }
         } catch(Exception e) {
             throw new ImportException("Error importing labels file", e);
         }
 
-        Map<Wallet, List<Keystore>> changedWalletKeystores = new LinkedHashMap<>();
-        Map<Wallet, List<Entry>> changedWalletEntries = new LinkedHashMap<>();
-        Map<Wallet, List<BlockTransactionHashIndex>> changedWalletUtxoStatuses = new LinkedHashMap<>();
+        long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+        log.info("Imported " + count + " labels in " + elapsed + "ms (" + (count * 1000 / elapsed) + " labels/s)");
 
-        for(WalletForm walletForm : walletForms) {
-            Wallet wallet = walletForm.getWallet();
-            if(!wallet.isValid()) {
-                continue;
+        //Post a single set of events per wallet, which are coalesced into one save
+        for(WalletLabelTargets targets : walletTargets) {
+            Wallet wallet = targets.wallet;
+            if(!targets.changedKeystores.isEmpty()) {
+                Storage storage = AppServices.get().getOpenWallets().get(wallet);
+                EventManager.get().post(new KeystoreLabelsChangedEvent(wallet, wallet, storage.getWalletId(wallet), new ArrayList<>(targets.changedKeystores)));
             }
 
-            OutputDescriptor outputDescriptor = OutputDescriptor.getOutputDescriptor(wallet);
-            String origin = outputDescriptor.toString(true, false, false);
+            if(!targets.changedEntries.isEmpty()) {
+                EventManager.get().post(new WalletEntryLabelsChangedEvent(wallet, new ArrayList<>(targets.changedEntries), false));
+            }
 
-            List<Entry> transactionEntries = walletForm.getWalletTransactionsEntry().getChildren();
-            List<Entry> addressEntries = new ArrayList<>();
-            addressEntries.addAll(walletForm.getNodeEntry(KeyPurpose.RECEIVE).getChildren());
-            addressEntries.addAll(walletForm.getNodeEntry(KeyPurpose.CHANGE).getChildren());
-            List<Entry> utxoEntries = walletForm.getWalletUtxosEntry().getChildren();
+            if(!targets.changedUtxos.isEmpty()) {
+                EventManager.get().post(new WalletUtxoStatusChangedEvent(wallet, new ArrayList<>(targets.changedUtxos)));
+            }
+        }
 
-            for(Label label : labels) {
-                if(label.origin != null && !label.origin.equals(origin)) {
-                    continue;
-                }
+        return walletForms.get(0).getWallet();
+    }
 
-                if(label.type == Type.xpub) {
-                    for(Keystore keystore : wallet.getKeystores()) {
-                        if(keystore.getExtendedPublicKey().toString().equals(label.ref)) {
-                            keystore.setLabel(label.label);
-                            List<Keystore> changedKeystores = changedWalletKeystores.computeIfAbsent(wallet, w -> new ArrayList<>());
-                            changedKeystores.add(keystore);
-                        }
-                    }
+    private static Label parseLabel(Gson gson, String line) {
+        Label label;
+        try {
+            label = gson.fromJson(line, Label.class);
+        } catch(Exception e) {
+            //Try parse Electrum history CSV, or any CSV with txid,label entries
+            try {
+                CsvReader csvReader = new CsvReader(new StringReader(line));
+                if(csvReader.readRecord() && csvReader.getColumnCount() > 1 && csvReader.get(0).length() == 64 && Utils.isHex(csvReader.get(0))) {
+                    label = new Label(Type.tx, csvReader.get(0), csvReader.get(1), null, null);
+                } else {
+                    return null;
                 }
+            } catch(Exception ex) {
+                return null;
+            }
+        }
 
-                if(label.type == Type.tx) {
-                    for(Entry entry : transactionEntries) {
-                        if(entry instanceof TransactionEntry transactionEntry) {
-                            BlockTransaction blkTx = transactionEntry.getBlockTransaction();
-                            if(blkTx.getHashAsString().equals(label.ref)) {
-                                transactionEntry.getBlockTransaction().setLabel(label.label);
-                                transactionEntry.labelProperty().set(label.label);
-                                addChangedEntry(changedWalletEntries, entry);
-                            }
-                        }
-                    }
-                }
+        if(label == null || label.type == null || label.ref == null) {
+            return null;
+        }
 
-                if(label.type == Type.addr) {
-                    for(Entry addressEntry : addressEntries) {
-                        if(addressEntry instanceof NodeEntry nodeEntry) {
-                            WalletNode addressNode = nodeEntry.getNode();
-                            if(addressNode.getAddress().toString().equals(label.ref)) {
-                                nodeEntry.getNode().setLabel(label.label);
-                                nodeEntry.labelProperty().set(label.label);
-                                addChangedEntry(changedWalletEntries, addressEntry);
-                            }
-                        }
+        if(label.type == Type.output) {
+            if((label.label == null || label.label.isEmpty()) && label.spendable == null) {
+                return null;
+            }
+        } else if(label.label == null || label.label.isEmpty()) {
+            return null;
+        }
+
+        return label;
+    }
+
+    /**
+     * The labelled objects of a single wallet, indexed by their BIP329 reference, along with the changes made to them by an import
+     */
+    private static class WalletLabelTargets {
+        private final Wallet wallet;
+        private final String origin;
+
+        private final Map<String, List<Keystore>> keystores = new HashMap<>();
+        private final Map<String, List<TransactionEntry>> transactionEntries = new HashMap<>();
+        private final Map<String, List<NodeEntry>> addressEntries = new HashMap<>();
+        //Inputs and outputs shown under transactions, keyed by type and outpoint
+        private final Map<String, List<TransactionHashIndexEntry>> transactionTxioEntries = new HashMap<>();
+        //Inputs and outputs shown under addresses and utxos, keyed by type and outpoint
+        private final Map<String, List<HashIndexEntry>> txioEntries = new HashMap<>();
+
+        private final Set<Keystore> changedKeystores = new LinkedHashSet<>();
+        private final Set<Entry> changedEntries = new LinkedHashSet<>();
+        private final Set<BlockTransactionHashIndex> changedUtxos = new LinkedHashSet<>();
+
+        public WalletLabelTargets(WalletForm walletForm) {
+            this.wallet = walletForm.getWallet();
+            this.origin = OutputDescriptor.getOutputDescriptor(wallet).toString(true, false, false);
+
+            for(Keystore keystore : wallet.getKeystores()) {
+                keystores.computeIfAbsent(keystore.getExtendedPublicKey().toString(), ref -> new ArrayList<>()).add(keystore);
+            }
+
+            for(Entry entry : walletForm.getWalletTransactionsEntry().getChildren()) {
+                if(entry instanceof TransactionEntry transactionEntry) {
+                    transactionEntries.computeIfAbsent(transactionEntry.getBlockTransaction().getHashAsString(), ref -> new ArrayList<>()).add(transactionEntry);
+                }
+                for(Entry hashIndexEntry : entry.getChildren()) {
+                    if(hashIndexEntry instanceof TransactionHashIndexEntry txioEntry) {
+                        transactionTxioEntries.computeIfAbsent(getTxioKey(txioEntry), ref -> new ArrayList<>()).add(txioEntry);
                     }
                 }
+            }
 
-                if(label.type == Type.output || label.type == Type.input) {
-                    for(Entry entry : transactionEntries) {
-                        for(Entry hashIndexEntry : entry.getChildren()) {
-                            if(hashIndexEntry instanceof TransactionHashIndexEntry txioEntry) {
-                                BlockTransactionHashIndex reference = txioEntry.getHashIndex();
-                                if((label.type == Type.output && txioEntry.getType() == HashIndexEntry.Type.OUTPUT && reference.toString().equals(label.ref))
-                                        || (label.type == Type.input && txioEntry.getType() == HashIndexEntry.Type.INPUT && reference.toString().equals(label.ref))) {
-                                    if(label.label != null && !label.label.isEmpty()) {
-                                        reference.setLabel(label.label);
-                                        txioEntry.labelProperty().set(label.label);
-                                        addChangedEntry(changedWalletEntries, txioEntry);
-                                    }
-
-                                    if(label.type == Type.output && !reference.isSpent()) {
-                                        if("false".equalsIgnoreCase(label.spendable) && reference.getStatus() != Status.FROZEN) {
-                                            reference.setStatus(Status.FROZEN);
-                                            addChangedUtxo(changedWalletUtxoStatuses, txioEntry);
-                                        } else if("true".equalsIgnoreCase(label.spendable) && reference.getStatus() == Status.FROZEN) {
-                                            reference.setStatus(null);
-                                            addChangedUtxo(changedWalletUtxoStatuses, txioEntry);
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    for(Entry addressEntry : addressEntries) {
-                        for(Entry entry : addressEntry.getChildren()) {
-                            updateHashIndexEntryLabel(label, entry);
-                            for(Entry spentEntry : entry.getChildren()) {
-                                updateHashIndexEntryLabel(label, spentEntry);
-                            }
-                        }
-                    }
-                    for(Entry entry : utxoEntries) {
-                        updateHashIndexEntryLabel(label, entry);
+            List<Entry> nodeEntries = new ArrayList<>();
+            nodeEntries.addAll(walletForm.getNodeEntry(KeyPurpose.RECEIVE).getChildren());
+            nodeEntries.addAll(walletForm.getNodeEntry(KeyPurpose.CHANGE).getChildren());
+            for(Entry addressEntry : nodeEntries) {
+                if(addressEntry instanceof NodeEntry nodeEntry) {
+                    addressEntries.computeIfAbsent(nodeEntry.getNode().getAddress().toString(), ref -> new ArrayList<>()).add(nodeEntry);
+                }
+                for(Entry entry : addressEntry.getChildren()) {
+                    addTxioEntry(entry);
+                    for(Entry spentEntry : entry.getChildren()) {
+                        addTxioEntry(spentEntry);
                     }
                 }
             }
-        }
 
-        for(Map.Entry<Wallet, List<Keystore>> walletKeystores : changedWalletKeystores.entrySet()) {
-            Wallet wallet = walletKeystores.getKey();
-            Storage storage = AppServices.get().getOpenWallets().get(wallet);
-            EventManager.get().post(new KeystoreLabelsChangedEvent(wallet, wallet, storage.getWalletId(wallet), walletKeystores.getValue()));
+            for(Entry entry : walletForm.getWalletUtxosEntry().getChildren()) {
+                addTxioEntry(entry);
+            }
         }
 
-        for(Map.Entry<Wallet, List<Entry>> walletEntries : changedWalletEntries.entrySet()) {
-            EventManager.get().post(new WalletEntryLabelsChangedEvent(walletEntries.getKey(), walletEntries.getValue(), false));
+        private void addTxioEntry(Entry entry) {
+            if(entry instanceof HashIndexEntry hashIndexEntry) {
+                txioEntries.computeIfAbsent(getTxioKey(hashIndexEntry), ref -> new ArrayList<>()).add(hashIndexEntry);
+            }
         }
 
-        for(Map.Entry<Wallet, List<BlockTransactionHashIndex>> walletUtxos : changedWalletUtxoStatuses.entrySet()) {
-            EventManager.get().post(new WalletUtxoStatusChangedEvent(walletUtxos.getKey(), walletUtxos.getValue()));
-        }
+        public void apply(Label label) {
+            if(label.origin != null && !label.origin.equals(origin)) {
+                return;
+            }
 
-        return walletForms.get(0).getWallet();
-    }
+            if(label.type == Type.xpub) {
+                for(Keystore keystore : keystores.getOrDefault(label.ref, Collections.emptyList())) {
+                    keystore.setLabel(label.label);
+                    changedKeystores.add(keystore);
+                }
+            }
+
+            if(label.type == Type.tx) {
+                for(TransactionEntry transactionEntry : transactionEntries.getOrDefault(label.ref, Collections.emptyList())) {
+                    transactionEntry.getBlockTransaction().setLabel(label.label);
+                    transactionEntry.labelProperty().set(label.label);
+                    changedEntries.add(transactionEntry);
+                }
+            }
+
+            if(label.type == Type.addr) {
+                for(NodeEntry nodeEntry : addressEntries.getOrDefault(label.ref, Collections.emptyList())) {
+                    nodeEntry.getNode().setLabel(label.label);
+                    nodeEntry.labelProperty().set(label.label);
+                    changedEntries.add(nodeEntry);
+                }
+            }
+
+            if(label.type == Type.output || label.type == Type.input) {
+                String key = getTxioKey(label.type == Type.output ? HashIndexEntry.Type.OUTPUT : HashIndexEntry.Type.INPUT, label.ref);
+                for(TransactionHashIndexEntry txioEntry : transactionTxioEntries.getOrDefault(key, Collections.emptyList())) {
+                    BlockTransactionHashIndex reference = txioEntry.getHashIndex();
+                    if(label.label != null && !label.label.isEmpty()) {
+                        reference.setLabel(label.label);
+                        txioEntry.labelProperty().set(label.label);
+                        changedEntries.add(txioEntry);
+                    }
+
+                    if(label.type == Type.output && !reference.isSpent()) {
+                        if("false".equalsIgnoreCase(label.spendable) && reference.getStatus() != Status.FROZEN) {
+                            reference.setStatus(Status.FROZEN);
+                            changedUtxos.add(reference);
+                        } else if("true".equalsIgnoreCase(label.spendable) && reference.getStatus() == Status.FROZEN) {
+                            reference.setStatus(null);
+                            changedUtxos.add(reference);
+                        }
+                    }
+                }
 
-    private static void updateHashIndexEntryLabel(Label label, Entry entry) {
-        if(entry instanceof HashIndexEntry hashIndexEntry) {
-            BlockTransactionHashIndex reference = hashIndexEntry.getHashIndex();
-            if((label.type == Type.output && hashIndexEntry.getType() == HashIndexEntry.Type.OUTPUT && reference.toString().equals(label.ref))
-                    || (label.type == Type.input && hashIndexEntry.getType() == HashIndexEntry.Type.INPUT && reference.toString().equals(label.ref))) {
                 if(label.label != null && !label.label.isEmpty()) {
-                    hashIndexEntry.labelProperty().set(label.label);
+                    for(HashIndexEntry hashIndexEntry : txioEntries.getOrDefault(key, Collections.emptyList())) {
+                        hashIndexEntry.getHashIndex().setLabel(label.label);
+                        hashIndexEntry.labelProperty().set(label.label);
+                    }
                 }
             }
         }
-    }
 
-    private static void addChangedEntry(Map<Wallet, List<Entry>> changedEntries, Entry entry) {
-        List<Entry> entries = changedEntries.computeIfAbsent(entry.getWallet(), wallet -> new ArrayList<>());
-        entries.add(entry);
-    }
+        private static String getTxioKey(HashIndexEntry hashIndexEntry) {
+            return getTxioKey(hashIndexEntry.getType(), hashIndexEntry.getHashIndex().toString());
+        }
 
-    private static void addChangedUtxo(Map<Wallet, List<BlockTransactionHashIndex>> changedUtxos, TransactionHashIndexEntry utxoEntry) {
-        List<BlockTransactionHashIndex> utxos = changedUtxos.computeIfAbsent(utxoEntry.getWallet(), w -> new ArrayList<>());
-        utxos.add(utxoEntry.getHashIndex());
+        private static String getTxioKey(HashIndexEntry.Type type, String ref) {
+            return type + " " + ref;
+        }
     }
 
     @Override
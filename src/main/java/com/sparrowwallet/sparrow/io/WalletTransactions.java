@@ -17,6 +17,7 @@ import com.sparrowwallet.sparrow.wallet.WalletForm;
 import com.sparrowwallet.sparrow.wallet.WalletTransactionsEntry;
 import org.apache.commons.lang3.time.DateUtils;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
@@ -30,13 +31,26 @@ public class WalletTransactions implements WalletExport {
     public static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
     private final WalletForm walletForm;
+    private final File destination;
+    private final boolean incremental;
 
     static {
         DATE_FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
     }
 
     public WalletTransactions(WalletForm walletForm) {
+        this(walletForm, null, false);
+    }
+
+    /**
+     * @param destination if not null, a checkpoint of the exported transactions is recorded for this destination
+     * @param incremental if true and a checkpoint exists for the destination, only the changes since the checkpoint are exported.
+     *                    These should be written to a separate file, such as {@link ExportCheckpoint#getChangesFile(File, Date)}, so that the full export is kept
+     */
+    public WalletTransactions(WalletForm walletForm, File destination, boolean incremental) {
         this.walletForm = walletForm;
+        this.destination = destination;
+        this.incremental = incremental;
     }
 
     @Override
@@ -52,6 +66,10 @@ public class WalletTransactions implements WalletExport {
     @Override
     public void exportWallet(Wallet wallet, OutputStream outputStream, String password) throws ExportException {
         WalletTransactionsEntry walletTransactionsEntry = walletForm.getWalletTransactionsEntry();
+        List<TransactionEntry> txEntries = walletTransactionsEntry.getChildren().stream().map(entry -> (TransactionEntry)entry).collect(Collectors.toList());
+
+        ExportCheckpoint checkpoint = (incremental && destination != null ? ExportCheckpoint.load(walletForm.getWalletId(), destination) : null);
+        List<ExportRow> rows = checkpoint == null ? txEntries.stream().map(txEntry -> new ExportRow(txEntry, null)).collect(Collectors.toList()) : getChangedRows(txEntries, checkpoint);
 
         ExchangeSource exchangeSource = Config.get().getExchangeSource();
         if(Config.get().getExchangeSource() == null) {
@@ -60,12 +78,16 @@ public class WalletTransactions implements WalletExport {
 
         Currency fiatCurrency = (exchangeSource == ExchangeSource.NONE || !AppServices.onlineProperty().get() ? null : Config.get().getFiatCurrency());
         Map<Date, Double> fiatRates = new HashMap<>();
-        if(fiatCurrency != null && !walletTransactionsEntry.getChildren().isEmpty()) {
-            LongSummaryStatistics stats = walletTransactionsEntry.getChildren().stream()
-                    .map(entry -> ((TransactionEntry)entry).getBlockTransaction().getDate())
+        if(fiatCurrency != null) {
+            //Only fetch rates for the period covered by the exported rows
+            LongSummaryStatistics stats = rows.stream()
+                    .filter(row -> row.txEntry() != null)
+                    .map(row -> row.txEntry().getBlockTransaction().getDate())
                     .filter(Objects::nonNull)
                     .collect(Collectors.summarizingLong(Date::getTime));
-            fiatRates = exchangeSource.getHistoricalExchangeRates(fiatCurrency, new Date(stats.getMin() - ONE_DAY), new Date(stats.getMax()));
+            if(stats.getCount() > 0) {
+                fiatRates = exchangeSource.getHistoricalExchangeRates(fiatCurrency, new Date(stats.getMin() - ONE_DAY), new Date(stats.getMax()));
+            }
         }
 
         BitcoinUnit bitcoinUnit = Config.get().getBitcoinUnit();
@@ -87,8 +109,12 @@ public class WalletTransactions implements WalletExport {
             writer.write("Txid");
             writer.endRecord();
 
-            for(Entry entry : walletTransactionsEntry.getChildren()) {
-                TransactionEntry txEntry = (TransactionEntry)entry;
+            for(ExportRow row : rows) {
+                TransactionEntry txEntry = row.txEntry();
+                if(txEntry == null) {
+                    continue;
+                }
+
                 writer.write(txEntry.getBlockTransaction().getDate() == null ? "Unconfirmed" : DATE_FORMAT.format(txEntry.getBlockTransaction().getDate()));
                 writer.write(txEntry.getLabel());
                 writer.write(getCoinValue(bitcoinUnit, txEntry.getValue()));
@@ -108,10 +134,84 @@ public class WalletTransactions implements WalletExport {
                 writer.writeComment(" Historical " + fiatCurrency.getCurrencyCode() + " values are taken from daily rates and should only be considered as approximate.");
             }
 
+            if(checkpoint != null) {
+                writer.writeComment(" Changes since the export on " + DATE_FORMAT.format(checkpoint.getDate()) + " UTC.");
+                //Previously exported transactions no longer in the wallet, for example because they were replaced, are listed as comments so that the columns match a full export
+                for(ExportRow row : rows) {
+                    if(row.txEntry() == null) {
+                        writer.writeComment(" " + row.change() + " " + row.txid());
+                    }
+                }
+            }
+
             writer.close();
         } catch(IOException e) {
             throw new ExportException("Error writing transactions CSV", e);
         }
+
+        if(destination != null) {
+            saveCheckpoint(wallet, getTxHeights(txEntries));
+        }
+    }
+
+    private List<ExportRow> getChangedRows(List<TransactionEntry> txEntries, ExportCheckpoint checkpoint) {
+        Map<String, TransactionEntry> txidEntries = new HashMap<>();
+        for(TransactionEntry txEntry : txEntries) {
+            txidEntries.put(txEntry.getBlockTransaction().getHashAsString(), txEntry);
+        }
+
+        List<ExportRow> rows = new ArrayList<>();
+        for(Map.Entry<String, Change> change : getChanges(getTxHeights(txEntries), checkpoint.getTxHeights()).entrySet()) {
+            TransactionEntry txEntry = txidEntries.get(change.getKey());
+            rows.add(txEntry == null ? new ExportRow(change.getKey(), change.getValue()) : new ExportRow(txEntry, change.getValue()));
+        }
+
+        return rows;
+    }
+
+    /**
+     * @param txHeights the height of each current transaction by txid, zero or less if unconfirmed
+     * @param checkpointHeights the height of each transaction by txid at the checkpoint
+     * @return the transactions which are new, newly confirmed or at a different height since the checkpoint in their current order, followed by those no longer present
+     */
+    static Map<String, Change> getChanges(Map<String, Integer> txHeights, Map<String, Integer> checkpointHeights) {
+        Map<String, Change> changes = new LinkedHashMap<>();
+        for(Map.Entry<String, Integer> txHeight : txHeights.entrySet()) {
+            Integer previousHeight = checkpointHeights.get(txHeight.getKey());
+            int height = txHeight.getValue();
+            if(previousHeight == null) {
+                changes.put(txHeight.getKey(), Change.NEW);
+            } else if(previousHeight <= 0 && height > 0) {
+                changes.put(txHeight.getKey(), Change.CONFIRMED);
+            } else if(previousHeight > 0 && height != previousHeight) {
+                changes.put(txHeight.getKey(), Change.REORGED);
+            }
+        }
+
+        for(String txid : checkpointHeights.keySet()) {
+            if(!txHeights.containsKey(txid)) {
+                changes.put(txid, Change.REMOVED);
+            }
+        }
+
+        return changes;
+    }
+
+    private static Map<String, Integer> getTxHeights(List<TransactionEntry> txEntries) {
+        Map<String, Integer> txHeights = new LinkedHashMap<>();
+        for(TransactionEntry txEntry : txEntries) {
+            txHeights.put(txEntry.getBlockTransaction().getHashAsString(), txEntry.getBlockTransaction().getHeight());
+        }
+
+        return txHeights;
+    }
+
+    private void saveCheckpoint(Wallet wallet, Map<String, Integer> txHeights) throws ExportException {
+        try {
+            new ExportCheckpoint(wallet.getStoredBlockHeight(), txHeights).save(walletForm.getWalletId(), destination);
+        } catch(IOException e) {
+            throw new ExportException("The transactions were exported, but the checkpoint for future incremental exports could not be saved", e);
+        }
     }
 
     private Long getFee(Wallet wallet, BlockTransaction blockTransaction) {
@@ -182,4 +282,29 @@ public class WalletTransactions implements WalletExport {
     public boolean walletExportRequiresDecryption() {
         return false;
     }
+
+    enum Change {
+        NEW("New"), CONFIRMED("Confirmed"), REORGED("Reorged"), REMOVED("Removed");
+
+        private final String name;
+
+        Change(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private record ExportRow(TransactionEntry txEntry, String txid, Change change) {
+        public ExportRow(TransactionEntry txEntry, Change change) {
+            this(txEntry, txEntry.getBlockTransaction().getHashAsString(), change);
+        }
+
+        public ExportRow(String txid, Change change) {
+            this(null, txid, change);
+        }
+    }
 }
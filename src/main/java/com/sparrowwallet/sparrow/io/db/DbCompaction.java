@@ -0,0 +1,51 @@
+package com.sparrowwallet.sparrow.io.db;
+
+import java.sql.*;
+
+/**
+ * Decides when a wallet database file has accumulated enough unused space to be worth compacting, and compacts it.
+ * H2 only shrinks the file when the database is closed, so compaction closes the database with SHUTDOWN COMPACT, which writes the live data
+ * to a temporary file and atomically replaces the original. An interrupted compaction leaves the original file intact.
+ */
+class DbCompaction {
+    static final int MIN_FILL_RATE = 50;
+    static final long MIN_FILE_SIZE = 1024 * 1024;
+    static final long MAX_UNUSED_BYTES = 16 * 1024 * 1024;
+
+    static FileStats getFileStats(Connection connection) throws SQLException {
+        long fileSize = -1;
+        int fillRate = -1;
+        try(Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery("select SETTING_NAME, SETTING_VALUE from INFORMATION_SCHEMA.SETTINGS where SETTING_NAME in ('info.FILE_SIZE', 'info.CHUNKS_FILL_RATE')")) {
+            while(resultSet.next()) {
+                if(resultSet.getString(1).equals("info.FILE_SIZE")) {
+                    fileSize = Long.parseLong(resultSet.getString(2));
+                } else {
+                    fillRate = Integer.parseInt(resultSet.getString(2));
+                }
+            }
+        }
+
+        if(fileSize < 0 || fillRate < 0) {
+            throw new SQLException("Database file statistics are not available");
+        }
+
+        return new FileStats(fileSize, fillRate);
+    }
+
+    static void compact(String url, String user, String password) throws SQLException {
+        try(Connection connection = DriverManager.getConnection(url, user, password); Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN COMPACT");
+        }
+    }
+
+    record FileStats(long fileSize, int fillRate) {
+        public long getUnusedBytes() {
+            return fileSize * (100 - fillRate) / 100;
+        }
+
+        public boolean isCompactionRequired() {
+            return fileSize >= MIN_FILE_SIZE && (fillRate < MIN_FILL_RATE || getUnusedBytes() > MAX_UNUSED_BYTES);
+        }
+    }
+}
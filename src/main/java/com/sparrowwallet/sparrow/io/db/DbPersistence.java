@@ -15,6 +15,7 @@ import com.sparrowwallet.sparrow.wallet.*;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import com.zaxxer.hikari.pool.HikariPool;
+import javafx.application.Platform;
 import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.flywaydb.core.Flyway;
 import org.flywaydb.core.api.FlywayException;
@@ -33,10 +34,16 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.security.SecureRandom;
+import java.sql.Connection;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -53,6 +60,12 @@ public class DbPersistence implements Persistence {
     private static final String H2_USER = "sa";
     private static final String H2_PASSWORD = "";
     public static final String MIGRATION_RESOURCES_DIR = "com/sparrowwallet/sparrow/sql/";
+    private static final int CHILD_WALLET_LOAD_THREADS = 4;
+    private static final long COMPACTION_CHECK_MINUTES = 10;
+    private static final long COMPACTION_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private static String latestMigrationVersion;
+    private static ScheduledExecutorService compactionScheduler;
 
     private HikariDataSource dataSource;
     private AsymmetricKeyDeriver keyDeriver;
@@ -60,6 +73,11 @@ public class DbPersistence implements Persistence {
     private Wallet masterWallet;
     private final Map<Wallet, DirtyPersistables> dirtyPersistablesMap = new HashMap<>();
     private ExecutorService updateExecutor;
+    private ScheduledFuture<?> compactionCheck;
+    private final ReentrantLock dataSourceLock = new ReentrantLock();
+    private volatile long lastUpdateTime = System.currentTimeMillis();
+    private volatile boolean compacting;
+    private volatile boolean closing;
 
     public DbPersistence() {
         EventManager.get().register(this);
@@ -79,7 +97,7 @@ public class DbPersistence implements Persistence {
     public WalletAndKey loadWallet(Storage storage, CharSequence password, ECKey alreadyDerivedKey) throws IOException, StorageException {
         ECKey encryptionKey = getEncryptionKey(password, storage.getWalletFile(), alreadyDerivedKey);
 
-        migrate(storage, MASTER_SCHEMA, encryptionKey);
+        migrate(storage, List.of(MASTER_SCHEMA), encryptionKey);
 
         Jdbi jdbi = getJdbi(storage, getFilePassword(encryptionKey));
         masterWallet = jdbi.withHandle(handle -> {
@@ -106,19 +124,42 @@ public class DbPersistence implements Persistence {
         });
 
         List<String> childSchemas = schemas.stream().filter(schema -> schema.startsWith(WALLET_SCHEMA_PREFIX) && !schema.equals(MASTER_SCHEMA)).collect(Collectors.toList());
+        migrate(storage, childSchemas, encryptionKey);
+
         Map<WalletAndKey, Storage> childWallets = new TreeMap<>();
-        for(String schema : childSchemas) {
-            migrate(storage, schema, encryptionKey);
-
-            Jdbi childJdbi = getJdbi(storage, getFilePassword(encryptionKey));
-            Wallet wallet = childJdbi.withHandle(handle -> {
-                WalletDao walletDao = handle.attach(WalletDao.class);
-                Wallet childWallet = walletDao.getMainWallet(schema, null);
-                childWallet.setName(schema.substring(WALLET_SCHEMA_PREFIX.length()));
+        if(childSchemas.isEmpty()) {
+            return childWallets;
+        }
+
+        //Each child wallet is loaded on its own pooled connection, which has its schema set for the duration of the load
+        Jdbi childJdbi = getJdbi(storage, getFilePassword(encryptionKey));
+        BasicThreadFactory factory = new BasicThreadFactory.Builder().namingPattern(masterWallet.getFullName() + "-childloader-%d").daemon(true).build();
+        ExecutorService childLoadExecutor = Executors.newFixedThreadPool(Math.min(CHILD_WALLET_LOAD_THREADS, childSchemas.size()), factory);
+        try {
+            List<Future<Wallet>> futures = new ArrayList<>(childSchemas.size());
+            for(String schema : childSchemas) {
+                futures.add(childLoadExecutor.submit(() -> childJdbi.withHandle(handle -> {
+                    WalletDao walletDao = handle.attach(WalletDao.class);
+                    return walletDao.getMainWallet(schema, null);
+                })));
+            }
+
+            for(int i = 0; i < childSchemas.size(); i++) {
+                Wallet childWallet = futures.get(i).get();
+                childWallet.setName(childSchemas.get(i).substring(WALLET_SCHEMA_PREFIX.length()));
                 childWallet.setMasterWallet(masterWallet);
-                return childWallet;
-            });
-            childWallets.put(new WalletAndKey(wallet, encryptionKey, keyDeriver, Collections.emptyMap()), storage);
+                childWallets.put(new WalletAndKey(childWallet, encryptionKey, keyDeriver, Collections.emptyMap()), storage);
+            }
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new StorageException("Failed to load child wallets.\n" + e.getCause().getMessage(), e.getCause());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while loading child wallets", e);
+        } finally {
+            childLoadExecutor.shutdownNow();
         }
 
         return childWallets;
@@ -129,8 +170,14 @@ public class DbPersistence implements Persistence {
         File walletFile = storage.getWalletFile();
         walletFile = renameToDbFile(walletFile);
 
-        updatePassword(storage, null);
-        cleanAndAddWallet(storage, wallet, null);
+        dataSourceLock.lock();
+        try {
+            updatePassword(storage, null);
+            cleanAndAddWallet(storage, wallet, null);
+        } finally {
+            lastUpdateTime = System.currentTimeMillis();
+            dataSourceLock.unlock();
+        }
 
         return walletFile;
     }
@@ -141,10 +188,16 @@ public class DbPersistence implements Persistence {
         walletFile = renameToDbFile(walletFile);
 
         boolean existing = walletFile.exists();
-        updatePassword(storage, encryptionPubKey);
-        cleanAndAddWallet(storage, wallet, getFilePassword(encryptionPubKey));
-        if(!existing) {
-            writeBinaryHeader(walletFile);
+        dataSourceLock.lock();
+        try {
+            updatePassword(storage, encryptionPubKey);
+            cleanAndAddWallet(storage, wallet, getFilePassword(encryptionPubKey));
+            if(!existing) {
+                writeBinaryHeader(walletFile);
+            }
+        } finally {
+            lastUpdateTime = System.currentTimeMillis();
+            dataSourceLock.unlock();
         }
 
         return walletFile;
@@ -157,13 +210,22 @@ public class DbPersistence implements Persistence {
 
     @Override
     public void updateWallet(Storage storage, Wallet wallet, ECKey encryptionPubKey) throws StorageException {
-        updatePassword(storage, encryptionPubKey);
+        dataSourceLock.lock();
+        try {
+            updatePassword(storage, encryptionPubKey);
+        } finally {
+            dataSourceLock.unlock();
+        }
 
         updateExecutor.execute(() -> {
+            dataSourceLock.lock();
             try {
                 update(storage, wallet, getFilePassword(encryptionPubKey));
             } catch(Exception e) {
                 log.error("Error updating wallet db", e);
+            } finally {
+                lastUpdateTime = System.currentTimeMillis();
+                dataSourceLock.unlock();
             }
         });
     }
@@ -172,6 +234,70 @@ public class DbPersistence implements Persistence {
         if(updateExecutor == null) {
             BasicThreadFactory factory = new BasicThreadFactory.Builder().namingPattern(masterWallet.getFullName() + "-dbupdater").daemon(true).priority(Thread.NORM_PRIORITY).build();
             updateExecutor = Executors.newSingleThreadExecutor(factory);
+
+            compactionCheck = getCompactionScheduler().scheduleWithFixedDelay(() -> compactIfIdle(masterWallet),
+                    COMPACTION_CHECK_MINUTES, COMPACTION_CHECK_MINUTES, TimeUnit.MINUTES);
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getCompactionScheduler() {
+        if(compactionScheduler == null) {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder().namingPattern("DbCompactionScheduler").daemon(true).priority(Thread.MIN_PRIORITY).build();
+            compactionScheduler = Executors.newSingleThreadScheduledExecutor(factory);
+        }
+
+        return compactionScheduler;
+    }
+
+    private void compactIfIdle(Wallet masterWallet) {
+        if(closing || System.currentTimeMillis() - lastUpdateTime < COMPACTION_IDLE_MILLIS) {
+            return;
+        }
+
+        //Every user of the datasource holds the lock, so a write in progress means the wallet is not idle
+        if(!dataSourceLock.tryLock()) {
+            return;
+        }
+
+        try {
+            if(closing || dataSource == null || dataSource.isClosed()) {
+                return;
+            }
+
+            DbCompaction.FileStats fileStats;
+            try(Connection connection = dataSource.getConnection()) {
+                fileStats = DbCompaction.getFileStats(connection);
+            }
+
+            if(!fileStats.isCompactionRequired()) {
+                return;
+            }
+
+            String walletName = masterWallet.getFullName();
+            long unusedMb = fileStats.getUnusedBytes() / (1024 * 1024);
+            Platform.runLater(() -> EventManager.get().post(new TimedEvent(TimedEvent.Action.START, "Compacting " + walletName + " wallet file...", -1)));
+            long start = System.currentTimeMillis();
+
+            //The datasource is recreated with the same password on the next update
+            String url = dataSource.getJdbcUrl();
+            String password = dataSource.getPassword();
+            dataSource.close();
+            compacting = true;
+            try {
+                DbCompaction.compact(url, H2_USER, password);
+            } finally {
+                compacting = false;
+                lastUpdateTime = System.currentTimeMillis();
+                Platform.runLater(() -> EventManager.get().post(new TimedEvent(TimedEvent.Action.END, "Done")));
+            }
+
+            long elapsed = System.currentTimeMillis() - start;
+            log.info("Compacted " + walletName + " wallet file, reclaiming approximately " + unusedMb + "MB in " + elapsed + "ms");
+            Platform.runLater(() -> EventManager.get().post(new StatusEvent("Compacted " + walletName + " wallet file, reclaiming approximately " + unusedMb + "MB")));
+        } catch(Exception e) {
+            log.error("Error compacting wallet db", e);
+        } finally {
+            dataSourceLock.unlock();
         }
     }
 
@@ -232,18 +358,7 @@ public class DbPersistence implements Persistence {
                     BlockTransactionDao blockTransactionDao = handle.attach(BlockTransactionDao.class);
                     Set<Sha256Hash> referencedTxIds = new HashSet<>();
                     for(WalletNode addressNode : dirtyPersistables.historyNodes) {
-                        if(addressNode.getId() == null) {
-                            WalletNode purposeNode = wallet.getNode(addressNode.getKeyPurpose());
-                            if(purposeNode.getId() == null) {
-                                long purposeNodeId = walletNodeDao.insertWalletNode(purposeNode.getDerivationPath(), purposeNode.getLabel(), wallet.getId(), null, null);
-                                purposeNode.setId(purposeNodeId);
-                            }
-
-                            long nodeId = walletNodeDao.insertWalletNode(addressNode.getDerivationPath(), addressNode.getLabel(), wallet.getId(), purposeNode.getId(), addressNode.getAddressData());
-                            addressNode.setId(nodeId);
-                        } else if(addressNode.getAddress() != null) {
-                            walletNodeDao.updateNodeAddressData(addressNode.getId(), addressNode.getAddressData());
-                        }
+                        addOrUpdateAddressNode(walletNodeDao, wallet, addressNode);
 
                         List<BlockTransactionHashIndex> txos = addressNode.getTransactionOutputs().stream().flatMap(txo -> txo.isSpent() ? Stream.of(txo, txo.getSpentBy()) : Stream.of(txo)).collect(Collectors.toList());
                         List<Long> existingIds = txos.stream().map(Persistable::getId).filter(Objects::nonNull).collect(Collectors.toList());
@@ -267,6 +382,17 @@ public class DbPersistence implements Persistence {
                     }
                 }
 
+                if(!dirtyPersistables.addressNodes.isEmpty()) {
+                    WalletNodeDao walletNodeDao = handle.attach(WalletNodeDao.class);
+                    for(WalletNode addressNode : dirtyPersistables.addressNodes) {
+                        if(addressNode.getAddressData() == null) {
+                            continue;
+                        }
+
+                        addOrUpdateAddressNode(walletNodeDao, wallet, addressNode);
+                    }
+                }
+
                 if(dirtyPersistables.label != null) {
                     walletDao.updateLabel(wallet.getId(), dirtyPersistables.label.length() > 255 ? dirtyPersistables.label.substring(0, 255) : dirtyPersistables.label);
                 }
@@ -291,18 +417,7 @@ public class DbPersistence implements Persistence {
                             blockTransactionDao.updateLabel(((TransactionEntry)entry).getBlockTransaction().getId(), blockTransactionDao.truncate(entry.getLabel()));
                         } else if(entry instanceof NodeEntry) {
                             WalletNode addressNode = ((NodeEntry)entry).getNode();
-                            if(addressNode.getId() == null) {
-                                WalletNode purposeNode = wallet.getNode(addressNode.getKeyPurpose());
-                                if(purposeNode.getId() == null) {
-                                    long purposeNodeId = walletNodeDao.insertWalletNode(purposeNode.getDerivationPath(), purposeNode.getLabel(), wallet.getId(), null, null);
-                                    purposeNode.setId(purposeNodeId);
-                                }
-
-                                long nodeId = walletNodeDao.insertWalletNode(addressNode.getDerivationPath(), addressNode.getLabel(), wallet.getId(), purposeNode.getId(), addressNode.getAddressData());
-                                addressNode.setId(nodeId);
-                            } else if(addressNode.getAddress() != null) {
-                                walletNodeDao.updateNodeAddressData(addressNode.getId(), addressNode.getAddressData());
-                            }
+                            addOrUpdateAddressNode(walletNodeDao, wallet, addressNode);
 
                             walletNodeDao.updateNodeLabel(addressNode.getId(), walletNodeDao.truncate(entry.getLabel()));
                         } else if(entry instanceof HashIndexEntry && ((HashIndexEntry)entry).getHashIndex().getId() != null) {
@@ -362,6 +477,24 @@ public class DbPersistence implements Persistence {
         });
     }
 
+    /**
+     * Inserts the address node, and its purpose node if necessary, or updates the stored address of an existing node
+     */
+    private void addOrUpdateAddressNode(WalletNodeDao walletNodeDao, Wallet wallet, WalletNode addressNode) {
+        if(addressNode.getId() == null) {
+            WalletNode purposeNode = wallet.getNode(addressNode.getKeyPurpose());
+            if(purposeNode.getId() == null) {
+                long purposeNodeId = walletNodeDao.insertWalletNode(purposeNode.getDerivationPath(), purposeNode.getLabel(), wallet.getId(), null, null);
+                purposeNode.setId(purposeNodeId);
+            }
+
+            long nodeId = walletNodeDao.insertWalletNode(addressNode.getDerivationPath(), addressNode.getLabel(), wallet.getId(), purposeNode.getId(), addressNode.getAddressData());
+            addressNode.setId(nodeId);
+        } else if(addressNode.getAddress() != null) {
+            walletNodeDao.updateNodeAddressData(addressNode.getId(), addressNode.getAddressData());
+        }
+    }
+
     private void cleanAndAddWallet(Storage storage, Wallet wallet, String password) throws StorageException {
         String schema = getSchema(wallet);
         cleanAndMigrate(storage, schema, password);
@@ -378,11 +511,22 @@ public class DbPersistence implements Persistence {
         }
     }
 
-    private void migrate(Storage storage, String schema, ECKey encryptionKey) throws StorageException {
+    private void migrate(Storage storage, List<String> schemas, ECKey encryptionKey) throws StorageException {
+        String password = getFilePassword(encryptionKey);
+        long start = System.currentTimeMillis();
+        Set<String> currentSchemas = getCurrentSchemas(storage, schemas, password);
+        List<String> pendingSchemas = schemas.stream().filter(schema -> !currentSchemas.contains(schema)).collect(Collectors.toList());
+        log.debug("Checked schema history of " + schemas.size() + " schemas in " + (System.currentTimeMillis() - start) + "ms, " + pendingSchemas.size() + " pending migration");
+        if(pendingSchemas.isEmpty()) {
+            return;
+        }
+
         File migrationDir = getMigrationDir();
         try {
-            Flyway flyway = getFlyway(storage, schema, getFilePassword(encryptionKey), migrationDir);
-            flyway.migrate();
+            for(String schema : pendingSchemas) {
+                Flyway flyway = getFlyway(storage, schema, password, migrationDir);
+                flyway.migrate();
+            }
         } catch(FlywayValidateException e) {
             log.error("Failed to open wallet file. Validation error during schema migration.", e);
             throw new StorageException("Failed to open wallet file. Validation error during schema migration.", e);
@@ -394,6 +538,28 @@ public class DbPersistence implements Persistence {
         }
     }
 
+    private Set<String> getCurrentSchemas(Storage storage, List<String> schemas, String password) throws StorageException {
+        String latestVersion = getLatestMigrationVersion();
+        if(latestVersion == null || schemas.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Jdbi jdbi = getJdbi(storage, password);
+        return jdbi.withHandle(handle -> SchemaHistory.getCurrentSchemas(handle, schemas, latestVersion));
+    }
+
+    private static synchronized String getLatestMigrationVersion() {
+        if(latestMigrationVersion == null) {
+            try {
+                latestMigrationVersion = SchemaHistory.getLatestVersion(IOUtils.getResourceListing(DbPersistence.class, MIGRATION_RESOURCES_DIR));
+            } catch(Exception e) {
+                log.warn("Could not list migration resources", e);
+            }
+        }
+
+        return latestMigrationVersion;
+    }
+
     private void cleanAndMigrate(Storage storage, String schema, String password) throws StorageException {
         File migrationDir = getMigrationDir();
         try {
@@ -577,11 +743,16 @@ public class DbPersistence implements Persistence {
 
     @Override
     public void copyWallet(File walletFile, OutputStream outputStream) throws IOException {
-        if(dataSource != null && !dataSource.isClosed()) {
-            dataSource.close();
-        }
+        dataSourceLock.lock();
+        try {
+            if(dataSource != null && !dataSource.isClosed()) {
+                dataSource.close();
+            }
 
-        com.google.common.io.Files.copy(walletFile, outputStream);
+            com.google.common.io.Files.copy(walletFile, outputStream);
+        } finally {
+            dataSourceLock.unlock();
+        }
     }
 
     @Override
@@ -592,6 +763,10 @@ public class DbPersistence implements Persistence {
     @Override
     public void close() {
         EventManager.get().unregister(this);
+        closing = true;
+        if(compactionCheck != null) {
+            compactionCheck.cancel(false);
+        }
         if(updateExecutor != null) {
             updateExecutor.shutdown();
             try {
@@ -610,8 +785,24 @@ public class DbPersistence implements Persistence {
     }
 
     private void closeDataSource() {
-        if(dataSource != null && !dataSource.isClosed()) {
-            dataSource.close();
+        //A running compaction has already closed the datasource and cannot be aborted, but it only replaces the wallet file once complete
+        try {
+            while(!dataSourceLock.tryLock(100, TimeUnit.MILLISECONDS)) {
+                if(compacting) {
+                    return;
+                }
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            if(dataSource != null && !dataSource.isClosed()) {
+                dataSource.close();
+            }
+        } finally {
+            dataSourceLock.unlock();
         }
     }
 
@@ -683,7 +874,7 @@ public class DbPersistence implements Persistence {
     }
 
     private String getUrl(File walletFile, String password) {
-        return "jdbc:h2:" + walletFile.getAbsolutePath().replace("." + getType().getExtension(), "") + ";INIT=SET TRACE_LEVEL_FILE=4;TRACE_LEVEL_FILE=4;DEFRAG_ALWAYS=true;MAX_COMPACT_TIME=5000;DATABASE_TO_UPPER=false" + (password == null ? "" : ";CIPHER=AES");
+        return "jdbc:h2:" + walletFile.getAbsolutePath().replace("." + getType().getExtension(), "") + ";INIT=SET TRACE_LEVEL_FILE=4;TRACE_LEVEL_FILE=4;MAX_COMPACT_TIME=0;DATABASE_TO_UPPER=false" + (password == null ? "" : ";CIPHER=AES");
     }
 
     private boolean persistsFor(Wallet wallet) {
@@ -719,6 +910,13 @@ public class DbPersistence implements Persistence {
         }
     }
 
+    @Subscribe
+    public void walletAddressesDerived(WalletAddressesDerivedEvent event) {
+        if(persistsFor(event.getWallet())) {
+            updateExecutor.execute(() -> dirtyPersistablesMap.computeIfAbsent(event.getWallet(), key -> new DirtyPersistables()).addressNodes.addAll(event.getDerivedNodes()));
+        }
+    }
+
     @Subscribe
     public void walletLabelChanged(WalletLabelChangedEvent event) {
         if(persistsFor(event.getWallet())) {
@@ -803,6 +1001,7 @@ public class DbPersistence implements Persistence {
         public boolean deleteAccount;
         public boolean clearHistory;
         public final List<WalletNode> historyNodes = new ArrayList<>();
+        public final List<WalletNode> addressNodes = new ArrayList<>();
         public String label;
         public Integer blockHeight = null;
         public Integer gapLimit = null;
@@ -821,6 +1020,7 @@ public class DbPersistence implements Persistence {
                     "\nDelete account:" + deleteAccount +
                     "\nClear history:" + clearHistory +
                     "\nNodes:" + historyNodes +
+                    "\nDerived addresses:" + addressNodes.size() +
                     "\nLabel:" + label +
                     "\nBlockHeight:" + blockHeight +
                     "\nGap limit:" + gapLimit +
@@ -0,0 +1,76 @@
+package com.sparrowwallet.sparrow.io.db;
+
+import org.jdbi.v3.core.Handle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the Flyway schema history table directly, so that schemas which are already at the latest migration version can skip Flyway entirely.
+ * Configuring Flyway and running a migrate that applies nothing costs far more than this single query, which matters for wallets with many child schemas.
+ */
+class SchemaHistory {
+    private static final Logger log = LoggerFactory.getLogger(SchemaHistory.class);
+
+    static final String HISTORY_TABLE = "flyway_schema_history";
+    private static final Pattern MIGRATION_PATTERN = Pattern.compile("V([0-9]+(?:[._][0-9]+)*)__.+\\.sql");
+
+    /**
+     * Returns the latest version of the provided migration file names, as recorded by Flyway, or null if there are none
+     */
+    static String getLatestVersion(String[] migrationFiles) {
+        String latestVersion = null;
+        for(String migrationFile : migrationFiles) {
+            Matcher matcher = MIGRATION_PATTERN.matcher(migrationFile);
+            if(matcher.matches()) {
+                String version = matcher.group(1).replace('_', '.');
+                if(latestVersion == null || compareVersions(version, latestVersion) > 0) {
+                    latestVersion = version;
+                }
+            }
+        }
+
+        return latestVersion;
+    }
+
+    /**
+     * Returns those of the provided schemas where the most recently installed migration succeeded and is the latest version
+     */
+    static Set<String> getCurrentSchemas(Handle handle, Collection<String> schemas, String latestVersion) {
+        Set<String> currentSchemas = new HashSet<>();
+        if(latestVersion == null) {
+            return currentSchemas;
+        }
+
+        for(String schema : schemas) {
+            try {
+                Optional<Map<String, Object>> lastMigration = handle.createQuery("select \"version\", \"success\" from \"" + schema + "\".\"" + HISTORY_TABLE + "\" order by \"installed_rank\" desc limit 1")
+                        .mapToMap().findFirst();
+                if(lastMigration.isPresent() && Boolean.TRUE.equals(lastMigration.get().get("success")) && latestVersion.equals(lastMigration.get().get("version"))) {
+                    currentSchemas.add(schema);
+                }
+            } catch(Exception e) {
+                log.debug("Could not read schema history for " + schema, e);
+            }
+        }
+
+        return currentSchemas;
+    }
+
+    static int compareVersions(String version1, String version2) {
+        String[] parts1 = version1.split("\\.");
+        String[] parts2 = version2.split("\\.");
+        for(int i = 0; i < Math.max(parts1.length, parts2.length); i++) {
+            long part1 = i < parts1.length ? Long.parseLong(parts1[i]) : 0;
+            long part2 = i < parts2.length ? Long.parseLong(parts2[i]) : 0;
+            if(part1 != part2) {
+                return Long.compare(part1, part2);
+            }
+        }
+
+        return 0;
+    }
+}
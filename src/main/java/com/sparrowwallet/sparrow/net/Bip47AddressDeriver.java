@@ -0,0 +1,77 @@
+package com.sparrowwallet.sparrow.net;
+
+import com.sparrowwallet.drongo.KeyPurpose;
+import com.sparrowwallet.drongo.wallet.Wallet;
+import com.sparrowwallet.drongo.wallet.WalletNode;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Derives the addresses of BIP47 child wallets up to their lookahead index concurrently before their history is fetched.
+ * Every BIP47 address requires an ECDH computation, and deriving them one at a time when first needed dominates the time taken to
+ * open a wallet with many PayNym contacts. Derived addresses are persisted with the wallet nodes, so each is only derived once.
+ */
+public class Bip47AddressDeriver {
+    private static final Logger log = LoggerFactory.getLogger(Bip47AddressDeriver.class);
+
+    private static final int DERIVATION_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Fills the purpose nodes of a BIP47 wallet to the lookahead index, and returns the address nodes that have no address derived or loaded yet
+     */
+    public static List<WalletNode> getUnderivedNodes(Wallet wallet) {
+        List<WalletNode> underivedNodes = new ArrayList<>();
+        for(KeyPurpose keyPurpose : KeyPurpose.DEFAULT_PURPOSES) {
+            WalletNode purposeNode = wallet.getNode(keyPurpose);
+            purposeNode.fillToIndex(wallet, wallet.getLookAheadIndex(purposeNode));
+            purposeNode.getChildren().stream().filter(node -> node.getAddressData() == null).forEach(underivedNodes::add);
+        }
+
+        return underivedNodes;
+    }
+
+    /**
+     * Derives the addresses of the provided nodes, with the nodes of each wallet derived in order on a single thread
+     */
+    public static void deriveAddresses(Map<Wallet, List<WalletNode>> walletNodes) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        deriveConcurrently(walletNodes.values(), WalletNode::getAddress, DERIVATION_THREADS);
+        if(log.isDebugEnabled()) {
+            log.debug("Derived " + walletNodes.values().stream().mapToInt(List::size).sum() + " BIP47 addresses for " + walletNodes.size() + " wallets in " + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    static <T> void deriveConcurrently(Collection<List<T>> batches, Consumer<T> derivation, int threads) throws InterruptedException {
+        if(batches.isEmpty()) {
+            return;
+        }
+
+        BasicThreadFactory factory = new BasicThreadFactory.Builder().namingPattern("Bip47Derivation-%d").daemon(true).build();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, batches.size()), factory);
+        try {
+            List<Future<?>> futures = new ArrayList<>(batches.size());
+            for(List<T> batch : batches) {
+                futures.add(executor.submit(() -> batch.forEach(derivation)));
+            }
+
+            for(Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch(ExecutionException e) {
+                    //Leave the remaining addresses of an invalid payment code to be derived, and fail, when first used
+                    log.warn("Error deriving BIP47 addresses", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
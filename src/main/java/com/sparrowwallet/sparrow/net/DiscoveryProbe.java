@@ -0,0 +1,96 @@
+package com.sparrowwallet.sparrow.net;
+
+import java.util.*;
+
+/**
+ * Checks many candidate address chains for history at the same time. Each round combines the next window of addresses from every
+ * unresolved candidate into a single batched request. A candidate is resolved as used as soon as any of its addresses has history,
+ * and is dropped from further rounds. It is resolved as unused once all of its addresses up to the gap limit have been checked empty.
+ */
+public class DiscoveryProbe<T> {
+    public static final int DEFAULT_WINDOW_SIZE = 5;
+
+    private final int windowSize;
+    private int roundTrips;
+    private int requests;
+
+    public DiscoveryProbe() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    public DiscoveryProbe(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * @param candidateScriptHashes the script hashes of each candidate's address chain, in index order
+     * @param fetcher retrieves the history for a batch of keyed script hashes
+     * @return the candidates with history, in the iteration order of the provided map
+     */
+    public Set<T> findUsed(Map<T, List<String>> candidateScriptHashes, HistoryFetcher fetcher) throws ServerException {
+        List<T> candidates = new ArrayList<>(candidateScriptHashes.keySet());
+        //The index of each candidate is used to give its addresses unique paths in the batched request
+        Map<T, Integer> unresolved = new LinkedHashMap<>();
+        for(int i = 0; i < candidates.size(); i++) {
+            unresolved.put(candidates.get(i), i);
+        }
+        Set<T> used = new HashSet<>();
+
+        for(int start = 0; !unresolved.isEmpty(); start += windowSize) {
+            Map<String, String> pathScriptHashes = new LinkedHashMap<>();
+            Map<String, T> pathCandidates = new HashMap<>();
+            for(Iterator<Map.Entry<T, Integer>> iter = unresolved.entrySet().iterator(); iter.hasNext(); ) {
+                Map.Entry<T, Integer> unresolvedEntry = iter.next();
+                T candidate = unresolvedEntry.getKey();
+                List<String> scriptHashes = candidateScriptHashes.get(candidate);
+                if(start >= scriptHashes.size()) {
+                    iter.remove();
+                    continue;
+                }
+
+                for(int i = start; i < Math.min(start + windowSize, scriptHashes.size()); i++) {
+                    String path = "m/" + unresolvedEntry.getValue() + "/" + i;
+                    pathScriptHashes.put(path, scriptHashes.get(i));
+                    pathCandidates.put(path, candidate);
+                }
+            }
+
+            if(pathScriptHashes.isEmpty()) {
+                break;
+            }
+
+            roundTrips++;
+            requests += pathScriptHashes.size();
+            Map<String, ScriptHashTx[]> result = fetcher.getHistory(pathScriptHashes);
+            for(Map.Entry<String, ScriptHashTx[]> entry : result.entrySet()) {
+                if(entry.getValue() != null && entry.getValue().length > 0) {
+                    T candidate = pathCandidates.get(entry.getKey());
+                    if(candidate != null && unresolved.remove(candidate) != null) {
+                        used.add(candidate);
+                    }
+                }
+            }
+        }
+
+        Set<T> orderedUsed = new LinkedHashSet<>();
+        for(T candidate : candidates) {
+            if(used.contains(candidate)) {
+                orderedUsed.add(candidate);
+            }
+        }
+
+        return orderedUsed;
+    }
+
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+
+    public interface HistoryFetcher {
+        Map<String, ScriptHashTx[]> getHistory(Map<String, String> pathScriptHashes) throws ServerException;
+    }
+}
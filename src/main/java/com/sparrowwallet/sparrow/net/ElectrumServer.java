@@ -15,22 +15,28 @@ import com.sparrowwallet.sparrow.EventManager;
 import com.sparrowwallet.sparrow.event.*;
 import com.sparrowwallet.sparrow.io.Config;
 import com.sparrowwallet.sparrow.io.Server;
+import com.sparrowwallet.sparrow.io.Storage;
 import com.sparrowwallet.sparrow.net.cormorant.Cormorant;
 import com.sparrowwallet.sparrow.net.cormorant.bitcoind.CormorantBitcoindException;
 import com.sparrowwallet.sparrow.paynym.PayNym;
-import com.sparrowwallet.sparrow.paynym.PayNymService;
+import com.sparrowwallet.sparrow.paynym.PayNymCache;
 import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.concurrent.ScheduledService;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
@@ -40,7 +46,7 @@ import java.util.stream.Collectors;
 public class ElectrumServer {
     private static final Logger log = LoggerFactory.getLogger(ElectrumServer.class);
 
-    private static final String[] SUPPORTED_VERSIONS = new String[]{"1.3", "1.4.2"};
+    static final String[] SUPPORTED_VERSIONS = new String[]{"1.3", "1.4.2"};
 
     private static final Version ELECTRS_MIN_BATCHING_VERSION = new Version("0.9.0");
 
@@ -62,6 +68,9 @@ public class ElectrumServer {
 
     private static Map<Sha256Hash, BlockTransaction> retrievedTransactions = Collections.synchronizedMap(new HashMap<>());
 
+    //Outputs known to be spent by a transaction with sufficient confirmations, shared by all transaction tabs
+    private static final SpentOutputCache spentOutputCache = new SpentOutputCache(retrievedTransactions);
+
     private static Set<String> sameHeightTxioScriptHashes = Collections.synchronizedSet(new HashSet<>());
 
     private static ElectrumServerRpc electrumServerRpc = new SimpleElectrumServerRpc();
@@ -104,32 +113,28 @@ public class ElectrumServer {
                     throw new ServerConfigException("Electrum server certificate file not found");
                 }
 
-                Protocol protocol = electrumServer.getProtocol();
-
                 //If changing server, don't rely on previous transaction history
                 if(previousServer != null && !electrumServer.equals(previousServer)) {
                     retrievedScriptHashes.clear();
                     retrievedTransactions.clear();
+                    spentOutputCache.clear();
                     TransactionHistoryService.walletLocks.values().forEach(walletLock -> walletLock.initialized = false);
                 }
                 previousServer = electrumServer;
 
-                HostAndPort hostAndPort = electrumServer.getHostAndPort();
-                boolean localNetworkAddress = !protocol.isOnionAddress(hostAndPort) && IpAddressMatcher.isLocalNetworkAddress(hostAndPort.getHost());
+                CloseableTransport primaryTransport = createTransport(electrumServer, electrumServerCert, proxyServer);
 
-                if(!localNetworkAddress && Config.get().isUseProxy() && proxyServer != null && !proxyServer.isBlank()) {
-                    HostAndPort proxy = HostAndPort.fromString(proxyServer);
-                    if(electrumServerCert != null) {
-                        transport = protocol.getTransport(hostAndPort, electrumServerCert, proxy);
-                    } else {
-                        transport = protocol.getTransport(hostAndPort, proxy);
+                List<Server> fallbackServers = getFallbackServers(electrumServer);
+                if(!fallbackServers.isEmpty() && primaryTransport instanceof TcpTransport primaryTcpTransport) {
+                    List<TcpTransport> fallbackTransports = new ArrayList<>();
+                    for(Server fallbackServer : fallbackServers) {
+                        if(createTransport(fallbackServer, null, proxyServer) instanceof TcpTransport fallbackTransport) {
+                            fallbackTransports.add(fallbackTransport);
+                        }
                     }
+                    transport = new HedgedTransport(primaryTcpTransport, fallbackTransports);
                 } else {
-                    if(electrumServerCert != null) {
-                        transport = protocol.getTransport(hostAndPort, electrumServerCert);
-                    } else {
-                        transport = protocol.getTransport(hostAndPort);
-                    }
+                    transport = primaryTransport;
                 }
             } catch (Exception e) {
                 throw new ServerConfigException(e);
@@ -139,6 +144,47 @@ public class ElectrumServer {
         return transport;
     }
 
+    static CloseableTransport createTransport(Server electrumServer, File electrumServerCert, String proxyServer) throws Exception {
+        Protocol protocol = electrumServer.getProtocol();
+        HostAndPort hostAndPort = electrumServer.getHostAndPort();
+        boolean localNetworkAddress = !protocol.isOnionAddress(hostAndPort) && IpAddressMatcher.isLocalNetworkAddress(hostAndPort.getHost());
+
+        if(!localNetworkAddress && Config.get().isUseProxy() && proxyServer != null && !proxyServer.isBlank()) {
+            HostAndPort proxy = HostAndPort.fromString(proxyServer);
+            if(electrumServerCert != null) {
+                return protocol.getTransport(hostAndPort, electrumServerCert, proxy);
+            } else {
+                return protocol.getTransport(hostAndPort, proxy);
+            }
+        } else {
+            if(electrumServerCert != null) {
+                return protocol.getTransport(hostAndPort, electrumServerCert);
+            } else {
+                return protocol.getTransport(hostAndPort);
+            }
+        }
+    }
+
+    private static List<Server> getFallbackServers(Server electrumServer) {
+        if(!Config.get().isUseFallbackServers()) {
+            return Collections.emptyList();
+        }
+
+        List<Server> fallbackServers = new ArrayList<>();
+        if(Config.get().getServerType() == ServerType.PUBLIC_ELECTRUM_SERVER) {
+            fallbackServers.addAll(PublicElectrumServer.getServers().stream().map(PublicElectrumServer::getServer).collect(Collectors.toList()));
+            Collections.shuffle(fallbackServers);
+        } else if(Config.get().getServerType() == ServerType.ELECTRUM_SERVER) {
+            fallbackServers.addAll(Config.get().getFallbackServers());
+        }
+
+        //Avoid leaking a Tor-only configuration to clearnet fallbacks
+        boolean onionPrimary = Protocol.isOnionAddress(electrumServer);
+        fallbackServers.removeIf(server -> server.equals(electrumServer) || (onionPrimary && !server.isOnionAddress() && !Config.get().isUseProxy()));
+
+        return fallbackServers.stream().limit(HedgedTransport.MAX_FALLBACK_SERVERS).collect(Collectors.toList());
+    }
+
     public void connect() throws ServerException {
         CloseableTransport closeableTransport = getTransport();
         closeableTransport.connect();
@@ -162,8 +208,7 @@ public class ElectrumServer {
 
     public static synchronized boolean isConnected() {
         if(transport != null) {
-            TcpTransport tcpTransport = (TcpTransport)transport;
-            return tcpTransport.isConnected();
+            return transport.isConnected();
         }
 
         return false;
@@ -353,18 +398,45 @@ public class ElectrumServer {
     }
 
     private void getHistoryToGapLimit(Wallet wallet, Map<WalletNode, Set<BlockTransactionHash>> nodeTransactionMap, WalletNode purposeNode) throws ServerException {
-        //Because node children are added sequentially in WalletNode.fillToIndex, we can simply look at the number of children to determine the highest filled index
-        int historySize = purposeNode.getChildren().size();
-        //The gap limit size takes the highest used index in the retrieved history and adds the gap limit (plus one to be comparable to the number of children since index is zero based)
-        int gapLimitSize = getGapLimitSize(wallet, nodeTransactionMap, purposeNode);
-        while(historySize < gapLimitSize) {
-            purposeNode.fillToIndex(wallet, gapLimitSize - 1);
-            subscribeWalletNodes(wallet, getAddressNodes(wallet, purposeNode), nodeTransactionMap, historySize);
-            getReferences(wallet, nodeTransactionMap.keySet(), nodeTransactionMap, historySize);
-            getReferencedTransactions(wallet, nodeTransactionMap);
-            historySize = purposeNode.getChildren().size();
-            gapLimitSize = getGapLimitSize(wallet, nodeTransactionMap, purposeNode);
-        }
+        new GapLimitLookahead(wallet.getGapLimit()).extend(new GapLimitLookahead.Chain() {
+            @Override
+            public int size() {
+                //Because node children are added sequentially in WalletNode.fillToIndex, we can simply look at the number of children to determine the highest filled index
+                return purposeNode.getChildren().size();
+            }
+
+            @Override
+            public void fill(int size) {
+                purposeNode.fillToIndex(wallet, size - 1);
+            }
+
+            @Override
+            public void subscribe(int startIndex, int endIndex) throws ServerException {
+                Set<WalletNode> nodes = getAddressNodes(wallet, purposeNode).stream().filter(node -> node.getIndex() < endIndex).collect(Collectors.toCollection(TreeSet::new));
+                subscribeWalletNodes(wallet, nodes, nodeTransactionMap, startIndex);
+                getReferences(wallet, nodeTransactionMap.keySet(), nodeTransactionMap, startIndex);
+                getReferencedTransactions(wallet, nodeTransactionMap);
+            }
+
+            @Override
+            public Set<Integer> getUsedIndexes(int startIndex, int endIndex) throws ServerException {
+                Set<WalletNode> nodes = purposeNode.getChildren().stream().filter(node -> node.getIndex() >= startIndex && node.getIndex() < endIndex).collect(Collectors.toCollection(TreeSet::new));
+                Map<WalletNode, Set<BlockTransactionHash>> speculativeTransactionMap = new HashMap<>();
+                getReferences(wallet, nodes, speculativeTransactionMap, startIndex);
+                return speculativeTransactionMap.entrySet().stream().filter(entry -> !entry.getValue().isEmpty()).map(entry -> entry.getKey().getIndex()).collect(Collectors.toSet());
+            }
+
+            @Override
+            public int getGapLimitSize() {
+                //The gap limit size takes the highest used index in the retrieved history and adds the gap limit (plus one to be comparable to the number of children since index is zero based)
+                return ElectrumServer.this.getGapLimitSize(wallet, nodeTransactionMap, purposeNode);
+            }
+
+            @Override
+            public void trim(int size) {
+                purposeNode.getChildren().removeIf(node -> node.getIndex() >= size && !nodeTransactionMap.containsKey(node));
+            }
+        });
     }
 
     private Set<WalletNode> getAddressNodes(Wallet wallet, WalletNode purposeNode) {
@@ -447,6 +519,29 @@ public class ElectrumServer {
         }
     }
 
+    /**
+     * Returns the indexes of the provided wallets that have any history on their receive chain, in list order.
+     * The chains of all wallets are checked together in batched windows, and each wallet stops being checked as soon as history is found.
+     */
+    public List<Integer> getWalletsWithHistory(List<Wallet> wallets) throws ServerException {
+        Map<Integer, List<String>> candidateScriptHashes = new LinkedHashMap<>();
+        for(int i = 0; i < wallets.size(); i++) {
+            candidateScriptHashes.put(i, wallets.get(i).getNode(KeyPurpose.RECEIVE).getChildren().stream().map(ElectrumServer::getScriptHash).collect(Collectors.toList()));
+        }
+
+        DiscoveryProbe<Integer> discoveryProbe = new DiscoveryProbe<>();
+        Set<Integer> used = discoveryProbe.findUsed(candidateScriptHashes, pathScriptHashes -> {
+            try {
+                return electrumServerRpc.getScriptHashHistory(getTransport(), null, pathScriptHashes, true);
+            } catch(ElectrumServerRpcException e) {
+                throw new ServerException(e.getMessage(), e.getCause());
+            }
+        });
+
+        log.debug("Discovery checked " + wallets.size() + " wallets with " + discoveryProbe.getRequests() + " requests in " + discoveryProbe.getRoundTrips() + " round trips");
+        return new ArrayList<>(used);
+    }
+
     public void subscribeWalletNodes(Wallet wallet, Collection<WalletNode> nodes, Map<WalletNode, Set<BlockTransactionHash>> nodeTransactionMap, int startIndex) throws ServerException {
         try {
             Set<String> scriptHashes = new HashSet<>();
@@ -621,7 +716,7 @@ public class ElectrumServer {
                 txids.add(reference.getHashAsString());
             }
 
-            Map<String, String> result = electrumServerRpc.getTransactions(getTransport(), wallet, txids);
+            Map<String, String> result = getRawTransactions(wallet, txids);
 
             String strErrorTx = Sha256Hash.ZERO_HASH.toString();
             Map<Sha256Hash, BlockTransaction> transactionMap = new HashMap<>();
@@ -682,6 +777,46 @@ public class ElectrumServer {
         }
     }
 
+    private Map<String, String> getRawTransactions(Wallet wallet, Set<String> txids) throws ServerException {
+        if(!isTransactionCacheAllowed(wallet)) {
+            return electrumServerRpc.getTransactions(getTransport(), wallet, txids);
+        }
+
+        //Transactions are shared between wallets and never change, so check the disk cache before fetching from the server
+        TransactionCache transactionCache = TransactionCache.get();
+        Map<String, String> result = new LinkedHashMap<>(transactionCache.getAll(txids));
+        Set<String> fetchTxids = new LinkedHashSet<>(txids);
+        fetchTxids.removeAll(result.keySet());
+
+        if(!fetchTxids.isEmpty()) {
+            Map<String, String> fetched = electrumServerRpc.getTransactions(getTransport(), wallet, fetchTxids);
+            String strErrorTx = Sha256Hash.ZERO_HASH.toString();
+            for(Map.Entry<String, String> entry : fetched.entrySet()) {
+                if(!strErrorTx.equals(entry.getValue())) {
+                    transactionCache.put(entry.getKey(), entry.getValue());
+                }
+            }
+            result.putAll(fetched);
+        }
+
+        return result;
+    }
+
+    private static boolean isTransactionCacheAllowed(Wallet wallet) {
+        if(wallet == null || !Config.get().isCacheTransactions()) {
+            return false;
+        }
+
+        //The cache is not encrypted, so transactions of password protected wallets are never cached as they would reveal the wallet's history
+        Map<Wallet, Storage> openWallets = AppServices.get().getOpenWallets();
+        Storage storage = openWallets.get(wallet);
+        if(storage == null && !wallet.isMasterWallet()) {
+            storage = openWallets.get(wallet.getMasterWallet());
+        }
+
+        return storage != null && Storage.NO_PASSWORD_KEY.equals(storage.getEncryptionPubKey());
+    }
+
     public void calculateNodeHistory(Wallet wallet, Map<WalletNode, Set<BlockTransactionHash>> nodeTransactionMap) {
         for(WalletNode node : nodeTransactionMap.keySet()) {
             calculateNodeHistory(wallet, nodeTransactionMap, node);
@@ -939,7 +1074,7 @@ public class ElectrumServer {
         Map<String, ScriptHashTx[]> historyResult = electrumServerRpc.getScriptHashHistory(getTransport(), wallet, pathScriptHashes, true);
         Set<String> txids = Arrays.stream(historyResult.get("m/0")).map(scriptHashTx -> scriptHashTx.tx_hash).collect(Collectors.toSet());
 
-        Map<String, String> transactionsResult = electrumServerRpc.getTransactions(getTransport(), wallet, txids);
+        Map<String, String> transactionsResult = getRawTransactions(wallet, txids);
         List<TransactionOutput> transactionOutputs = new ArrayList<>();
         Script outputScript = address.getOutputScript();
         String strErrorTx = Sha256Hash.ZERO_HASH.toString();
@@ -1361,8 +1496,13 @@ public class ElectrumServer {
         @Override
         public void run() {
             try {
-                TcpTransport tcpTransport = (TcpTransport)getTransport();
-                tcpTransport.readInputLoop();
+                CloseableTransport closeableTransport = getTransport();
+                if(closeableTransport instanceof HedgedTransport hedgedTransport) {
+                    hedgedTransport.readInputLoop();
+                } else {
+                    TcpTransport tcpTransport = (TcpTransport)closeableTransport;
+                    tcpTransport.readInputLoop();
+                }
             } catch(ServerException e) {
                 //Only debug logging here as the exception has been passed on to the ConnectionService thread via TcpTransport
                 log.debug("Read thread terminated", e);
@@ -1403,6 +1543,7 @@ public class ElectrumServer {
                     }
 
                     boolean historyFetched = getTransactionHistory(mainWallet);
+                    deriveBip47Addresses();
                     for(Wallet childWallet : new ArrayList<>(mainWallet.getChildWallets())) {
                         if(childWallet.isNested()) {
                             historyFetched |= getTransactionHistory(childWallet);
@@ -1414,6 +1555,35 @@ public class ElectrumServer {
             };
         }
 
+        private void deriveBip47Addresses() throws ServerException {
+            if(filterToNodes != null) {
+                return;
+            }
+
+            Map<Wallet, List<WalletNode>> underivedNodes = new LinkedHashMap<>();
+            for(Wallet childWallet : new ArrayList<>(mainWallet.getChildWallets())) {
+                if(childWallet.isBip47() && (filterToWallets == null || filterToWallets.contains(childWallet))) {
+                    WalletLock walletLock = walletLocks.computeIfAbsent(childWallet.hashCode(), w -> new WalletLock());
+                    synchronized(walletLock) {
+                        List<WalletNode> nodes = Bip47AddressDeriver.getUnderivedNodes(childWallet);
+                        if(!nodes.isEmpty()) {
+                            underivedNodes.put(childWallet, nodes);
+                        }
+                    }
+                }
+            }
+
+            if(!underivedNodes.isEmpty()) {
+                try {
+                    Bip47AddressDeriver.deriveAddresses(underivedNodes);
+                } catch(InterruptedException e) {
+                    throw new ServerException("Interrupted while deriving BIP47 addresses", e);
+                }
+
+                Platform.runLater(() -> underivedNodes.forEach((childWallet, nodes) -> EventManager.get().post(new WalletAddressesDerivedEvent(childWallet, nodes))));
+            }
+        }
+
         private boolean getTransactionHistory(Wallet wallet) throws ServerException {
             if(filterToWallets != null && !filterToWallets.contains(wallet)) {
                 return false;
@@ -1603,6 +1773,17 @@ public class ElectrumServer {
         protected Task<List<BlockTransaction>> createTask() {
             return new Task<>() {
                 protected List<BlockTransaction> call() throws ServerException {
+                    //Outputs with a confirmed spend found earlier in the session do not need their script hash history fetched again
+                    for(int i = indexStart; i < indexEnd; i++) {
+                        if(blockTransactionHashes.get(i) == null) {
+                            BlockTransaction spendingTransaction = spentOutputCache.getSpendingTransaction(transaction.getTxId(), i);
+                            if(spendingTransaction != null) {
+                                blockTransactionHashes.set(i, new TreeSet<>(Set.of(spendingTransaction)));
+                                transactionMap.put(spendingTransaction.getHash(), spendingTransaction);
+                            }
+                        }
+                    }
+
                     ElectrumServer electrumServer = new ElectrumServer();
                     List<Set<BlockTransactionHash>> outputTransactionReferences = electrumServer.getOutputTransactionReferences(transaction, indexStart, indexEnd, blockTransactionHashes);
 
@@ -1621,6 +1802,15 @@ public class ElectrumServer {
                         blockTransactions.add(null);
                     }
 
+                    for(Iterator<BlockTransactionHash> iter = setReferences.iterator(); iter.hasNext(); ) {
+                        BlockTransactionHash reference = iter.next();
+                        BlockTransaction retrievedTransaction = retrievedTransactions.get(reference.getHash());
+                        if(retrievedTransaction != null) {
+                            transactionMap.put(reference.getHash(), retrievedTransaction);
+                            iter.remove();
+                        }
+                    }
+
                     if(!setReferences.isEmpty()) {
                         Map<Integer, BlockHeader> blockHeaderMap = electrumServer.getBlockHeaders(null, setReferences);
                         transactionMap.putAll(electrumServer.getTransactions(null, setReferences, blockHeaderMap));
@@ -1655,6 +1845,13 @@ public class ElectrumServer {
                         }
                     }
 
+                    for(int i = indexStart; i < indexEnd; i++) {
+                        BlockTransaction spendingTransaction = blockTransactions.get(i);
+                        if(spendingTransaction != null && !spendingTransaction.equals(UNFETCHABLE_BLOCK_TRANSACTION)) {
+                            spentOutputCache.putSpendingTransaction(transaction.getTxId(), i, spendingTransaction, AppServices.getCurrentBlockHeight());
+                        }
+                    }
+
                     return blockTransactions;
                 }
             };
@@ -1705,39 +1902,39 @@ public class ElectrumServer {
                 protected Optional<Wallet> call() throws ServerException {
                     ElectrumServer electrumServer = new ElectrumServer();
 
-                    for(int i = 0; i < wallets.size(); i++) {
-                        Wallet wallet = wallets.get(i);
-                        updateProgress(i, wallets.size() + StandardAccount.DISCOVERY_ACCOUNTS.size());
-                        Map<WalletNode, Set<BlockTransactionHash>> nodeTransactionMap = new TreeMap<>();
-                        electrumServer.getReferences(wallet, wallet.getNode(KeyPurpose.RECEIVE).getChildren(), nodeTransactionMap, 0);
-                        if(nodeTransactionMap.values().stream().anyMatch(blockTransactionHashes -> !blockTransactionHashes.isEmpty())) {
-                            Wallet masterWalletCopy = wallet.copy();
-                            List<StandardAccount> searchAccounts = getStandardAccounts(wallet);
-                            Set<StandardAccount> foundAccounts = new LinkedHashSet<>();
-                            for(int j = 0; j < searchAccounts.size(); j++) {
-                                StandardAccount standardAccount = searchAccounts.get(j);
-                                Wallet childWallet = masterWalletCopy.addChildWallet(standardAccount);
-                                Map<WalletNode, Set<BlockTransactionHash>> childTransactionMap = new TreeMap<>();
-                                electrumServer.getReferences(childWallet, childWallet.getNode(KeyPurpose.RECEIVE).getChildren(), childTransactionMap, 0);
-                                if(childTransactionMap.values().stream().anyMatch(blockTransactionHashes -> !blockTransactionHashes.isEmpty())) {
-                                    if(StandardAccount.isWhirlpoolAccount(standardAccount)) {
-                                        foundAccounts.addAll(StandardAccount.WHIRLPOOL_ACCOUNTS);
-                                    } else {
-                                        foundAccounts.add(standardAccount);
-                                    }
-                                }
-                                updateProgress(i + j, wallets.size() + StandardAccount.DISCOVERY_ACCOUNTS.size());
-                            }
+                    //Probe the receive chains of all candidate wallets together, and only then the accounts of the first used wallet
+                    updateProgress(0, 2);
+                    List<Integer> usedWallets = electrumServer.getWalletsWithHistory(wallets);
+                    if(usedWallets.isEmpty()) {
+                        return Optional.empty();
+                    }
 
-                            for(StandardAccount standardAccount : foundAccounts) {
-                                wallet.addChildWallet(standardAccount);
-                            }
+                    Wallet wallet = wallets.get(usedWallets.get(0));
+                    updateProgress(1, 2);
 
-                            return Optional.of(wallet);
+                    Wallet masterWalletCopy = wallet.copy();
+                    List<StandardAccount> searchAccounts = getStandardAccounts(wallet);
+                    List<Wallet> childWallets = new ArrayList<>();
+                    for(StandardAccount standardAccount : searchAccounts) {
+                        childWallets.add(masterWalletCopy.addChildWallet(standardAccount));
+                    }
+
+                    Set<StandardAccount> foundAccounts = new LinkedHashSet<>();
+                    for(Integer index : electrumServer.getWalletsWithHistory(childWallets)) {
+                        StandardAccount standardAccount = searchAccounts.get(index);
+                        if(StandardAccount.isWhirlpoolAccount(standardAccount)) {
+                            foundAccounts.addAll(StandardAccount.WHIRLPOOL_ACCOUNTS);
+                        } else {
+                            foundAccounts.add(standardAccount);
                         }
                     }
+                    updateProgress(2, 2);
 
-                    return Optional.empty();
+                    for(StandardAccount standardAccount : foundAccounts) {
+                        wallet.addChildWallet(standardAccount);
+                    }
+
+                    return Optional.of(wallet);
                 }
             };
         }
@@ -1780,20 +1977,20 @@ public class ElectrumServer {
             return new Task<>() {
                 protected List<StandardAccount> call() throws ServerException {
                     ElectrumServer electrumServer = new ElectrumServer();
-                    List<StandardAccount> discoveredAccounts = new ArrayList<>();
 
+                    List<Wallet> wallets = new ArrayList<>();
                     for(StandardAccount standardAccount : standardAccounts) {
                         Wallet wallet = masterWalletCopy.addChildWallet(standardAccount);
                         if(importedKeystores.containsKey(standardAccount)) {
                             wallet.getKeystores().clear();
                             wallet.getKeystores().add(importedKeystores.get(standardAccount));
                         }
+                        wallets.add(wallet);
+                    }
 
-                        Map<WalletNode, Set<BlockTransactionHash>> nodeTransactionMap = new TreeMap<>();
-                        electrumServer.getReferences(wallet, wallet.getNode(KeyPurpose.RECEIVE).getChildren(), nodeTransactionMap, 0);
-                        if(nodeTransactionMap.values().stream().anyMatch(blockTransactionHashes -> !blockTransactionHashes.isEmpty())) {
-                            discoveredAccounts.add(standardAccount);
-                        }
+                    List<StandardAccount> discoveredAccounts = new ArrayList<>();
+                    for(Integer index : electrumServer.getWalletsWithHistory(wallets)) {
+                        discoveredAccounts.add(standardAccounts.get(index));
                     }
 
                     return discoveredAccounts;
@@ -1828,6 +2025,8 @@ public class ElectrumServer {
     }
 
     public static class PaymentCodesService extends Service<List<Wallet>> {
+        private static final int PAYMENT_CODE_THREADS = 8;
+
         private final String walletId;
         private final Wallet wallet;
 
@@ -1866,36 +2065,37 @@ public class ElectrumServer {
 
                     List<Wallet> addedWallets = new ArrayList<>();
                     if(!nodeTransactionMap.isEmpty()) {
-                        Set<PaymentCode> paymentCodes = new LinkedHashSet<>();
-                        for(BlockTransactionHashIndex output : notificationNode.getTransactionOutputs()) {
-                            BlockTransaction blkTx = notificationWallet.getTransactions().get(output.getHash());
-                            try {
-                                PaymentCode paymentCode = PaymentCode.getPaymentCode(blkTx.getTransaction(), notificationWallet.getKeystores().get(0));
-                                if(paymentCodes.add(paymentCode)) {
-                                    if(getExistingChildWallet(paymentCode) == null) {
-                                        PayNym payNym = Config.get().isUsePayNym() ? getPayNym(paymentCode) : null;
-                                        List<ScriptType> scriptTypes = payNym == null || wallet.getScriptType() != ScriptType.P2PKH ? PayNym.getSegwitScriptTypes() : payNym.getScriptTypes();
-                                        for(ScriptType childScriptType : scriptTypes) {
-                                            String label = (payNym == null ? paymentCode.toAbbreviatedString() : payNym.nymName()) + " " + childScriptType.getName();
-                                            Wallet addedWallet = wallet.addChildWallet(paymentCode, childScriptType, output, blkTx, label);
-                                            //Check this is a valid payment code, will throw IllegalArgumentException if not
-                                            try {
-                                                WalletNode receiveNode = new WalletNode(addedWallet, KeyPurpose.RECEIVE, 0);
-                                                receiveNode.getPubKey();
-                                            } catch(IllegalArgumentException e) {
-                                                wallet.getChildWallets().remove(addedWallet);
-                                                throw e;
-                                            }
+                        BasicThreadFactory factory = new BasicThreadFactory.Builder().namingPattern("PaymentCodes-%d").daemon(true).build();
+                        ExecutorService executor = Executors.newFixedThreadPool(PAYMENT_CODE_THREADS, factory);
+                        try {
+                            Map<PaymentCode, NotificationOutput> newPaymentCodes = getNewPaymentCodes(notificationWallet, notificationNode, executor);
+                            Map<String, PayNym> payNyms = Config.get().isUsePayNym() ?
+                                    PayNymCache.get().getPayNyms(newPaymentCodes.keySet().stream().map(PaymentCode::toString).collect(Collectors.toList()), executor) : Collections.emptyMap();
+
+                            Map<PaymentCode, List<Wallet>> paymentCodeWallets = new LinkedHashMap<>();
+                            for(Map.Entry<PaymentCode, NotificationOutput> entry : newPaymentCodes.entrySet()) {
+                                PaymentCode paymentCode = entry.getKey();
+                                PayNym payNym = payNyms.get(paymentCode.toString());
+                                List<ScriptType> scriptTypes = payNym == null || wallet.getScriptType() != ScriptType.P2PKH ? PayNym.getSegwitScriptTypes() : payNym.getScriptTypes();
+                                for(ScriptType childScriptType : scriptTypes) {
+                                    String label = (payNym == null ? paymentCode.toAbbreviatedString() : payNym.nymName()) + " " + childScriptType.getName();
+                                    Wallet addedWallet = wallet.addChildWallet(paymentCode, childScriptType, entry.getValue().output(), entry.getValue().blockTransaction(), label);
+                                    paymentCodeWallets.computeIfAbsent(paymentCode, code -> new ArrayList<>()).add(addedWallet);
+                                }
+                            }
 
-                                            addedWallets.add(addedWallet);
-                                        }
-                                    }
+                            Set<PaymentCode> invalidPaymentCodes = getInvalidPaymentCodes(paymentCodeWallets, executor);
+                            for(Map.Entry<PaymentCode, List<Wallet>> entry : paymentCodeWallets.entrySet()) {
+                                if(invalidPaymentCodes.contains(entry.getKey())) {
+                                    wallet.getChildWallets().removeAll(entry.getValue());
+                                } else {
+                                    addedWallets.addAll(entry.getValue());
                                 }
-                            } catch(InvalidPaymentCodeException e) {
-                                log.info("Could not determine payment code for notification transaction", e);
-                            } catch(IllegalArgumentException e) {
-                                log.info("Invalid notification transaction creates illegal payment code", e);
                             }
+                        } catch(InterruptedException e) {
+                            throw new ServerException("Interrupted while scanning payment codes", e);
+                        } finally {
+                            executor.shutdownNow();
                         }
                     }
 
@@ -1904,24 +2104,73 @@ public class ElectrumServer {
             };
         }
 
-        private PayNym getPayNym(PaymentCode paymentCode) {
-            try {
-                return PayNymService.getPayNym(paymentCode.toString()).blockingFirst();
-            } catch(Exception e) {
-                //ignore
+        /**
+         * Extracts the payment codes from the notification transactions concurrently, as each requires an ECDH computation
+         *
+         * @return the payment codes without an existing child wallet, in notification output order, with the output that first notified each
+         */
+        private Map<PaymentCode, NotificationOutput> getNewPaymentCodes(Wallet notificationWallet, WalletNode notificationNode, ExecutorService executor) throws InterruptedException {
+            Keystore keystore = notificationWallet.getKeystores().get(0);
+            List<NotificationOutput> notificationOutputs = notificationNode.getTransactionOutputs().stream()
+                    .map(output -> new NotificationOutput(output, notificationWallet.getTransactions().get(output.getHash()))).collect(Collectors.toList());
+
+            List<Future<PaymentCode>> futures = new ArrayList<>();
+            for(NotificationOutput notificationOutput : notificationOutputs) {
+                futures.add(executor.submit(() -> PaymentCode.getPaymentCode(notificationOutput.blockTransaction().getTransaction(), keystore)));
             }
 
-            return null;
+            Set<PaymentCode> existingPaymentCodes = wallet.getChildWallets().stream().filter(Wallet::isBip47)
+                    .map(childWallet -> childWallet.getKeystores().get(0).getExternalPaymentCode()).collect(Collectors.toSet());
+
+            Map<PaymentCode, NotificationOutput> newPaymentCodes = new LinkedHashMap<>();
+            for(int i = 0; i < futures.size(); i++) {
+                try {
+                    PaymentCode paymentCode = futures.get(i).get();
+                    if(!existingPaymentCodes.contains(paymentCode)) {
+                        newPaymentCodes.putIfAbsent(paymentCode, notificationOutputs.get(i));
+                    }
+                } catch(ExecutionException e) {
+                    if(e.getCause() instanceof InvalidPaymentCodeException) {
+                        log.info("Could not determine payment code for notification transaction", e.getCause());
+                    } else if(e.getCause() instanceof IllegalArgumentException) {
+                        log.info("Invalid notification transaction creates illegal payment code", e.getCause());
+                    } else {
+                        log.error("Error determining payment code for notification transaction", e.getCause());
+                    }
+                }
+            }
+
+            return newPaymentCodes;
         }
 
-        private Wallet getExistingChildWallet(PaymentCode paymentCode) {
-            for(Wallet childWallet : wallet.getChildWallets()) {
-                if(childWallet.isBip47() && paymentCode.equals(childWallet.getKeystores().get(0).getExternalPaymentCode())) {
-                    return childWallet;
+        /**
+         * Checks concurrently that each payment code creates valid child wallet keys, since a notification transaction can contain an arbitrary payload
+         */
+        private Set<PaymentCode> getInvalidPaymentCodes(Map<PaymentCode, List<Wallet>> paymentCodeWallets, ExecutorService executor) throws InterruptedException {
+            Map<PaymentCode, Future<?>> futures = new LinkedHashMap<>();
+            for(Map.Entry<PaymentCode, List<Wallet>> entry : paymentCodeWallets.entrySet()) {
+                futures.put(entry.getKey(), executor.submit(() -> {
+                    for(Wallet addedWallet : entry.getValue()) {
+                        //Will throw IllegalArgumentException if the payment code is not valid
+                        WalletNode receiveNode = new WalletNode(addedWallet, KeyPurpose.RECEIVE, 0);
+                        receiveNode.getPubKey();
+                    }
+                }));
+            }
+
+            Set<PaymentCode> invalidPaymentCodes = new HashSet<>();
+            for(Map.Entry<PaymentCode, Future<?>> entry : futures.entrySet()) {
+                try {
+                    entry.getValue().get();
+                } catch(ExecutionException e) {
+                    log.info("Invalid notification transaction creates illegal payment code", e.getCause());
+                    invalidPaymentCodes.add(entry.getKey());
                 }
             }
 
-            return null;
+            return invalidPaymentCodes;
         }
+
+        private record NotificationOutput(BlockTransactionHashIndex output, BlockTransaction blockTransaction) {}
     }
 }
@@ -0,0 +1,107 @@
+package com.sparrowwallet.sparrow.net;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Extends an address chain until it reaches the gap limit past its highest used address. When a round shows the chain is still being consumed,
+ * the next round also checks a window of speculative addresses beyond the gap limit, doubling with each consuming round up to a maximum,
+ * so that long used chains resolve in a few round trips rather than one per gap limit.
+ * Speculative addresses are only checked for history. They are subscribed once the gap limit grows to include them, and used addresses
+ * that the gap limit never reaches are ignored, so the addresses subscribed are the same as when extending the chain one gap limit at a time.
+ */
+public class GapLimitLookahead {
+    public static final int MAX_LOOKAHEAD = 1000;
+
+    private final int gapLimit;
+    private int rounds;
+
+    public GapLimitLookahead(int gapLimit) {
+        this.gapLimit = gapLimit;
+    }
+
+    public void extend(Chain chain) throws ServerException {
+        int initialSize = chain.size();
+        int subscribedSize = initialSize;
+        int checkedSize = initialSize;
+        Set<Integer> speculativeUsed = new TreeSet<>();
+        int gapLimitSize = chain.getGapLimitSize();
+        int lookahead = 0;
+
+        while(subscribedSize < gapLimitSize) {
+            int fillSize = gapLimitSize + lookahead;
+            chain.fill(fillSize);
+            chain.subscribe(subscribedSize, gapLimitSize);
+            subscribedSize = gapLimitSize;
+
+            int checkFromIndex = Math.max(gapLimitSize, checkedSize);
+            if(checkFromIndex < fillSize) {
+                speculativeUsed.addAll(chain.getUsedIndexes(checkFromIndex, fillSize));
+                checkedSize = fillSize;
+            }
+            rounds++;
+
+            int previousGapLimitSize = gapLimitSize;
+            gapLimitSize = getReachableSize(chain.getGapLimitSize(), speculativeUsed);
+            lookahead = getLookahead(gapLimitSize - previousGapLimitSize, lookahead);
+        }
+
+        //Discard speculatively added addresses beyond the final gap limit
+        int trimSize = Math.max(initialSize, gapLimitSize);
+        if(chain.size() > trimSize) {
+            chain.trim(trimSize);
+        }
+    }
+
+    private int getReachableSize(int gapLimitSize, Set<Integer> speculativeUsed) {
+        for(Integer index : speculativeUsed) {
+            if(index < gapLimitSize) {
+                gapLimitSize = Math.max(gapLimitSize, index + gapLimit + 1);
+            }
+        }
+
+        return gapLimitSize;
+    }
+
+    private static int getLookahead(int consumed, int previousLookahead) {
+        if(consumed <= 0) {
+            return 0;
+        }
+
+        return Math.min(Math.max(consumed, previousLookahead) * 2, MAX_LOOKAHEAD);
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public interface Chain {
+        /**
+         * @return the number of addresses currently in the chain
+         */
+        int size();
+
+        void fill(int size);
+
+        /**
+         * Subscribes to the addresses from startIndex (inclusive) to endIndex (exclusive), fetching the history of those that are used
+         */
+        void subscribe(int startIndex, int endIndex) throws ServerException;
+
+        /**
+         * Checks the addresses from startIndex (inclusive) to endIndex (exclusive) for history without subscribing to them
+         * @return the indexes of the addresses with history
+         */
+        Set<Integer> getUsedIndexes(int startIndex, int endIndex) throws ServerException;
+
+        /**
+         * @return the highest used index among the subscribed addresses, plus the gap limit and one
+         */
+        int getGapLimitSize();
+
+        /**
+         * Removes unused addresses from the given index
+         */
+        void trim(int size);
+    }
+}
@@ -0,0 +1,266 @@
+package com.sparrowwallet.sparrow.net;
+
+import com.github.arteam.simplejsonrpc.client.JsonRpcClient;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Transport that sends all requests to a primary server, and hedges idempotent read requests to one of a small set of fallback servers
+ * when the primary has not answered within a latency percentile of its recent responses. The first response received wins.
+ * Subscriptions, broadcasts and other stateful requests are only ever sent to the primary server.
+ * Batch requests are also only sent to the primary server. The transport matches a response to its request by id, which it cannot do for a batch,
+ * so a late response to an abandoned batch would be returned for the next batch sent on that connection.
+ */
+public class HedgedTransport implements CloseableTransport, TimeoutCounter {
+    private static final Logger log = LoggerFactory.getLogger(HedgedTransport.class);
+
+    public static final int MAX_FALLBACK_SERVERS = 2;
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final int LATENCY_WINDOW = 50;
+    private static final int MIN_LATENCY_SAMPLES = 10;
+    private static final long DEFAULT_HEDGE_DELAY_MILLIS = 2000;
+    private static final long MIN_HEDGE_DELAY_MILLIS = 250;
+    private static final long HANDSHAKE_ID_START = 1_000_000_000L;
+    private static final int EXECUTOR_THREADS = (1 + MAX_FALLBACK_SERVERS) * 2;
+
+    private static final Set<String> HEDGEABLE_METHODS = Set.of("blockchain.scripthash.get_history", "blockchain.scripthash.get_mempool",
+            "blockchain.transaction.get", "blockchain.block.header", "blockchain.estimatefee", "blockchain.relayfee", "mempool.get_fee_histogram");
+
+    private final TcpTransport primary;
+    private final List<Fallback> fallbacks;
+    private final LatencyTracker latencyTracker = new LatencyTracker(LATENCY_WINDOW);
+    private final AtomicLong handshakeIdCounter = new AtomicLong(HANDSHAKE_ID_START);
+    private final ExecutorService executor;
+
+    private volatile boolean closed;
+
+    public HedgedTransport(TcpTransport primary, List<TcpTransport> fallbackTransports) {
+        this.primary = primary;
+        this.fallbacks = fallbackTransports.stream().limit(MAX_FALLBACK_SERVERS).map(Fallback::new).collect(Collectors.toList());
+        BasicThreadFactory factory = new BasicThreadFactory.Builder().namingPattern("HedgedTransport-%d").daemon(true).build();
+        this.executor = Executors.newFixedThreadPool(EXECUTOR_THREADS, factory);
+    }
+
+    @Override
+    public @NotNull String pass(@NotNull String request) throws IOException {
+        RequestInfo requestInfo = getRequestInfo(request);
+        List<Fallback> candidates = requestInfo.hedgeable ? getReadyFallbacks() : Collections.emptyList();
+        if(candidates.isEmpty()) {
+            Response response = passPrimary(request, requestInfo.count);
+            latencyTracker.record(response.latency());
+            return response.response();
+        }
+
+        ExecutorCompletionService<Response> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Response>> futures = new ArrayList<>();
+        futures.add(completionService.submit(() -> passPrimary(request, requestInfo.count)));
+        int pending = 1;
+        Iterator<Fallback> fallbackIterator = candidates.iterator();
+        IOException lastException = null;
+
+        try {
+            Future<Response> completed = completionService.poll(getHedgeDelayMillis(requestInfo.count), TimeUnit.MILLISECONDS);
+            if(completed == null) {
+                Fallback fallback = fallbackIterator.next();
+                log.debug("No response from primary server within hedge delay, also sending request to " + fallback.transport.server);
+                futures.add(completionService.submit(() -> fallback.pass(request)));
+                pending++;
+            }
+
+            while(pending > 0) {
+                if(completed == null) {
+                    completed = completionService.take();
+                }
+                pending--;
+
+                try {
+                    Response response = completed.get();
+                    //Only the latency of a primary response that won is recorded, as a late response to an abandoned request would skew the percentile
+                    if(response.primary()) {
+                        latencyTracker.record(response.latency());
+                    }
+                    return response.response();
+                } catch(ExecutionException e) {
+                    lastException = (e.getCause() instanceof IOException ioException ? ioException : new IOException(e.getCause()));
+                    if(fallbackIterator.hasNext()) {
+                        Fallback fallback = fallbackIterator.next();
+                        log.debug("Request failed with " + lastException.getMessage() + ", failing over to " + fallback.transport.server);
+                        futures.add(completionService.submit(() -> fallback.pass(request)));
+                        pending++;
+                    }
+                }
+
+                completed = null;
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for response", e);
+        } finally {
+            //Abandon the requests that did not win, so that a stalled primary does not hold its request lock or raise its read timeout for later requests.
+            //Only single requests are hedged, so any response that arrives for an abandoned request is discarded by the transport as it does not match the id of the next request.
+            for(Future<Response> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        throw lastException;
+    }
+
+    private Response passPrimary(String request, int requestCount) throws IOException {
+        long start = System.currentTimeMillis();
+        String response = primary.pass(request);
+        long elapsed = System.currentTimeMillis() - start;
+        return new Response(response, Math.max(0, elapsed - (requestCount * TcpTransport.PER_REQUEST_READ_TIMEOUT_MILLIS)), true);
+    }
+
+    long getHedgeDelayMillis(int requestCount) {
+        long delay = latencyTracker.getCount() < MIN_LATENCY_SAMPLES ? DEFAULT_HEDGE_DELAY_MILLIS : Math.max(MIN_HEDGE_DELAY_MILLIS, latencyTracker.getPercentile(HEDGE_PERCENTILE));
+        return delay + (requestCount * TcpTransport.PER_REQUEST_READ_TIMEOUT_MILLIS);
+    }
+
+    int getLatencySampleCount() {
+        return latencyTracker.getCount();
+    }
+
+    int getReadyFallbackCount() {
+        return getReadyFallbacks().size();
+    }
+
+    private List<Fallback> getReadyFallbacks() {
+        return fallbacks.stream().filter(fallback -> fallback.ready && !fallback.transport.isClosed()).collect(Collectors.toList());
+    }
+
+    private RequestInfo getRequestInfo(String request) {
+        try {
+            JsonElement json = JsonParser.parseString(request);
+            if(json.isJsonArray()) {
+                return new RequestInfo(false, json.getAsJsonArray().size());
+            }
+
+            return new RequestInfo(isHedgeable(json), 1);
+        } catch(Exception e) {
+            return new RequestInfo(false, 1);
+        }
+    }
+
+    private boolean isHedgeable(JsonElement element) {
+        if(element.isJsonObject()) {
+            JsonObject jsonObject = element.getAsJsonObject();
+            return jsonObject.has("method") && HEDGEABLE_METHODS.contains(jsonObject.get("method").getAsString());
+        }
+
+        return false;
+    }
+
+    public void readInputLoop() throws ServerException {
+        primary.readInputLoop();
+    }
+
+    @Override
+    public void connect() throws ServerException {
+        primary.connect();
+
+        if(!fallbacks.isEmpty()) {
+            executor.submit(() -> {
+                for(Fallback fallback : fallbacks) {
+                    if(!closed) {
+                        fallback.connect();
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return primary.isConnected();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return primary.isClosed();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for(Fallback fallback : fallbacks) {
+            fallback.close();
+        }
+        executor.shutdownNow();
+        primary.close();
+    }
+
+    @Override
+    public int getTimeoutCount() {
+        return primary.getTimeoutCount();
+    }
+
+    private record RequestInfo(boolean hedgeable, int count) {}
+
+    private record Response(String response, long latency, boolean primary) {}
+
+    private class Fallback {
+        private final TcpTransport transport;
+        private volatile boolean ready;
+
+        public Fallback(TcpTransport transport) {
+            this.transport = transport;
+        }
+
+        public void connect() {
+            try {
+                transport.connect();
+                Thread reader = new Thread(() -> {
+                    try {
+                        transport.readInputLoop();
+                    } catch(ServerException e) {
+                        log.debug("Fallback read thread terminated", e);
+                    }
+                }, "ElectrumServerFallbackReadThread");
+                reader.setDaemon(true);
+                reader.start();
+
+                JsonRpcClient client = new JsonRpcClient(transport);
+                List<String> serverVersion = client.createRequest().returnAsList(String.class).method("server.version").id(handshakeIdCounter.incrementAndGet())
+                        .param("client_name", "Sparrow").param("protocol_version", ElectrumServer.SUPPORTED_VERSIONS).execute();
+                ready = true;
+                log.debug("Connected to fallback server " + transport.server + " (" + serverVersion + ")");
+            } catch(Exception e) {
+                log.warn("Could not connect to fallback server " + transport.server + ": " + e.getMessage());
+                close();
+            }
+        }
+
+        public Response pass(String request) throws IOException {
+            try {
+                return new Response(transport.pass(request), 0, false);
+            } catch(IOException e) {
+                if(!transport.isConnected()) {
+                    ready = false;
+                }
+                throw e;
+            }
+        }
+
+        public void close() {
+            ready = false;
+            try {
+                transport.close();
+            } catch(IOException e) {
+                log.debug("Error closing fallback server connection", e);
+            }
+        }
+    }
+}
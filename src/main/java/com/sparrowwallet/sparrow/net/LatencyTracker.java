@@ -0,0 +1,42 @@
+package com.sparrowwallet.sparrow.net;
+
+import java.util.Arrays;
+
+/**
+ * Keeps a rolling window of recent latency samples and answers percentile queries over them.
+ */
+public class LatencyTracker {
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    public LatencyTracker(int windowSize) {
+        this.samples = new long[windowSize];
+    }
+
+    public synchronized void record(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized long getPercentile(double percentile) {
+        if(count == 0) {
+            throw new IllegalStateException("No latency samples recorded");
+        }
+
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int)Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,63 @@
+package com.sparrowwallet.sparrow.net;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Cumulative mempool vsize by fee rate for a single mempool histogram snapshot, so that the depth of a fee rate from the tip
+ * can be found with a binary search rather than summing the histogram. Indexes are cached against the identity of the snapshot
+ * they were built from, and are released when the snapshot is no longer referenced.
+ */
+public class MempoolDepthIndex {
+    private static final Cache<Set<MempoolRateSize>, MempoolDepthIndex> indexes = CacheBuilder.newBuilder().weakKeys().build();
+
+    //Fee rates in ascending order, with the total vsize at or above each fee rate
+    private final double[] fees;
+    private final long[] cumulativeVSizes;
+
+    private MempoolDepthIndex(Set<MempoolRateSize> rateSizes) {
+        MempoolRateSize[] sorted = rateSizes.toArray(new MempoolRateSize[0]);
+        Arrays.sort(sorted);
+
+        fees = new double[sorted.length];
+        cumulativeVSizes = new long[sorted.length + 1];
+        for(int i = sorted.length - 1; i >= 0; i--) {
+            fees[i] = sorted[i].getFee();
+            cumulativeVSizes[i] = cumulativeVSizes[i + 1] + sorted[i].getVSize();
+        }
+    }
+
+    public static MempoolDepthIndex get(Set<MempoolRateSize> rateSizes) {
+        return indexes.asMap().computeIfAbsent(rateSizes, MempoolDepthIndex::new);
+    }
+
+    /**
+     * @return the total vsize of mempool transactions paying a higher fee rate than that provided
+     */
+    public long getVSizeAbove(double feeRate) {
+        int index = Arrays.binarySearch(fees, feeRate);
+        //Skip past an exact match so that it is excluded
+        int start = index >= 0 ? index + 1 : -index - 1;
+        return cumulativeVSizes[start];
+    }
+
+    /**
+     * @return the total vsize of mempool transactions paying a fee rate at or above the lower bound, and below the upper bound
+     */
+    public long getVSizeBetween(double lowerFeeRate, double upperFeeRate) {
+        return getVSizeAtOrAbove(lowerFeeRate) - getVSizeAtOrAbove(upperFeeRate);
+    }
+
+    private long getVSizeAtOrAbove(double feeRate) {
+        int index = Arrays.binarySearch(fees, feeRate);
+        int start = index >= 0 ? index : -index - 1;
+        return cumulativeVSizes[start];
+    }
+
+    public long getTotalVSize() {
+        return cumulativeVSizes[0];
+    }
+}
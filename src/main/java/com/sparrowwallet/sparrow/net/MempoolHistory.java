@@ -0,0 +1,253 @@
+package com.sparrowwallet.sparrow.net;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Mempool histogram snapshots kept at three resolutions, each a fixed capacity ring of the most recent snapshots.
+ * New snapshots are added at minute resolution. When an hour or day has passed, the snapshots from the finer tier within that period are
+ * averaged into a single snapshot in the coarser tier, so memory use and chart cost stay constant regardless of the period displayed.
+ * The tiers are saved to a compressed file so that history survives restarts.
+ */
+public class MempoolHistory {
+    private static final Logger log = LoggerFactory.getLogger(MempoolHistory.class);
+
+    private static final int FILE_VERSION = 1;
+
+    public enum Tier {
+        MINUTE(ChronoUnit.MINUTES, 120),
+        HOUR(ChronoUnit.HOURS, 24 * 7),
+        DAY(ChronoUnit.DAYS, 90);
+
+        private final ChronoUnit unit;
+        private final int capacity;
+
+        Tier(ChronoUnit unit, int capacity) {
+            this.unit = unit;
+            this.capacity = capacity;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public long getPeriodHours() {
+            return unit.getDuration().multipliedBy(capacity).toHours();
+        }
+    }
+
+    private final Map<Tier, TreeMap<Date, Set<MempoolRateSize>>> tiers = new EnumMap<>(Tier.class);
+
+    public MempoolHistory() {
+        for(Tier tier : Tier.values()) {
+            tiers.put(tier, new TreeMap<>());
+        }
+    }
+
+    /**
+     * @return true if the snapshot completed an hour or day period which has been rolled up into a coarser tier
+     */
+    public synchronized boolean add(Date date, Set<MempoolRateSize> rateSizes) {
+        TreeMap<Date, Set<MempoolRateSize>> minutes = tiers.get(Tier.MINUTE);
+        Date minute = truncate(date, Tier.MINUTE);
+        boolean rolledUp = false;
+        if(!minutes.isEmpty()) {
+            rolledUp = rollup(minutes.lastKey(), minute, Tier.MINUTE, Tier.HOUR);
+            rolledUp |= rollup(minutes.lastKey(), minute, Tier.HOUR, Tier.DAY);
+        }
+
+        //Samples from before a gap in the history, such as while the application was closed, have been rolled up and fall outside the minute tier period
+        Date minuteTierStart = Date.from(toLocalDateTime(minute).minusMinutes(Tier.MINUTE.capacity).atZone(ZoneId.systemDefault()).toInstant());
+        minutes.headMap(minuteTierStart).clear();
+        if(minutes.isEmpty()) {
+            //Ensure there are at least two recent points to plot
+            put(Tier.MINUTE, Date.from(toLocalDateTime(minute).minusMinutes(1).atZone(ZoneId.systemDefault()).toInstant()), rateSizes);
+        }
+
+        put(Tier.MINUTE, minute, rateSizes);
+        return rolledUp;
+    }
+
+    /**
+     * When the previous sample and the new sample fall in different periods of the coarser tier, the finer tier samples in the completed period are averaged into it.
+     */
+    private boolean rollup(Date previous, Date next, Tier fine, Tier coarse) {
+        Date completedPeriod = truncate(previous, coarse);
+        if(!completedPeriod.before(truncate(next, coarse)) || tiers.get(coarse).containsKey(completedPeriod)) {
+            return false;
+        }
+
+        Date periodEnd = Date.from(toLocalDateTime(completedPeriod).plus(1, coarse.unit).atZone(ZoneId.systemDefault()).toInstant());
+        Collection<Set<MempoolRateSize>> samples = tiers.get(fine).subMap(completedPeriod, true, periodEnd, false).values();
+        if(samples.isEmpty()) {
+            return false;
+        }
+
+        put(coarse, completedPeriod, average(samples));
+        return true;
+    }
+
+    private void put(Tier tier, Date date, Set<MempoolRateSize> rateSizes) {
+        TreeMap<Date, Set<MempoolRateSize>> snapshots = tiers.get(tier);
+        snapshots.put(date, rateSizes);
+        while(snapshots.size() > tier.capacity) {
+            snapshots.pollFirstEntry();
+        }
+    }
+
+    private static Set<MempoolRateSize> average(Collection<Set<MempoolRateSize>> samples) {
+        Map<Double, Long> totalVSizes = new TreeMap<>();
+        for(Set<MempoolRateSize> sample : samples) {
+            for(MempoolRateSize rateSize : sample) {
+                totalVSizes.merge(rateSize.getFee(), rateSize.getVSize(), Long::sum);
+            }
+        }
+
+        Set<MempoolRateSize> averaged = new TreeSet<>();
+        for(Map.Entry<Double, Long> entry : totalVSizes.entrySet()) {
+            averaged.add(new MempoolRateSize(entry.getKey(), entry.getValue() / samples.size()));
+        }
+
+        return averaged;
+    }
+
+    public synchronized TreeMap<Date, Set<MempoolRateSize>> getSnapshots(Tier tier) {
+        return new TreeMap<>(tiers.get(tier));
+    }
+
+    /**
+     * @return the snapshots from the finest tier that covers the requested period. As coarser tiers only hold completed periods,
+     * the period in progress is added as the average of the finer snapshots within it, so the most recent point is never more than a minute old.
+     */
+    public synchronized TreeMap<Date, Set<MempoolRateSize>> getSnapshots(long periodHours) {
+        Tier tier = Arrays.stream(Tier.values()).filter(t -> periodHours <= t.getPeriodHours()).findFirst().orElse(Tier.DAY);
+        TreeMap<Date, Set<MempoolRateSize>> snapshots = getSnapshots(tier);
+        Map.Entry<Date, Set<MempoolRateSize>> currentPeriod = getCurrentPeriod(tier);
+        if(currentPeriod != null) {
+            snapshots.put(currentPeriod.getKey(), currentPeriod.getValue());
+        }
+
+        return snapshots;
+    }
+
+    private Map.Entry<Date, Set<MempoolRateSize>> getCurrentPeriod(Tier tier) {
+        TreeMap<Date, Set<MempoolRateSize>> minutes = tiers.get(Tier.MINUTE);
+        if(tier == Tier.MINUTE || minutes.isEmpty()) {
+            return null;
+        }
+
+        Date periodStart = truncate(minutes.lastKey(), tier);
+        if(tiers.get(tier).containsKey(periodStart)) {
+            return null;
+        }
+
+        Tier fine = Tier.values()[tier.ordinal() - 1];
+        List<Set<MempoolRateSize>> samples = new ArrayList<>(tiers.get(fine).tailMap(periodStart, true).values());
+        Map.Entry<Date, Set<MempoolRateSize>> fineCurrentPeriod = getCurrentPeriod(fine);
+        if(fineCurrentPeriod != null) {
+            samples.add(fineCurrentPeriod.getValue());
+        }
+
+        return samples.isEmpty() ? null : Map.entry(periodStart, average(samples));
+    }
+
+    public synchronized Optional<Date> getEarliest() {
+        return tiers.values().stream().filter(snapshots -> !snapshots.isEmpty()).map(TreeMap::firstKey).min(Date::compareTo);
+    }
+
+    /**
+     * @return the most recent snapshot, or null if there is none within the minute tier period
+     */
+    public synchronized Set<MempoolRateSize> getLatest() {
+        TreeMap<Date, Set<MempoolRateSize>> minutes = tiers.get(Tier.MINUTE);
+        Date minuteTierStart = Date.from(LocalDateTime.now().minusMinutes(Tier.MINUTE.capacity).atZone(ZoneId.systemDefault()).toInstant());
+        return minutes.isEmpty() || minutes.lastKey().before(minuteTierStart) ? null : minutes.lastEntry().getValue();
+    }
+
+    public synchronized void clear() {
+        tiers.values().forEach(TreeMap::clear);
+    }
+
+    public static MempoolHistory load(File file) {
+        MempoolHistory mempoolHistory = new MempoolHistory();
+        if(!file.exists()) {
+            return mempoolHistory;
+        }
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            if(in.readInt() != FILE_VERSION) {
+                return mempoolHistory;
+            }
+
+            for(Tier tier : Tier.values()) {
+                int snapshotCount = in.readInt();
+                for(int i = 0; i < snapshotCount; i++) {
+                    Date date = new Date(in.readLong());
+                    int rateSizeCount = in.readInt();
+                    Set<MempoolRateSize> rateSizes = new TreeSet<>();
+                    for(int j = 0; j < rateSizeCount; j++) {
+                        rateSizes.add(new MempoolRateSize(in.readDouble(), in.readLong()));
+                    }
+                    mempoolHistory.put(tier, date, rateSizes);
+                }
+            }
+        } catch(IOException e) {
+            log.warn("Error reading mempool history from " + file.getAbsolutePath(), e);
+            mempoolHistory.clear();
+        }
+
+        return mempoolHistory;
+    }
+
+    public void save(File file) {
+        Map<Tier, TreeMap<Date, Set<MempoolRateSize>>> copy = new EnumMap<>(Tier.class);
+        for(Tier tier : Tier.values()) {
+            copy.put(tier, getSnapshots(tier));
+        }
+
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))))) {
+                out.writeInt(FILE_VERSION);
+                for(Tier tier : Tier.values()) {
+                    TreeMap<Date, Set<MempoolRateSize>> snapshots = copy.get(tier);
+                    out.writeInt(snapshots.size());
+                    for(Map.Entry<Date, Set<MempoolRateSize>> snapshot : snapshots.entrySet()) {
+                        out.writeLong(snapshot.getKey().getTime());
+                        out.writeInt(snapshot.getValue().size());
+                        for(MempoolRateSize rateSize : snapshot.getValue()) {
+                            out.writeDouble(rateSize.getFee());
+                            out.writeLong(rateSize.getVSize());
+                        }
+                    }
+                }
+            }
+
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            log.warn("Error saving mempool history to " + file.getAbsolutePath(), e);
+            if(tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static Date truncate(Date date, Tier tier) {
+        return Date.from(toLocalDateTime(date).truncatedTo(tier.unit).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
@@ -0,0 +1,99 @@
+package com.sparrowwallet.sparrow.net;
+
+import com.github.arteam.simplejsonrpc.client.JsonRpcClient;
+import com.sparrowwallet.sparrow.io.Config;
+import com.sparrowwallet.sparrow.io.Server;
+import javafx.concurrent.ScheduledService;
+import javafx.concurrent.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically measures connection handshake, server.version and block header latency to each public Electrum server, keeping
+ * a rolling score for each in the config. Returns the best scoring server if the currently configured server has degraded past
+ * the migration threshold, or null if no change is required.
+ * As each probe connects to every public server, revealing the user's IP address to all of them unless a proxy is configured,
+ * probing only takes place when automatic public server selection has been enabled, and always uses the configured proxy.
+ */
+public class PublicServerProbeService extends ScheduledService<Server> {
+    private static final Logger log = LoggerFactory.getLogger(PublicServerProbeService.class);
+
+    @Override
+    protected Task<Server> createTask() {
+        return new Task<>() {
+            protected Server call() {
+                if(!Config.get().isAutoSelectPublicServer() || Config.get().getServerType() != ServerType.PUBLIC_ELECTRUM_SERVER) {
+                    return null;
+                }
+
+                List<Server> candidates = PublicElectrumServer.getServers().stream().map(PublicElectrumServer::getServer).collect(Collectors.toList());
+                ServerLatencyScores scores = new ServerLatencyScores(new HashMap<>(Config.get().getPublicServerLatencies()));
+
+                for(Server server : candidates) {
+                    if(isCancelled()) {
+                        return null;
+                    }
+
+                    try {
+                        CloseableTransport transport = ElectrumServer.createTransport(server, null, Config.get().getProxyServer());
+                        if(transport instanceof TcpTransport tcpTransport) {
+                            long latency = probe(tcpTransport);
+                            log.debug("Probed " + server.getDisplayName() + " in " + latency + "ms");
+                            scores.record(server, latency);
+                        }
+                    } catch(Exception e) {
+                        log.debug("Failed to probe " + server.getDisplayName() + ": " + e.getMessage());
+                        scores.recordFailure(server);
+                    }
+                }
+
+                Config.get().setPublicServerLatencies(scores.getScores());
+
+                Server current = Config.get().getPublicElectrumServer();
+                if(current != null && scores.isDegraded(current, candidates)) {
+                    Optional<Server> optBest = scores.getBest(candidates);
+                    if(optBest.isPresent()) {
+                        log.info("Public server " + current.getDisplayName() + " has degraded, switching to " + optBest.get().getDisplayName());
+                        return optBest.get();
+                    }
+                }
+
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Connects to the server and performs a server.version handshake followed by a block header request, returning the total elapsed time.
+     */
+    public static long probe(TcpTransport transport) throws Exception {
+        long start = System.currentTimeMillis();
+        try {
+            transport.connect();
+
+            Thread reader = new Thread(() -> {
+                try {
+                    transport.readInputLoop();
+                } catch(ServerException e) {
+                    log.debug("Probe read thread terminated", e);
+                }
+            }, "PublicServerProbeReadThread");
+            reader.setDaemon(true);
+            reader.start();
+
+            JsonRpcClient client = new JsonRpcClient(transport);
+            client.createRequest().returnAsList(String.class).method("server.version").id(1)
+                    .param("client_name", "Sparrow").param("protocol_version", ElectrumServer.SUPPORTED_VERSIONS).execute();
+            client.createRequest().returnAs(String.class).method("blockchain.block.header").id(2).params(0).execute();
+
+            return System.currentTimeMillis() - start;
+        } finally {
+            transport.close();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.sparrowwallet.sparrow.net;
+
+import com.sparrowwallet.sparrow.io.Server;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Rolling latency scores for Electrum servers, keyed by server URL. Scores are exponentially weighted moving averages in milliseconds,
+ * so lower is better. A failed probe is recorded as a large latency so that unreliable servers drift to the bottom of the ranking.
+ */
+public class ServerLatencyScores {
+    private static final double SMOOTHING_FACTOR = 0.3;
+    public static final long FAILURE_LATENCY_MILLIS = 60 * 1000;
+    private static final double DEGRADED_RATIO = 2.0;
+    private static final long MIN_DEGRADED_LATENCY_MILLIS = 1500;
+
+    private final Map<String, Double> scores;
+
+    public ServerLatencyScores(Map<String, Double> scores) {
+        this.scores = scores;
+    }
+
+    public void record(Server server, long latencyMillis) {
+        scores.merge(server.getUrl(), (double)latencyMillis, (previous, latest) -> previous + SMOOTHING_FACTOR * (latest - previous));
+    }
+
+    public void recordFailure(Server server) {
+        record(server, FAILURE_LATENCY_MILLIS);
+    }
+
+    public Double getScore(Server server) {
+        return scores.get(server.getUrl());
+    }
+
+    public Optional<Server> getBest(Collection<Server> candidates) {
+        return candidates.stream().filter(server -> getScore(server) != null).min(Comparator.comparingDouble(this::getScore));
+    }
+
+    /**
+     * The current server is considered degraded when it is slower than the threshold in absolute terms, and substantially slower than the best candidate.
+     */
+    public boolean isDegraded(Server current, Collection<Server> candidates) {
+        Double currentScore = getScore(current);
+        if(currentScore == null || currentScore < MIN_DEGRADED_LATENCY_MILLIS) {
+            return false;
+        }
+
+        Optional<Server> optBest = getBest(candidates);
+        return optBest.isPresent() && !optBest.get().equals(current) && currentScore > getScore(optBest.get()) * DEGRADED_RATIO;
+    }
+
+    public Map<String, Double> getScores() {
+        return scores;
+    }
+}
@@ -0,0 +1,53 @@
+package com.sparrowwallet.sparrow.net;
+
+import com.sparrowwallet.drongo.protocol.Sha256Hash;
+import com.sparrowwallet.drongo.wallet.BlockTransaction;
+import com.sparrowwallet.drongo.wallet.BlockTransactionHash;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records the transaction spending an output once the spend has enough confirmations that it is not expected to change,
+ * so that the script hash history of the output does not need to be fetched again in the same session.
+ * The spending transactions are held in the shared map of retrieved transactions.
+ */
+public class SpentOutputCache {
+    private final Map<Sha256Hash, BlockTransaction> transactions;
+    private final Map<String, Sha256Hash> spentOutputs = Collections.synchronizedMap(new HashMap<>());
+
+    public SpentOutputCache(Map<Sha256Hash, BlockTransaction> transactions) {
+        this.transactions = transactions;
+    }
+
+    /**
+     * @return the transaction spending the output, or null if it is not known to be spent with sufficient confirmations
+     */
+    public BlockTransaction getSpendingTransaction(Sha256Hash txid, int index) {
+        Sha256Hash spentBy = spentOutputs.get(getKey(txid, index));
+        return spentBy == null ? null : transactions.get(spentBy);
+    }
+
+    /**
+     * Records the spending transaction for the output if it has at least {@link BlockTransactionHash#BLOCKS_TO_CONFIRM} confirmations
+     * @return true if the spend was recorded
+     */
+    public boolean putSpendingTransaction(Sha256Hash txid, int index, BlockTransaction spendingTransaction, Integer currentBlockHeight) {
+        if(currentBlockHeight == null || spendingTransaction.getConfirmations(currentBlockHeight) < BlockTransactionHash.BLOCKS_TO_CONFIRM) {
+            return false;
+        }
+
+        transactions.put(spendingTransaction.getHash(), spendingTransaction);
+        spentOutputs.put(getKey(txid, index), spendingTransaction.getHash());
+        return true;
+    }
+
+    public void clear() {
+        spentOutputs.clear();
+    }
+
+    private static String getKey(Sha256Hash txid, int index) {
+        return txid + ":" + index;
+    }
+}
@@ -0,0 +1,213 @@
+package com.sparrowwallet.sparrow.net;
+
+import com.sparrowwallet.drongo.Utils;
+import com.sparrowwallet.drongo.protocol.Transaction;
+import com.sparrowwallet.sparrow.io.Storage;
+import javafx.concurrent.Service;
+import javafx.concurrent.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * A disk backed store of raw transactions keyed by txid, shared by all wallets in the Sparrow home directory.
+ * As a transaction's content determines its txid, entries never need invalidating. Each entry is checked against its txid when
+ * written and read, so a corrupt or tampered file is treated as a cache miss and removed.
+ * The cache is bounded in size, evicting the least recently used entries once full. Reading an entry updates its modification time to mark it as used.
+ */
+public class TransactionCache {
+    private static final Logger log = LoggerFactory.getLogger(TransactionCache.class);
+
+    public static final String TRANSACTIONS_DIR = "txcache";
+    public static final long DEFAULT_MAX_SIZE = 100 * 1024 * 1024;
+    //Evict down to this fraction of the maximum size, so that eviction does not run again on the next write
+    private static final double EVICT_TO_FRACTION = 0.9;
+
+    private static TransactionCache INSTANCE;
+
+    private final File cacheDir;
+    private final long maxSize;
+    private long size = -1;
+
+    public TransactionCache(File cacheDir) {
+        this(cacheDir, DEFAULT_MAX_SIZE);
+    }
+
+    public TransactionCache(File cacheDir, long maxSize) {
+        this.cacheDir = cacheDir;
+        this.maxSize = maxSize;
+    }
+
+    public static synchronized TransactionCache get() {
+        if(INSTANCE == null) {
+            INSTANCE = new TransactionCache(new File(Storage.getSparrowDir(), TRANSACTIONS_DIR));
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * @return the raw transaction hex for each of the provided txids that is present in the cache
+     */
+    public Map<String, String> getAll(Collection<String> txids) {
+        Map<String, String> cached = new LinkedHashMap<>();
+        for(String txid : txids) {
+            String rawTx = get(txid);
+            if(rawTx != null) {
+                cached.put(txid, rawTx);
+            }
+        }
+
+        return cached;
+    }
+
+    public String get(String txid) {
+        File txFile = getFile(txid);
+        if(txFile == null || !txFile.exists()) {
+            return null;
+        }
+
+        try {
+            byte[] rawTx = Files.readAllBytes(txFile.toPath());
+            if(matchesTxid(txid, rawTx)) {
+                if(!txFile.setLastModified(System.currentTimeMillis())) {
+                    log.debug("Could not update last modified time of cached transaction " + txid);
+                }
+                return Utils.bytesToHex(rawTx);
+            }
+
+            log.warn("Removing invalid cached transaction " + txid);
+            removeAll(List.of(txid));
+        } catch(IOException e) {
+            log.debug("Error reading cached transaction " + txid, e);
+        }
+
+        return null;
+    }
+
+    public synchronized void put(String txid, String strRawTx) {
+        File txFile = getFile(txid);
+        if(txFile == null || txFile.exists() || strRawTx == null) {
+            return;
+        }
+
+        try {
+            byte[] rawTx = Utils.hexToBytes(strRawTx);
+            if(!matchesTxid(txid, rawTx)) {
+                return;
+            }
+
+            File txDir = txFile.getParentFile();
+            if(!txDir.exists() && !Storage.createOwnerOnlyDirectory(txDir)) {
+                return;
+            }
+
+            long currentSize = getSize();
+
+            //Write to a temporary file first so that a partially written entry is never visible to readers
+            File tempFile = File.createTempFile(txid, ".tmp", txDir);
+            try {
+                Files.write(tempFile.toPath(), rawTx);
+                Files.move(tempFile.toPath(), txFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile.toPath());
+            }
+
+            size = currentSize + rawTx.length;
+            if(size > maxSize) {
+                evict();
+            }
+        } catch(Exception e) {
+            log.debug("Error caching transaction " + txid, e);
+        }
+    }
+
+    public synchronized void removeAll(Collection<String> txids) {
+        for(String txid : txids) {
+            File txFile = getFile(txid);
+            if(txFile != null && txFile.exists()) {
+                long length = txFile.length();
+                if(txFile.delete() && size >= 0) {
+                    size -= length;
+                }
+            }
+        }
+    }
+
+    synchronized long getSize() {
+        if(size < 0) {
+            size = getEntries().stream().mapToLong(File::length).sum();
+        }
+
+        return size;
+    }
+
+    private void evict() {
+        List<File> entries = getEntries();
+        entries.sort(Comparator.comparingLong(File::lastModified));
+        long evictTo = (long)(maxSize * EVICT_TO_FRACTION);
+        for(Iterator<File> iter = entries.iterator(); iter.hasNext() && size > evictTo; ) {
+            File entry = iter.next();
+            long length = entry.length();
+            if(entry.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private List<File> getEntries() {
+        List<File> entries = new ArrayList<>();
+        File[] txDirs = cacheDir.listFiles(File::isDirectory);
+        for(File txDir : txDirs == null ? new File[0] : txDirs) {
+            File[] txFiles = txDir.listFiles((dir, name) -> !name.endsWith(".tmp"));
+            if(txFiles != null) {
+                entries.addAll(Arrays.asList(txFiles));
+            }
+        }
+
+        return entries;
+    }
+
+    private File getFile(String txid) {
+        if(txid == null || !txid.matches("[0-9a-f]{64}")) {
+            return null;
+        }
+
+        //Spread entries over subdirectories by txid prefix to keep directory listings small
+        return new File(new File(cacheDir, txid.substring(0, 2)), txid);
+    }
+
+    private static boolean matchesTxid(String txid, byte[] rawTx) {
+        try {
+            return new Transaction(rawTx).getTxId().toString().equals(txid);
+        } catch(Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes the transactions of a deleted wallet from the cache. Other wallets referring to the same transactions fetch them from the server again.
+     */
+    public static class RemoveTransactionsService extends Service<Void> {
+        private final Collection<String> txids;
+
+        public RemoveTransactionsService(Collection<String> txids) {
+            this.txids = txids;
+        }
+
+        @Override
+        protected Task<Void> createTask() {
+            return new Task<>() {
+                protected Void call() {
+                    TransactionCache.get().removeAll(txids);
+                    return null;
+                }
+            };
+        }
+    }
+}
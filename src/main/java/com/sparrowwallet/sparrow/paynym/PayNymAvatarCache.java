@@ -0,0 +1,333 @@
+package com.sparrowwallet.sparrow.paynym;
+
+import com.google.gson.Gson;
+import com.sparrowwallet.sparrow.AppServices;
+import com.sparrowwallet.sparrow.io.Storage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * A disk cache of PayNym avatar images. Image data is stored by the hash of its content, with a small record for each payment code holding
+ * the content hash and the validators returned by the server. Cached avatars are served without a request until they are due for revalidation,
+ * after which a conditional request is made. Concurrent requests for the same avatar share a single fetch, and the number of fetches in progress
+ * at once is limited, so that opening a list of many PayNyms does not flood the Tor circuit.
+ * The cache holds a limited number of avatars, with the least recently checked removed first along with any image data no longer referenced.
+ * Avatars shown for encrypted wallets are not written, since the records and the images would both reveal the wallet's contacts.
+ */
+public class PayNymAvatarCache {
+    private static final Logger log = LoggerFactory.getLogger(PayNymAvatarCache.class);
+
+    public static final String AVATARS_DIR = "avatars";
+    private static final int MAX_CONCURRENT_FETCHES = 2;
+    private static final int MAX_CACHED_AVATARS = 500;
+    private static final long REVALIDATE_AFTER_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final int MAX_AVATAR_BYTES = 1024 * 1024;
+    private static final int TIMEOUT_MILLIS = 30000;
+    private static final String RECORD_EXTENSION = ".json";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static PayNymAvatarCache avatarCache;
+
+    private final File cacheDir;
+    private final BiFunction<String, Proxy, String> urlFunction;
+    private final Supplier<Proxy> proxySupplier;
+    private final long revalidateAfterMillis;
+    private final int maxCachedAvatars;
+    private final Semaphore fetchPermits;
+    private final Map<LoadKey, CompletableFuture<byte[]>> loading = new ConcurrentHashMap<>();
+
+    public PayNymAvatarCache(File cacheDir, BiFunction<String, Proxy, String> urlFunction, Supplier<Proxy> proxySupplier, int maxConcurrentFetches, long revalidateAfterMillis, int maxCachedAvatars) {
+        this.cacheDir = cacheDir;
+        this.urlFunction = urlFunction;
+        this.proxySupplier = proxySupplier;
+        this.revalidateAfterMillis = revalidateAfterMillis;
+        this.maxCachedAvatars = maxCachedAvatars;
+        this.fetchPermits = new Semaphore(maxConcurrentFetches, true);
+    }
+
+    public static synchronized PayNymAvatarCache get() {
+        if(avatarCache == null) {
+            avatarCache = new PayNymAvatarCache(new File(Storage.getSparrowDir(), AVATARS_DIR),
+                    (paymentCode, proxy) -> PayNymService.getHostUrl(proxy != null) + "/" + paymentCode + "/avatar",
+                    AppServices::getProxy, MAX_CONCURRENT_FETCHES, REVALIDATE_AFTER_MILLIS, MAX_CACHED_AVATARS);
+        }
+
+        return avatarCache;
+    }
+
+    /**
+     * Returns the avatar image data for a payment code, blocking while it is fetched if necessary
+     *
+     * @param paymentCode the payment code
+     * @param online whether the avatar may be fetched or revalidated, otherwise only a cached copy is returned
+     * @param persist whether a fetched avatar may be written to the disk cache
+     * @return the image data
+     * @throws IOException if there is no cached copy and the avatar could not be fetched
+     */
+    public byte[] getAvatar(String paymentCode, boolean online, boolean persist) throws IOException, InterruptedException {
+        LoadKey loadKey = new LoadKey(paymentCode, persist);
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = loading.putIfAbsent(loadKey, future);
+        if(existing != null) {
+            try {
+                return existing.get();
+            } catch(ExecutionException e) {
+                throw e.getCause() instanceof IOException ioException ? ioException : new IOException(e.getCause());
+            }
+        }
+
+        try {
+            byte[] avatar = loadAvatar(paymentCode, online, persist);
+            future.complete(avatar);
+            return avatar;
+        } catch(IOException | InterruptedException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(loadKey, future);
+        }
+    }
+
+    private byte[] loadAvatar(String paymentCode, boolean online, boolean persist) throws IOException, InterruptedException {
+        AvatarRecord avatarRecord = readRecord(paymentCode);
+        byte[] cached = avatarRecord == null ? null : readContent(avatarRecord.contentHash);
+        if(cached != null && (!online || System.currentTimeMillis() - avatarRecord.checked < revalidateAfterMillis)) {
+            return cached;
+        }
+
+        if(!online) {
+            throw new IOException("No cached avatar for " + paymentCode);
+        }
+
+        try {
+            return fetchAvatar(paymentCode, cached == null ? null : avatarRecord, cached, persist);
+        } catch(IOException e) {
+            if(cached != null) {
+                log.debug("Could not revalidate PayNym avatar, using cached copy", e);
+                return cached;
+            }
+
+            throw e;
+        }
+    }
+
+    private byte[] fetchAvatar(String paymentCode, AvatarRecord avatarRecord, byte[] cached, boolean persist) throws IOException, InterruptedException {
+        fetchPermits.acquire();
+        try {
+            Proxy proxy = proxySupplier.get();
+            String url = urlFunction.apply(paymentCode, proxy);
+            if(log.isDebugEnabled()) {
+                log.debug((avatarRecord == null ? "Requesting" : "Revalidating") + " PayNym avatar from " + url);
+            }
+
+            HttpURLConnection connection = (HttpURLConnection)(proxy == null ? URI.create(url).toURL().openConnection() : URI.create(url).toURL().openConnection(proxy));
+            try {
+                connection.setConnectTimeout(TIMEOUT_MILLIS);
+                connection.setReadTimeout(TIMEOUT_MILLIS);
+                if(avatarRecord != null) {
+                    if(avatarRecord.etag != null) {
+                        connection.setRequestProperty("If-None-Match", avatarRecord.etag);
+                    }
+                    if(avatarRecord.lastModified != null) {
+                        connection.setRequestProperty("If-Modified-Since", avatarRecord.lastModified);
+                    }
+                }
+
+                int responseCode = connection.getResponseCode();
+                if(responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && avatarRecord != null) {
+                    if(persist) {
+                        avatarRecord.checked = System.currentTimeMillis();
+                        store(paymentCode, avatarRecord, null);
+                    }
+                    return cached;
+                }
+
+                if(responseCode != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("Server returned " + responseCode + " for PayNym avatar " + paymentCode);
+                }
+
+                byte[] avatar;
+                try(InputStream inputStream = connection.getInputStream()) {
+                    avatar = inputStream.readNBytes(MAX_AVATAR_BYTES + 1);
+                }
+                if(avatar.length > MAX_AVATAR_BYTES) {
+                    throw new IOException("PayNym avatar for " + paymentCode + " is too large");
+                }
+
+                if(persist) {
+                    AvatarRecord fetchedRecord = new AvatarRecord();
+                    fetchedRecord.contentHash = hash(avatar);
+                    fetchedRecord.etag = connection.getHeaderField("ETag");
+                    fetchedRecord.lastModified = connection.getHeaderField("Last-Modified");
+                    fetchedRecord.checked = System.currentTimeMillis();
+                    store(paymentCode, fetchedRecord, avatar);
+                }
+
+                return avatar;
+            } finally {
+                connection.disconnect();
+            }
+        } finally {
+            fetchPermits.release();
+        }
+    }
+
+    /**
+     * Writes the record, and the content if provided, then removes the least recently checked records beyond the maximum and any content
+     * they no longer reference. Writing and pruning are serialized so that content is never removed between being written and referenced.
+     */
+    private synchronized void store(String paymentCode, AvatarRecord avatarRecord, byte[] content) throws IOException {
+        if(content != null) {
+            writeContent(content);
+        }
+        writeRecord(paymentCode, avatarRecord);
+
+        if(content != null) {
+            prune();
+        }
+    }
+
+    private void prune() {
+        File[] recordFiles = cacheDir.listFiles((dir, name) -> name.endsWith(RECORD_EXTENSION));
+        if(recordFiles == null) {
+            return;
+        }
+
+        Map<File, AvatarRecord> records = new HashMap<>();
+        for(File recordFile : recordFiles) {
+            AvatarRecord avatarRecord = readRecord(recordFile);
+            if(avatarRecord == null) {
+                deleteFile(recordFile);
+            } else {
+                records.put(recordFile, avatarRecord);
+            }
+        }
+
+        List<File> leastRecentlyChecked = new ArrayList<>(records.keySet());
+        leastRecentlyChecked.sort(Comparator.comparingLong(recordFile -> records.get(recordFile).checked));
+        for(int i = 0; i < leastRecentlyChecked.size() - maxCachedAvatars; i++) {
+            File recordFile = leastRecentlyChecked.get(i);
+            records.remove(recordFile);
+            deleteFile(recordFile);
+        }
+
+        Set<String> referencedContent = records.values().stream().map(avatarRecord -> avatarRecord.contentHash).collect(Collectors.toSet());
+        File[] contentFiles = cacheDir.listFiles((dir, name) -> !name.endsWith(RECORD_EXTENSION) && !name.endsWith(TEMP_EXTENSION));
+        if(contentFiles != null) {
+            for(File contentFile : contentFiles) {
+                if(!referencedContent.contains(contentFile.getName())) {
+                    deleteFile(contentFile);
+                }
+            }
+        }
+    }
+
+    private static void deleteFile(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch(IOException e) {
+            log.debug("Error deleting PayNym avatar cache file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private AvatarRecord readRecord(String paymentCode) {
+        File recordFile = new File(cacheDir, getRecordName(paymentCode));
+        if(!recordFile.exists()) {
+            return null;
+        }
+
+        return readRecord(recordFile);
+    }
+
+    private AvatarRecord readRecord(File recordFile) {
+        try(Reader reader = new InputStreamReader(new FileInputStream(recordFile), StandardCharsets.UTF_8)) {
+            AvatarRecord avatarRecord = new Gson().fromJson(reader, AvatarRecord.class);
+            if(avatarRecord != null && avatarRecord.contentHash != null) {
+                return avatarRecord;
+            }
+        } catch(Exception e) {
+            log.debug("Error reading PayNym avatar record " + recordFile.getAbsolutePath(), e);
+        }
+
+        return null;
+    }
+
+    private void writeRecord(String paymentCode, AvatarRecord avatarRecord) throws IOException {
+        byte[] data = new Gson().toJson(avatarRecord).getBytes(StandardCharsets.UTF_8);
+        write(getRecordName(paymentCode), data);
+    }
+
+    private static String getRecordName(String paymentCode) {
+        return hash(paymentCode.getBytes(StandardCharsets.UTF_8)) + RECORD_EXTENSION;
+    }
+
+    private byte[] readContent(String contentHash) {
+        File contentFile = new File(cacheDir, contentHash);
+        if(contentFile.exists()) {
+            try {
+                byte[] content = Files.readAllBytes(contentFile.toPath());
+                if(hash(content).equals(contentHash)) {
+                    return content;
+                }
+            } catch(IOException e) {
+                log.debug("Error reading PayNym avatar " + contentFile.getAbsolutePath(), e);
+            }
+        }
+
+        return null;
+    }
+
+    private void writeContent(byte[] content) throws IOException {
+        String contentHash = hash(content);
+        if(!new File(cacheDir, contentHash).exists()) {
+            write(contentHash, content);
+        }
+    }
+
+    private void write(String name, byte[] data) throws IOException {
+        if(!cacheDir.exists() && !Storage.createOwnerOnlyDirectory(cacheDir)) {
+            throw new IOException("Could not create PayNym avatar cache folder " + cacheDir.getAbsolutePath());
+        }
+
+        //Write to a temporary file first so that readers never see a partially written file
+        File tempFile = File.createTempFile(name, TEMP_EXTENSION, cacheDir);
+        try {
+            Files.write(tempFile.toPath(), data);
+            Files.move(tempFile.toPath(), new File(cacheDir, name).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class AvatarRecord {
+        private String contentHash;
+        private String etag;
+        private String lastModified;
+        private long checked;
+    }
+
+    private record LoadKey(String paymentCode, boolean persist) {}
+}
@@ -0,0 +1,95 @@
+package com.sparrowwallet.sparrow.paynym;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Caches PayNyms looked up by payment code, so that scanning the notification transactions of a wallet does not look up the same PayNym again.
+ * Lookups for several payment codes are made concurrently, bounded by the size of the executor they are submitted to.
+ * Failed lookups are not cached, since they generally indicate either an unregistered payment code or a transient network error.
+ * The cache is held in memory only, since a file of payment codes would reveal the contacts of every wallet opened, including encrypted ones.
+ */
+public class PayNymCache {
+    private static final Logger log = LoggerFactory.getLogger(PayNymCache.class);
+
+    private static final long EXPIRY_MILLIS = TimeUnit.HOURS.toMillis(6);
+
+    private static PayNymCache payNymCache;
+
+    private final Function<String, PayNym> lookup;
+    private final long expiryMillis;
+    private final Map<String, CachedPayNym> payNyms = new ConcurrentHashMap<>();
+
+    public PayNymCache(Function<String, PayNym> lookup, long expiryMillis) {
+        this.lookup = lookup;
+        this.expiryMillis = expiryMillis;
+    }
+
+    public static synchronized PayNymCache get() {
+        if(payNymCache == null) {
+            payNymCache = new PayNymCache(paymentCode -> PayNymService.getPayNym(paymentCode).blockingFirst(), EXPIRY_MILLIS);
+        }
+
+        return payNymCache;
+    }
+
+    /**
+     * Returns the PayNym registered for a payment code, blocking if it must be looked up
+     *
+     * @return the PayNym, or null if none could be found
+     */
+    public PayNym getPayNym(String paymentCode) {
+        CachedPayNym cachedPayNym = payNyms.get(paymentCode);
+        if(cachedPayNym != null && System.currentTimeMillis() - cachedPayNym.timestamp() < expiryMillis) {
+            return cachedPayNym.payNym();
+        }
+
+        try {
+            PayNym payNym = lookup.apply(paymentCode);
+            if(payNym != null) {
+                payNyms.put(paymentCode, new CachedPayNym(payNym, System.currentTimeMillis()));
+            }
+            return payNym;
+        } catch(Exception e) {
+            log.debug("Could not find PayNym for " + paymentCode, e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Looks up the PayNyms for several payment codes concurrently on the provided executor
+     *
+     * @return the PayNyms found, keyed by payment code in the order provided
+     */
+    public Map<String, PayNym> getPayNyms(Collection<String> paymentCodes, ExecutorService executor) throws InterruptedException {
+        Map<String, Future<PayNym>> futures = new LinkedHashMap<>();
+        for(String paymentCode : paymentCodes) {
+            futures.computeIfAbsent(paymentCode, code -> executor.submit(() -> getPayNym(code)));
+        }
+
+        Map<String, PayNym> found = new LinkedHashMap<>();
+        try {
+            for(Map.Entry<String, Future<PayNym>> entry : futures.entrySet()) {
+                try {
+                    PayNym payNym = entry.getValue().get();
+                    if(payNym != null) {
+                        found.put(entry.getKey(), payNym);
+                    }
+                } catch(ExecutionException e) {
+                    log.debug("Could not find PayNym for " + entry.getKey(), e.getCause());
+                }
+            }
+        } finally {
+            futures.values().forEach(future -> future.cancel(true));
+        }
+
+        return found;
+    }
+
+    private record CachedPayNym(PayNym payNym, long timestamp) {}
+}
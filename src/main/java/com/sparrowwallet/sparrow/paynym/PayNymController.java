@@ -103,6 +103,7 @@ public class PayNymController {
         if(masterWallet.hasPaymentCode()) {
             paymentCode.setPaymentCode(masterWallet.getPaymentCode());
         }
+        payNymAvatar.setPersistent(isAvatarPersistent());
 
         findNymProperty.addListener((observable, oldValue, nymIdentifier) -> {
             if(nymIdentifier != null) {
@@ -365,7 +366,7 @@ public class PayNymController {
                     dlg.initOwner(payNymName.getScene().getWindow());
                     Optional<SecureString> password = dlg.showAndWait();
                     if(password.isPresent()) {
-                        Storage.DecryptWalletService decryptWalletService = new Storage.DecryptWalletService(wallet.copy(), password.get());
+                        Storage.DecryptWalletService decryptWalletService = new Storage.DecryptWalletService(wallet.copy(), storage, password.get());
                         decryptWalletService.setOnSucceeded(workerStateEvent -> {
                             EventManager.get().post(new StorageEvent(storage.getWalletId(wallet), TimedEvent.Action.END, "Done"));
                             Wallet decryptedWallet = decryptWalletService.getValue();
@@ -507,7 +508,7 @@ public class PayNymController {
             dlg.initOwner(payNymName.getScene().getWindow());
             Optional<SecureString> password = dlg.showAndWait();
             if(password.isPresent()) {
-                Storage.DecryptWalletService decryptWalletService = new Storage.DecryptWalletService(wallet.copy(), password.get());
+                Storage.DecryptWalletService decryptWalletService = new Storage.DecryptWalletService(wallet.copy(), storage, password.get());
                 decryptWalletService.setOnSucceeded(workerStateEvent -> {
                     EventManager.get().post(new StorageEvent(storage.getWalletId(wallet), TimedEvent.Action.END, "Done"));
                     Wallet decryptedWallet = decryptWalletService.getValue();
@@ -641,6 +642,14 @@ public class PayNymController {
         return wallet.isMasterWallet() ? wallet : wallet.getMasterWallet();
     }
 
+    /**
+     * @return true if PayNym avatars shown for this wallet may be cached on disk, which is only the case when the wallet is not encrypted
+     */
+    public boolean isAvatarPersistent() {
+        Storage storage = AppServices.get().getOpenWallets().get(getMasterWallet());
+        return storage != null && Storage.NO_PASSWORD_KEY.equals(storage.getEncryptionPubKey());
+    }
+
     protected boolean isUsePayNym(Wallet wallet) {
         //TODO: Remove config setting
         boolean usePayNym = Config.get().isUsePayNym();
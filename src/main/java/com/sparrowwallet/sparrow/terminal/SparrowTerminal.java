@@ -166,6 +166,7 @@ public class SparrowTerminal extends Application {
 
     public void lockWallet(Storage storage) {
         lockedWallets.add(storage.getWalletFile());
+        storage.clearDerivedKey();
     }
 
     public void unlockWallet(Storage storage) {
@@ -1034,14 +1034,15 @@ public class HeadersController extends TransactionFormController implements Init
         }
 
         Wallet copy = headersForm.getSigningWallet().copy();
-        String walletId = headersForm.getAvailableWallets().get(headersForm.getSigningWallet()).getWalletId(headersForm.getSigningWallet());
+        Storage storage = headersForm.getAvailableWallets().get(headersForm.getSigningWallet());
+        String walletId = storage.getWalletId(headersForm.getSigningWallet());
 
         if(copy.isEncrypted()) {
             WalletPasswordDialog dlg = new WalletPasswordDialog(copy.getMasterName(), WalletPasswordDialog.PasswordRequirement.LOAD);
             dlg.initOwner(signButton.getScene().getWindow());
             Optional<SecureString> password = dlg.showAndWait();
             if(password.isPresent()) {
-                Storage.DecryptWalletService decryptWalletService = new Storage.DecryptWalletService(copy, password.get());
+                Storage.DecryptWalletService decryptWalletService = new Storage.DecryptWalletService(copy, storage, password.get());
                 decryptWalletService.setOnSucceeded(workerStateEvent -> {
                     EventManager.get().post(new StorageEvent(walletId, TimedEvent.Action.END, "Done"));
                     Wallet decryptedWallet = decryptWalletService.getValue();
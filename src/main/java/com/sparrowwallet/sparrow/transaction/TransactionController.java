@@ -64,6 +64,9 @@ public class TransactionController implements Initializable {
     private boolean allInputsFetchedFromWallet;
     private boolean transactionsFetched;
 
+    private ElectrumServer.TransactionReferenceService inputPrefetchService;
+    private int inputPrefetchStart = -1;
+
     private TreeItem<TransactionForm> draggedItem;
     private TreeCell<TransactionForm> dropZone;
 
@@ -366,20 +369,40 @@ public class TransactionController implements Initializable {
         } else if(!AppServices.isConnected()) {
             EventManager.get().post(new BlockTransactionFetchedEvent(getTransaction(), blockTx, Collections.emptyMap(), 0, getTransaction().getInputs().size()));
         } else if(AppServices.isConnected() && indexStart < getTransaction().getInputs().size()) {
+            final BlockTransaction walletBlockTx = blockTx;
             Set<Sha256Hash> references = new HashSet<>();
-            if(getPSBT() == null) {
+            if(getPSBT() == null && walletBlockTx == null) {
                 references.add(getTransaction().getTxId());
             }
 
+            //Transactions in open wallets are served from the wallet, and only the remainder of the page is requested from the server
+            Map<Sha256Hash, BlockTransaction> walletInputTransactions = new HashMap<>();
             int maxIndex = Math.min(getTransaction().getInputs().size(), indexEnd);
             for(int i = indexStart; i < maxIndex; i++) {
                 TransactionInput input = getTransaction().getInputs().get(i);
                 if(!input.isCoinBase()) {
-                    references.add(input.getOutpoint().getHash());
+                    Sha256Hash inputReference = input.getOutpoint().getHash();
+                    if(inputTransactions.containsKey(inputReference)) {
+                        walletInputTransactions.put(inputReference, inputTransactions.get(inputReference));
+                    } else {
+                        references.add(inputReference);
+                    }
                 }
             }
 
             if(references.isEmpty()) {
+                if(walletBlockTx != null || !walletInputTransactions.isEmpty()) {
+                    transactionsFetched = true;
+                    EventManager.get().post(new BlockTransactionFetchedEvent(getTransaction(), walletBlockTx, walletInputTransactions, indexStart, maxIndex));
+                }
+                return;
+            }
+
+            //When the next page is still being prefetched, wait for it and then serve the page from the session cache
+            if(inputPrefetchService != null && inputPrefetchService.isRunning() && inputPrefetchStart == indexStart) {
+                inputPrefetchService.setOnSucceeded(prefetchEvent -> fetchThisAndInputBlockTransactions(indexStart, indexEnd));
+                inputPrefetchService.setOnFailed(prefetchEvent -> fetchThisAndInputBlockTransactions(indexStart, indexEnd));
+                inputPrefetchService = null;
                 return;
             }
 
@@ -387,8 +410,8 @@ public class TransactionController implements Initializable {
             transactionReferenceService.setOnSucceeded(successEvent -> {
                 transactionsFetched = true;
                 Map<Sha256Hash, BlockTransaction> transactionMap = transactionReferenceService.getValue();
-                BlockTransaction thisBlockTx = null;
-                Map<Sha256Hash, BlockTransaction> retrievedInputTransactions = new HashMap<>();
+                BlockTransaction thisBlockTx = walletBlockTx;
+                Map<Sha256Hash, BlockTransaction> retrievedInputTransactions = new HashMap<>(walletInputTransactions);
                 for(Sha256Hash txid : transactionMap.keySet()) {
                     BlockTransaction retrievedBlockTx = transactionMap.get(txid);
                     if(txid.equals(getTransaction().getTxId())) {
@@ -409,6 +432,10 @@ public class TransactionController implements Initializable {
                 Platform.runLater(() -> {
                     EventManager.get().post(new BlockTransactionFetchedEvent(getTransaction(), finalBlockTx, retrievedInputTransactions, indexStart, maxIndex));
                 });
+
+                if(maxIndex - indexStart == PageForm.PAGE_SIZE) {
+                    prefetchInputTransactions(maxIndex, maxIndex + PageForm.PAGE_SIZE, inputTransactions.keySet());
+                }
             });
             transactionReferenceService.setOnFailed(failedEvent -> {
                 log.error("Error fetching transaction or input references", failedEvent.getSource().getException());
@@ -423,6 +450,34 @@ public class TransactionController implements Initializable {
         }
     }
 
+    /**
+     * Fetches the input transactions of the next page in the background. Those with sufficient confirmations are kept in the session cache,
+     * so the page is served without waiting on the server when it is opened.
+     */
+    private void prefetchInputTransactions(int indexStart, int indexEnd, Set<Sha256Hash> walletReferences) {
+        if(indexStart <= inputPrefetchStart || indexStart >= getTransaction().getInputs().size()) {
+            return;
+        }
+
+        Set<Sha256Hash> references = new HashSet<>();
+        int maxIndex = Math.min(getTransaction().getInputs().size(), indexEnd);
+        for(int i = indexStart; i < maxIndex; i++) {
+            TransactionInput input = getTransaction().getInputs().get(i);
+            if(!input.isCoinBase() && !walletReferences.contains(input.getOutpoint().getHash())) {
+                references.add(input.getOutpoint().getHash());
+            }
+        }
+
+        if(references.isEmpty()) {
+            return;
+        }
+
+        inputPrefetchStart = indexStart;
+        inputPrefetchService = new ElectrumServer.TransactionReferenceService(references);
+        inputPrefetchService.setOnFailed(failedEvent -> log.debug("Error prefetching input transactions", failedEvent.getSource().getException()));
+        inputPrefetchService.start();
+    }
+
     private void fetchOutputBlockTransactions(int indexStart, int indexEnd) {
         if(AppServices.isConnected() && getPSBT() == null && indexStart < getTransaction().getOutputs().size()) {
             int maxIndex = Math.min(getTransaction().getOutputs().size(), indexEnd);
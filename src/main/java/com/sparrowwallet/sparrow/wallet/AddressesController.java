@@ -80,10 +80,8 @@ public class AddressesController extends WalletFormController implements Initial
     @Subscribe
     public void walletEntryLabelChanged(WalletEntryLabelsChangedEvent event) {
         if(event.getWallet().equals(walletForm.getWallet())) {
-            for(Entry entry : event.getEntries()) {
-                receiveTable.updateLabel(entry);
-                changeTable.updateLabel(entry);
-            }
+            receiveTable.updateLabels(event.getEntries());
+            changeTable.updateLabels(event.getEntries());
         }
     }
 
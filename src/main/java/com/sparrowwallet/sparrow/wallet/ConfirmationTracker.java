@@ -0,0 +1,134 @@
+package com.sparrowwallet.sparrow.wallet;
+
+import com.google.common.eventbus.Subscribe;
+import com.sparrowwallet.drongo.wallet.BlockTransactionHash;
+import com.sparrowwallet.drongo.wallet.Wallet;
+import com.sparrowwallet.sparrow.EventManager;
+import com.sparrowwallet.sparrow.WalletTabData;
+import com.sparrowwallet.sparrow.event.WalletBlockHeightChangedEvent;
+import com.sparrowwallet.sparrow.event.WalletTabsClosedEvent;
+
+import java.util.*;
+
+/**
+ * Updates the confirmations of transaction entries as new blocks arrive, using a single event bus subscription for all wallets.
+ * Entries are indexed per wallet by the height of their block, so on a new block only the buckets at or below that height are visited.
+ * Unconfirmed entries are not tracked since their confirmations cannot change until they are replaced by a confirmed entry,
+ * and entries are dropped once fully confirmed.
+ * Only the entries displayed in a wallet's transactions list are tracked. They are registered and unregistered by {@link WalletTransactionsEntry}
+ * as they are added to and removed from it, so entries created elsewhere for the same transaction do not displace them.
+ * Wallets and entries are tracked by identity.
+ */
+public class ConfirmationTracker {
+    private static ConfirmationTracker INSTANCE;
+
+    private final Map<Wallet, WalletEntries> walletEntries = new IdentityHashMap<>();
+
+    private ConfirmationTracker() {}
+
+    public static synchronized ConfirmationTracker get() {
+        if(INSTANCE == null) {
+            INSTANCE = new ConfirmationTracker();
+            EventManager.get().register(INSTANCE);
+        }
+
+        return INSTANCE;
+    }
+
+    public synchronized void track(TransactionEntry entry) {
+        int height = entry.getBlockTransaction().getHeight();
+        if(height <= 0 || !entry.isFullyConfirming()) {
+            return;
+        }
+
+        walletEntries.computeIfAbsent(entry.getWallet(), wallet -> new WalletEntries()).add(height, entry);
+    }
+
+    public synchronized void untrack(TransactionEntry entry) {
+        WalletEntries entries = walletEntries.get(entry.getWallet());
+        if(entries != null) {
+            entries.remove(entry);
+            if(entries.isEmpty()) {
+                walletEntries.remove(entry.getWallet());
+            }
+        }
+    }
+
+    public synchronized int getTrackedCount(Wallet wallet) {
+        WalletEntries entries = walletEntries.get(wallet);
+        return entries == null ? 0 : entries.trackedEntries.size();
+    }
+
+    public void updateConfirmations(Wallet wallet, int blockHeight) {
+        List<TransactionEntry> updateEntries = new ArrayList<>();
+
+        synchronized(this) {
+            WalletEntries entries = walletEntries.get(wallet);
+            if(entries == null) {
+                return;
+            }
+
+            //Entries mined above this height cannot have their confirmations calculated for it, so are left until a later block
+            entries.heightEntries.headMap(blockHeight, true).values().forEach(updateEntries::addAll);
+
+            //Entries mined at or below this height have now reached full confirmation, so are updated one last time and dropped
+            int fullyConfirmedHeight = blockHeight - BlockTransactionHash.BLOCKS_TO_FULLY_CONFIRM + 1;
+            entries.removeTo(fullyConfirmedHeight);
+            if(entries.isEmpty()) {
+                walletEntries.remove(wallet);
+            }
+        }
+
+        for(TransactionEntry entry : updateEntries) {
+            entry.setConfirmations(entry.getBlockTransaction().getConfirmations(blockHeight));
+        }
+    }
+
+    @Subscribe
+    public void blockHeightChanged(WalletBlockHeightChangedEvent event) {
+        if(event.getBlockHeight() != null) {
+            updateConfirmations(event.getWallet(), event.getBlockHeight());
+        }
+    }
+
+    @Subscribe
+    public void walletTabsClosed(WalletTabsClosedEvent event) {
+        synchronized(this) {
+            for(WalletTabData tabData : event.getClosedWalletTabData()) {
+                walletEntries.remove(tabData.getWalletForm().getWallet());
+            }
+        }
+    }
+
+    private static class WalletEntries {
+        private final NavigableMap<Integer, List<TransactionEntry>> heightEntries = new TreeMap<>();
+        private final Map<TransactionEntry, Integer> trackedEntries = new IdentityHashMap<>();
+
+        public void add(int height, TransactionEntry entry) {
+            if(trackedEntries.putIfAbsent(entry, height) == null) {
+                heightEntries.computeIfAbsent(height, h -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        public void remove(TransactionEntry entry) {
+            Integer height = trackedEntries.remove(entry);
+            if(height != null) {
+                List<TransactionEntry> entries = heightEntries.get(height);
+                entries.removeIf(heightEntry -> heightEntry == entry);
+                if(entries.isEmpty()) {
+                    heightEntries.remove(height);
+                }
+            }
+        }
+
+        public void removeTo(int height) {
+            NavigableMap<Integer, List<TransactionEntry>> removed = heightEntries.headMap(height, true);
+            removed.values().forEach(entries -> entries.forEach(trackedEntries::remove));
+            removed.clear();
+        }
+
+        public boolean isEmpty() {
+            return trackedEntries.isEmpty();
+        }
+    }
+}
@@ -5,7 +5,7 @@ import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
-import java.util.List;
+import java.util.*;
 
 public abstract class Entry {
     private final Wallet wallet;
@@ -56,13 +56,36 @@ public abstract class Entry {
                 || (entry.wallet.isNested() && wallet.getChildWallets().contains(entry.wallet));
     }
 
-    public void updateLabel(Entry entry) {
-        if(this.equals(entry)) {
-            labelProperty.set(entry.getLabel());
+    /**
+     * Updates the labels of this entry and its descendants from the equal entries provided, in a single pass over the tree
+     */
+    public void updateLabels(Collection<Entry> entries) {
+        Map<Object, List<Entry>> keyedEntries = new HashMap<>();
+        for(Entry entry : entries) {
+            keyedEntries.computeIfAbsent(entry.getLabelKey(), key -> new ArrayList<>()).add(entry);
+        }
+
+        updateLabels(entries, keyedEntries);
+    }
+
+    private void updateLabels(Collection<Entry> entries, Map<Object, List<Entry>> keyedEntries) {
+        Object labelKey = getLabelKey();
+        Collection<Entry> candidates = labelKey == null ? entries : keyedEntries.getOrDefault(labelKey, Collections.emptyList());
+        for(Entry entry : candidates) {
+            if(this.equals(entry)) {
+                labelProperty.set(entry.getLabel());
+            }
         }
 
         for(Entry child : getChildren()) {
-            child.updateLabel(entry);
+            child.updateLabels(entries, keyedEntries);
         }
     }
+
+    /**
+     * @return a key for the labelled object, equal for all entries that are equal to this one, or null if this entry must be compared with every entry
+     */
+    protected Object getLabelKey() {
+        return null;
+    }
 }
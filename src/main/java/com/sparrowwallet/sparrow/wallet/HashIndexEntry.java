@@ -1,6 +1,7 @@
 package com.sparrowwallet.sparrow.wallet;
 
 import com.sparrowwallet.drongo.KeyPurpose;
+import com.sparrowwallet.drongo.protocol.HashIndex;
 import com.sparrowwallet.drongo.wallet.BlockTransaction;
 import com.sparrowwallet.drongo.wallet.BlockTransactionHashIndex;
 import com.sparrowwallet.drongo.wallet.Status;
@@ -83,6 +84,12 @@ public class HashIndexEntry extends Entry implements Comparable<HashIndexEntry>
         INPUT, OUTPUT
     }
 
+    @Override
+    protected Object getLabelKey() {
+        //Keyed on the outpoint rather than the txo, whose hash code may change with its mutable fields
+        return new HashIndex(hashIndex.getHash(), hashIndex.getIndex());
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
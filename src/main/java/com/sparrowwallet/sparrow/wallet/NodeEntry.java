@@ -73,6 +73,11 @@ public class NodeEntry extends Entry implements Comparable<NodeEntry> {
         return Function.ADDRESSES;
     }
 
+    @Override
+    protected Object getLabelKey() {
+        return node;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
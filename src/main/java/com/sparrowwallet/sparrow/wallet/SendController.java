@@ -5,6 +5,7 @@ import com.sparrowwallet.drongo.BitcoinUnit;
 import com.sparrowwallet.drongo.KeyPurpose;
 import com.sparrowwallet.drongo.Network;
 import com.sparrowwallet.drongo.SecureString;
+import com.sparrowwallet.drongo.Utils;
 import com.sparrowwallet.drongo.address.Address;
 import com.sparrowwallet.drongo.address.InvalidAddressException;
 import com.sparrowwallet.drongo.bip47.PaymentCode;
@@ -25,7 +26,9 @@ import com.sparrowwallet.sparrow.io.Storage;
 import com.sparrowwallet.sparrow.net.*;
 import com.sparrowwallet.sparrow.paynym.PayNym;
 import com.sparrowwallet.sparrow.paynym.PayNymService;
+import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.beans.property.*;
@@ -168,6 +171,25 @@ public class SendController extends WalletFormController implements Initializabl
 
     private final Map<Wallet, Map<Address, WalletNode>> addressNodeMap = new HashMap<>();
 
+    private static final int UPDATE_TRANSACTION_DELAY_MS = 150;
+    private static final int MAX_FEE_RATE_TRANSACTIONS = 50;
+
+    private final PauseTransition updateTransactionPause = new PauseTransition(Duration.millis(UPDATE_TRANSACTION_DELAY_MS));
+
+    private List<Payment> pendingTransactionPayments;
+
+    private boolean pendingFeeRateChangeOnly;
+
+    private FeeRateTransactionsKey feeRateTransactionsKey;
+
+    //Transactions created for the current payments, selectors and filters at each fee rate, reused when only the fee rate changes
+    private final Map<Double, WalletTransaction> feeRateTransactions = new LinkedHashMap<Double, WalletTransaction>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Double, WalletTransaction> eldest) {
+            return size() > MAX_FEE_RATE_TRANSACTIONS;
+        }
+    };
+
     private final ChangeListener<String> feeListener = new ChangeListener<>() {
         @Override
         public void changed(ObservableValue<? extends String> observable, String oldValue, String newValue) {
@@ -204,7 +226,7 @@ public class SendController extends WalletFormController implements Initializabl
                 PaymentController controller = (PaymentController)tab.getUserData();
                 controller.revalidateAmount();
             }
-            updateTransaction();
+            updateTransaction(null, true);
         }
     };
 
@@ -217,7 +239,7 @@ public class SendController extends WalletFormController implements Initializabl
                 PaymentController controller = (PaymentController)tab.getUserData();
                 controller.revalidateAmount();
             }
-            updateTransaction();
+            updateTransaction(null, true);
         }
     };
 
@@ -546,11 +568,31 @@ public class SendController extends WalletFormController implements Initializabl
     }
 
     public void updateTransaction(List<Payment> transactionPayments) {
-        if(walletTransactionService != null && walletTransactionService.isRunning()) {
+        updateTransaction(transactionPayments, false);
+    }
+
+    private void updateTransaction(List<Payment> transactionPayments, boolean feeRateChangeOnly) {
+        boolean running = walletTransactionService != null && walletTransactionService.isRunning();
+        if(running) {
             walletTransactionService.setIgnoreResult(true);
             walletTransactionService.cancel();
         }
 
+        boolean pending = updateTransactionPause.getStatus() == Animation.Status.RUNNING;
+        pendingTransactionPayments = transactionPayments;
+        pendingFeeRateChangeOnly = feeRateChangeOnly && (!pending || pendingFeeRateChangeOnly);
+
+        //A single change is applied immediately, but a burst of changes such as dragging the fee slider or typing an amount is coalesced
+        //into one selection once the input pauses, rather than starting and cancelling a selection for each intermediate value
+        if(pending || running) {
+            updateTransactionPause.setOnFinished(event -> startWalletTransactionService(pendingTransactionPayments, pendingFeeRateChangeOnly));
+            updateTransactionPause.playFromStart();
+        } else {
+            startWalletTransactionService(transactionPayments, feeRateChangeOnly);
+        }
+    }
+
+    private void startWalletTransactionService(List<Payment> transactionPayments, boolean feeRateChangeOnly) {
         try {
             List<Payment> payments = transactionPayments != null ? transactionPayments : getPayments();
             updateOptimizationButtons(payments);
@@ -563,13 +605,35 @@ public class SendController extends WalletFormController implements Initializabl
                 boolean includeMempoolOutputs = Config.get().isIncludeMempoolOutputs();
                 BlockTransaction replacedTransaction = replacedTransactionProperty.get();
 
-                walletTransactionService = new WalletTransactionService(addressNodeMap, wallet, getUtxoSelectors(payments), getTxoFilters(),
+                List<UtxoSelector> utxoSelectors = getUtxoSelectors(payments);
+                List<TxoFilter> txoFilters = getTxoFilters();
+                double minimumFeeRate = getMinimumFeeRate();
+
+                FeeRateTransactionsKey transactionsKey = new FeeRateTransactionsKey(wallet, wallet.getTransactions().size(), currentBlockHeight, groupByAddress, includeMempoolOutputs,
+                        getPaymentsKey(payments), getUtxoSelectorsKey(utxoSelectors), txoFilterProperty.get(), replacedTransaction == null ? null : replacedTransaction.getHash(),
+                        opReturnsList.stream().map(Utils::bytesToHex).collect(Collectors.toList()), new HashSet<>(excludedChangeNodes), minimumFeeRate);
+                if(!feeRateChangeOnly || userFee != null || !transactionsKey.equals(feeRateTransactionsKey)) {
+                    feeRateTransactions.clear();
+                    feeRateTransactionsKey = transactionsKey;
+                }
+
+                WalletTransaction feeRateTransaction = (userFee == null ? feeRateTransactions.get(feeRate) : null);
+                if(feeRateTransaction != null) {
+                    walletTransactionProperty.setValue(feeRateTransaction);
+                    insufficientInputsProperty.set(false);
+                    return;
+                }
+
+                walletTransactionService = new WalletTransactionService(addressNodeMap, wallet, utxoSelectors, txoFilters,
                         payments, opReturnsList, excludedChangeNodes,
-                        feeRate, getMinimumFeeRate(), userFee, currentBlockHeight, groupByAddress, includeMempoolOutputs, replacedTransaction);
+                        feeRate, minimumFeeRate, userFee, currentBlockHeight, groupByAddress, includeMempoolOutputs, replacedTransaction);
                 walletTransactionService.setOnSucceeded(event -> {
                     if(!walletTransactionService.isIgnoreResult()) {
                         walletTransactionProperty.setValue(walletTransactionService.getValue());
                         insufficientInputsProperty.set(false);
+                        if(userFee == null && feeRateTransactionsKey == transactionsKey) {
+                            feeRateTransactions.put(feeRate, walletTransactionService.getValue());
+                        }
                     }
                 });
                 walletTransactionService.setOnFailed(event -> {
@@ -685,6 +749,10 @@ public class SendController extends WalletFormController implements Initializabl
                                 }
                             }
 
+                            if(isCancelled()) {
+                                return null;
+                            }
+
                             return getWalletTransaction();
                         }
 
@@ -696,6 +764,11 @@ public class SendController extends WalletFormController implements Initializabl
                     updateMessage("Selecting UTXOs...");
                     WalletTransaction walletTransaction = wallet.createWalletTransaction(utxoSelectors, txoFilters, payments, opReturns, excludedChangeNodes,
                             feeRate, longTermFeeRate, fee, currentBlockHeight, groupByAddress, includeMempoolOutputs);
+                    //A newer selection has superseded this one, so skip deriving keys for a result that will be ignored
+                    if(isCancelled()) {
+                        return null;
+                    }
+
                     updateMessage("Deriving keys...");
                     walletTransaction.updateAddressNodeMap(addressNodeMap, walletTransaction.getWallet());
                     return walletTransaction;
@@ -712,6 +785,23 @@ public class SendController extends WalletFormController implements Initializabl
         }
     }
 
+    /**
+     * Everything other than the fee rate that determines the transaction created. The selector parameters are derived from the fee rate,
+     * so the selectors are described by their types, except for a preset selector which is kept while the user's UTXO selection is unchanged.
+     */
+    private record FeeRateTransactionsKey(Wallet wallet, int transactionCount, Integer currentBlockHeight, boolean groupByAddress, boolean includeMempoolOutputs,
+                                          List<String> payments, List<Object> utxoSelectors, TxoFilter txoFilter, Sha256Hash replacedTransaction,
+                                          List<String> opReturns, Set<WalletNode> excludedChangeNodes, double minimumFeeRate) {}
+
+    private static List<String> getPaymentsKey(List<Payment> payments) {
+        return payments.stream().map(payment -> payment.getAddress() + ":" + payment.getAmount() + ":" + payment.isSendMax() + ":" + payment.getType() + ":" + payment.getLabel())
+                .collect(Collectors.toList());
+    }
+
+    private static List<Object> getUtxoSelectorsKey(List<UtxoSelector> utxoSelectors) {
+        return utxoSelectors.stream().map(utxoSelector -> utxoSelector instanceof PresetUtxoSelector ? utxoSelector : utxoSelector.getClass()).collect(Collectors.toList());
+    }
+
     private List<TxoFilter> getTxoFilters() {
         SpentTxoFilter spentTxoFilter = new SpentTxoFilter(replacedTransactionProperty.get() == null ? null : replacedTransactionProperty.get().getHash());
 
@@ -1162,7 +1252,7 @@ public class SendController extends WalletFormController implements Initializabl
             dlg.initOwner(paymentTabs.getScene().getWindow());
             Optional<SecureString> password = dlg.showAndWait();
             if(password.isPresent()) {
-                Storage.DecryptWalletService decryptWalletService = new Storage.DecryptWalletService(wallet.copy(), password.get());
+                Storage.DecryptWalletService decryptWalletService = new Storage.DecryptWalletService(wallet.copy(), storage, password.get());
                 decryptWalletService.setOnSucceeded(workerStateEvent -> {
                     EventManager.get().post(new StorageEvent(storage.getWalletId(wallet), TimedEvent.Action.END, "Done"));
                     Wallet decryptedWallet = decryptWalletService.getValue();
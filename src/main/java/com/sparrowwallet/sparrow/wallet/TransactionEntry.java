@@ -1,6 +1,5 @@
 package com.sparrowwallet.sparrow.wallet;
 
-import com.google.common.eventbus.Subscribe;
 import com.sparrowwallet.drongo.KeyPurpose;
 import com.sparrowwallet.drongo.protocol.HashIndex;
 import com.sparrowwallet.drongo.protocol.TransactionInput;
@@ -8,10 +7,8 @@ import com.sparrowwallet.drongo.protocol.TransactionOutput;
 import com.sparrowwallet.drongo.wallet.*;
 import com.sparrowwallet.sparrow.AppServices;
 import com.sparrowwallet.sparrow.EventManager;
-import com.sparrowwallet.sparrow.WalletTabData;
-import com.sparrowwallet.sparrow.event.WalletBlockHeightChangedEvent;
 import com.sparrowwallet.sparrow.event.WalletEntryLabelsChangedEvent;
-import com.sparrowwallet.sparrow.event.WalletTabsClosedEvent;
+import com.sparrowwallet.sparrow.net.MempoolDepthIndex;
 import com.sparrowwallet.sparrow.net.MempoolRateSize;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.IntegerPropertyBase;
@@ -50,10 +47,6 @@ public class TransactionEntry extends Entry implements Comparable<TransactionEnt
                 return "confirmations";
             }
         };
-
-        if(isFullyConfirming()) {
-            EventManager.get().register(this);
-        }
     }
 
     public BlockTransaction getBlockTransaction() {
@@ -160,6 +153,11 @@ public class TransactionEntry extends Entry implements Comparable<TransactionEnt
         return childEntries;
     }
 
+    @Override
+    protected Object getLabelKey() {
+        return blockTransaction;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -244,36 +242,11 @@ public class TransactionEntry extends Entry implements Comparable<TransactionEnt
     }
 
     public Long getVSizeFromTip() {
-        if(!AppServices.getMempoolHistogram().isEmpty()) {
-            Set<MempoolRateSize> rateSizes = AppServices.getMempoolHistogram().get(AppServices.getMempoolHistogram().lastKey());
-            double feeRate = blockTransaction.getFeeRate();
-            return rateSizes.stream().filter(rateSize -> rateSize.getFee() > feeRate).mapToLong(MempoolRateSize::getVSize).sum();
+        Set<MempoolRateSize> rateSizes = AppServices.getMempoolHistory().getLatest();
+        if(rateSizes != null) {
+            return MempoolDepthIndex.get(rateSizes).getVSizeAbove(blockTransaction.getFeeRate());
         }
 
         return null;
     }
-
-    @Subscribe
-    public void blockHeightChanged(WalletBlockHeightChangedEvent event) {
-        if(event.getWallet().equals(getWallet())) {
-            setConfirmations(calculateConfirmations());
-
-            if(!isFullyConfirming()) {
-                EventManager.get().unregister(this);
-            }
-        }
-    }
-
-    @Subscribe
-    public void walletTabsClosed(WalletTabsClosedEvent event) {
-        for(WalletTabData tabData : event.getClosedWalletTabData()) {
-            if(tabData.getWalletForm().getWallet() == getWallet()) {
-                try {
-                    EventManager.get().unregister(this);
-                } catch(IllegalArgumentException e) {
-                    //Safe to ignore
-                }
-            }
-        }
-    }
 }
@@ -6,6 +6,7 @@ import com.sparrowwallet.sparrow.EventManager;
 import com.sparrowwallet.sparrow.control.*;
 import com.sparrowwallet.sparrow.event.*;
 import com.sparrowwallet.sparrow.io.Config;
+import com.sparrowwallet.sparrow.io.ExportCheckpoint;
 import com.sparrowwallet.sparrow.io.WalletTransactions;
 import com.sparrowwallet.sparrow.net.ExchangeSource;
 import com.sparrowwallet.drongo.wallet.Wallet;
@@ -14,9 +15,7 @@ import javafx.collections.ListChangeListener;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
-import javafx.scene.control.Button;
-import javafx.scene.control.TextArea;
-import javafx.scene.control.TreeItem;
+import javafx.scene.control.*;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import org.controlsfx.control.MasterDetailPane;
@@ -29,12 +28,14 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Optional;
 import java.util.ResourceBundle;
 
 public class TransactionsController extends WalletFormController implements Initializable {
     private static final Logger log = LoggerFactory.getLogger(TransactionsController.class);
 
     private static final DateFormat LOG_DATE_FORMAT = new SimpleDateFormat("[MMM dd HH:mm:ss]");
+    private static final DateFormat EXPORT_DATE_FORMAT = new SimpleDateFormat("d MMM yyyy HH:mm");
     private static final int LOADING_LOG_MAX_CHARS = 10000;
 
     @FXML
@@ -115,7 +116,26 @@ public class TransactionsController extends WalletFormController implements Init
         AppServices.moveToActiveWindowScreen(window, 800, 450);
         File file = fileChooser.showSaveDialog(window);
         if(file != null) {
-            FileWalletExportPane.FileWalletExportService exportService = new FileWalletExportPane.FileWalletExportService(new WalletTransactions(getWalletForm()), file, wallet, null);
+            boolean incremental = false;
+            File exportFile = file;
+            ExportCheckpoint checkpoint = ExportCheckpoint.load(getWalletForm().getWalletId(), file);
+            if(checkpoint != null) {
+                //Changes are written to a separate file so that the previous export is kept
+                File changesFile = ExportCheckpoint.getChangesFile(file, new Date());
+                ButtonType changesButton = new ButtonType("Changes Only", ButtonBar.ButtonData.YES);
+                ButtonType allButton = new ButtonType("All Transactions", ButtonBar.ButtonData.NO);
+                Optional<ButtonType> optButton = AppServices.showAlertDialog("Export changes only?", "Transactions were last exported to this file on " + EXPORT_DATE_FORMAT.format(checkpoint.getDate()) +
+                        ". Export only the transactions that have changed since then to " + changesFile.getName() + "?", Alert.AlertType.CONFIRMATION, allButton, changesButton);
+                if(optButton.isEmpty()) {
+                    return;
+                }
+                incremental = (optButton.get() == changesButton);
+                if(incremental) {
+                    exportFile = changesFile;
+                }
+            }
+
+            FileWalletExportPane.FileWalletExportService exportService = new FileWalletExportPane.FileWalletExportService(new WalletTransactions(getWalletForm(), file, incremental), exportFile, wallet, null);
             exportService.setOnFailed(failedEvent -> {
                 Throwable e = failedEvent.getSource().getException();
                 log.error("Error exporting transactions as CSV", e);
@@ -178,9 +198,7 @@ public class TransactionsController extends WalletFormController implements Init
     @Subscribe
     public void walletEntryLabelChanged(WalletEntryLabelsChangedEvent event) {
         if(event.fromThisOrNested(walletForm.getWallet())) {
-            for(Entry entry : event.getEntries()) {
-                transactionsTable.updateLabel(entry);
-            }
+            transactionsTable.updateLabels(event.getEntries());
             balanceChart.update(getWalletForm().getWalletTransactionsEntry());
         }
     }
@@ -258,6 +258,7 @@ public class WalletController extends WalletFormController implements Initializa
             }
 
             getWalletForm().setLocked(true);
+            getWalletForm().getStorage().clearDerivedKey();
             lockPane.setViewOrder(-1);
         }
     }
@@ -2,6 +2,7 @@ package com.sparrowwallet.sparrow.wallet;
 
 import com.google.common.eventbus.Subscribe;
 import com.sparrowwallet.drongo.KeyPurpose;
+import com.sparrowwallet.drongo.protocol.Sha256Hash;
 import com.sparrowwallet.drongo.wallet.*;
 import com.sparrowwallet.sparrow.AppServices;
 import com.sparrowwallet.sparrow.EventManager;
@@ -54,6 +55,10 @@ public class WalletForm {
 
     private final BooleanProperty lockedProperty = new SimpleBooleanProperty(false);
 
+    private WalletTxoIndex txoIndex;
+    private final Map<Entry, Entry> pendingLabelChangedEntries = new LinkedHashMap<>();
+    private boolean labelChangesScheduled;
+
     public WalletForm(Storage storage, Wallet currentWallet) {
         this.storage = storage;
         this.wallet = currentWallet;
@@ -417,6 +422,7 @@ public class WalletForm {
             walletTransactionsEntry = null;
             walletUtxosEntry = null;
             accountEntries.clear();
+            txoIndex = null;
             EventManager.get().post(new WalletNodesChangedEvent(wallet));
 
             //Clear the cache - we will need to fetch everything again
@@ -428,7 +434,7 @@ public class WalletForm {
     @Subscribe
     public void keystoreLabelsChanged(KeystoreLabelsChangedEvent event) {
         if(event.getWalletId().equals(getWalletId())) {
-            Platform.runLater(() -> EventManager.get().post(new WalletDataChangedEvent(wallet)));
+            schedulePendingLabelChanges();
         }
     }
 
@@ -484,9 +490,11 @@ public class WalletForm {
     @Subscribe
     public void walletHistoryChanged(WalletHistoryChangedEvent event) {
         if(event.getWalletId().equals(getWalletId())) {
+            //The wallet outputs have changed, so the index is rebuilt on next use
+            txoIndex = null;
+            List<Entry> changedLabelEntries = new ArrayList<>();
             for(WalletNode changedNode : event.getHistoryChangedNodes()) {
                 if(changedNode.getLabel() != null && !changedNode.getLabel().isEmpty()) {
-                    List<Entry> changedLabelEntries = new ArrayList<>();
                     for(BlockTransactionHashIndex receivedRef : changedNode.getTransactionOutputs()) {
                         BlockTransaction blockTransaction = wallet.getTransactions().get(receivedRef.getHash());
                         if(blockTransaction != null && (blockTransaction.getLabel() == null || blockTransaction.getLabel().isEmpty())) {
@@ -499,12 +507,12 @@ public class WalletForm {
                             changedLabelEntries.add(new HashIndexEntry(event.getWallet(), receivedRef, HashIndexEntry.Type.OUTPUT, changedNode.getKeyPurpose()));
                         }
                     }
-
-                    if(!changedLabelEntries.isEmpty()) {
-                        Platform.runLater(() -> EventManager.get().post(new WalletEntryLabelsChangedEvent(event.getWallet(), changedLabelEntries)));
-                    }
                 }
             }
+
+            if(!changedLabelEntries.isEmpty()) {
+                Platform.runLater(() -> EventManager.get().post(new WalletEntryLabelsChangedEvent(event.getWallet(), changedLabelEntries)));
+            }
         }
     }
 
@@ -516,30 +524,31 @@ public class WalletForm {
             for(Entry entry : entries) {
                 if(entry.getLabel() != null && !entry.getLabel().isEmpty()) {
                     if(entry instanceof TransactionEntry transactionEntry) {
-                        for(KeyPurpose keyPurpose : KeyPurpose.DEFAULT_PURPOSES) {
-                            for(WalletNode childNode : wallet.getNode(keyPurpose).getChildren()) {
-                                for(BlockTransactionHashIndex receivedRef : childNode.getTransactionOutputs()) {
-                                    if(receivedRef.getHash().equals(transactionEntry.getBlockTransaction().getHash())) {
-                                        String prevRefLabel = "";
-                                        if((receivedRef.getLabel() == null || receivedRef.getLabel().isEmpty()
-                                                || receivedRef.getLabel().endsWith(" (sent)") || receivedRef.getLabel().endsWith(" (change)") || receivedRef.getLabel().endsWith(" (received)"))
-                                                && wallet.getStandardAccountType() != StandardAccount.WHIRLPOOL_PREMIX) {
-                                            prevRefLabel = receivedRef.getLabel() == null ? "" : receivedRef.getLabel();
-                                            receivedRef.setLabel(entry.getLabel() + (keyPurpose == KeyPurpose.CHANGE ? (event.getWallet().isBip47() ? " (sent)" : " (change)") : " (received)"));
-                                            labelChangedEntries.put(new HashIndexEntry(event.getWallet(), receivedRef, HashIndexEntry.Type.OUTPUT, keyPurpose), entry);
-                                        }
-                                        if(childNode.getLabel() == null || childNode.getLabel().isEmpty()
-                                                || prevRefLabel.equals(childNode.getLabel() + " (sent)") || prevRefLabel.equals(childNode.getLabel() + " (change)") || prevRefLabel.equals(childNode.getLabel() + " (received)")) {
-                                            childNode.setLabel(entry.getLabel());
-                                            labelChangedEntries.put(new NodeEntry(event.getWallet(), childNode), entry);
-                                        }
-                                    }
-                                    if(receivedRef.isSpent() && receivedRef.getSpentBy().getHash().equals(transactionEntry.getBlockTransaction().getHash())
-                                            && (receivedRef.getSpentBy().getLabel() == null || receivedRef.getSpentBy().getLabel().isEmpty() || receivedRef.getSpentBy().getLabel().endsWith(" (input)"))) {
-                                        receivedRef.getSpentBy().setLabel(entry.getLabel() + " (input)");
-                                        labelChangedEntries.put(new HashIndexEntry(event.getWallet(), receivedRef.getSpentBy(), HashIndexEntry.Type.INPUT, keyPurpose), entry);
-                                    }
-                                }
+                        Sha256Hash txid = transactionEntry.getBlockTransaction().getHash();
+                        WalletTxoIndex txoIndex = getTxoIndex();
+                        for(WalletTxoIndex.NodeTxo nodeTxo : txoIndex.getOutputs(txid)) {
+                            WalletNode childNode = nodeTxo.node();
+                            KeyPurpose keyPurpose = nodeTxo.keyPurpose();
+                            BlockTransactionHashIndex receivedRef = nodeTxo.txo();
+                            String prevRefLabel = "";
+                            if((receivedRef.getLabel() == null || receivedRef.getLabel().isEmpty()
+                                    || receivedRef.getLabel().endsWith(" (sent)") || receivedRef.getLabel().endsWith(" (change)") || receivedRef.getLabel().endsWith(" (received)"))
+                                    && wallet.getStandardAccountType() != StandardAccount.WHIRLPOOL_PREMIX) {
+                                prevRefLabel = receivedRef.getLabel() == null ? "" : receivedRef.getLabel();
+                                receivedRef.setLabel(entry.getLabel() + (keyPurpose == KeyPurpose.CHANGE ? (event.getWallet().isBip47() ? " (sent)" : " (change)") : " (received)"));
+                                labelChangedEntries.put(new HashIndexEntry(event.getWallet(), receivedRef, HashIndexEntry.Type.OUTPUT, keyPurpose), entry);
+                            }
+                            if(childNode.getLabel() == null || childNode.getLabel().isEmpty()
+                                    || prevRefLabel.equals(childNode.getLabel() + " (sent)") || prevRefLabel.equals(childNode.getLabel() + " (change)") || prevRefLabel.equals(childNode.getLabel() + " (received)")) {
+                                childNode.setLabel(entry.getLabel());
+                                labelChangedEntries.put(new NodeEntry(event.getWallet(), childNode), entry);
+                            }
+                        }
+                        for(WalletTxoIndex.NodeTxo nodeTxo : txoIndex.getSpentOutputs(txid)) {
+                            BlockTransactionHashIndex receivedRef = nodeTxo.txo();
+                            if(receivedRef.getSpentBy().getLabel() == null || receivedRef.getSpentBy().getLabel().isEmpty() || receivedRef.getSpentBy().getLabel().endsWith(" (input)")) {
+                                receivedRef.getSpentBy().setLabel(entry.getLabel() + " (input)");
+                                labelChangedEntries.put(new HashIndexEntry(event.getWallet(), receivedRef.getSpentBy(), HashIndexEntry.Type.INPUT, nodeTxo.keyPurpose()), entry);
                             }
                         }
                     }
@@ -563,14 +572,50 @@ public class WalletForm {
                 }
             }
 
-            if(!labelChangedEntries.isEmpty()) {
-                Platform.runLater(() -> EventManager.get().post(new WalletEntryLabelsChangedEvent(wallet, labelChangedEntries)));
-            } else {
-                Platform.runLater(() -> EventManager.get().post(new WalletDataChangedEvent(wallet)));
-            }
+            addPendingLabelChanges(labelChangedEntries);
         }
     }
 
+    private void schedulePendingLabelChanges() {
+        addPendingLabelChanges(Collections.emptyMap());
+    }
+
+    /**
+     * Coalesces the changes from label events posted in the same pulse, such as bulk edits and imports, into a single propagation and save.
+     * The pending changes are only accessed on the FX thread, so changes from other threads are passed to it first.
+     */
+    private void addPendingLabelChanges(Map<Entry, Entry> labelChangedEntries) {
+        if(!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> addPendingLabelChanges(labelChangedEntries));
+            return;
+        }
+
+        pendingLabelChangedEntries.putAll(labelChangedEntries);
+        if(!labelChangesScheduled) {
+            labelChangesScheduled = true;
+            Platform.runLater(this::postPendingLabelChanges);
+        }
+    }
+
+    private void postPendingLabelChanges() {
+        labelChangesScheduled = false;
+        if(!pendingLabelChangedEntries.isEmpty()) {
+            Map<Entry, Entry> labelChangedEntries = new LinkedHashMap<>(pendingLabelChangedEntries);
+            pendingLabelChangedEntries.clear();
+            EventManager.get().post(new WalletEntryLabelsChangedEvent(wallet, labelChangedEntries));
+        } else {
+            EventManager.get().post(new WalletDataChangedEvent(wallet));
+        }
+    }
+
+    private WalletTxoIndex getTxoIndex() {
+        if(txoIndex == null) {
+            txoIndex = new WalletTxoIndex(wallet);
+        }
+
+        return txoIndex;
+    }
+
     @Subscribe
     public void walletDeleted(WalletDeletedEvent event) {
         if(event.getWallet() == wallet && !wallet.isMasterWallet()) {
@@ -582,7 +627,8 @@ public class WalletForm {
     @Subscribe
     public void walletUtxoStatusChanged(WalletUtxoStatusChangedEvent event) {
         if(event.getWallet() == wallet) {
-            Platform.runLater(() -> EventManager.get().post(new WalletDataChangedEvent(wallet)));
+            //Saved through the same path as label changes, so that a label import which also changes utxo statuses is saved once
+            schedulePendingLabelChanges();
         }
     }
 
@@ -14,6 +14,10 @@ import javafx.application.Platform;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeTableView;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
 public abstract class WalletFormController extends BaseController {
     public WalletForm walletForm;
 
@@ -70,21 +74,42 @@ public abstract class WalletFormController extends BaseController {
     }
 
     protected boolean selectEntry(TreeTableView<Entry> treeTableView, TreeItem<Entry> parentEntry, Entry entry) {
-        for(TreeItem<Entry> treeEntry : parentEntry.getChildren()) {
-            if(treeEntry.getValue().equals(entry)) {
-                Platform.runLater(() -> {
-                    treeTableView.requestFocus();
-                    treeTableView.getSelectionModel().select(treeEntry);
-                    treeTableView.scrollTo(treeTableView.getSelectionModel().getSelectedIndex());
-                });
-                return true;
-            }
+        //Find the path to the entry in the model first, so that the model is walked once and only tree items along the path are created
+        List<Entry> entryPath = new ArrayList<>();
+        if(!findEntryPath(parentEntry.getValue(), entry, entryPath)) {
+            return false;
+        }
 
-            boolean selectedChild = selectEntry(treeTableView, treeEntry, entry);
-            if(selectedChild) {
+        TreeItem<Entry> treeEntry = parentEntry;
+        for(Entry pathEntry : entryPath) {
+            if(treeEntry != parentEntry) {
                 treeEntry.setExpanded(true);
+            }
+
+            Optional<TreeItem<Entry>> optChild = treeEntry.getChildren().stream().filter(child -> child.getValue().equals(pathEntry)).findFirst();
+            if(optChild.isEmpty()) {
+                return false;
+            }
+            treeEntry = optChild.get();
+        }
+
+        TreeItem<Entry> selectedEntry = treeEntry;
+        Platform.runLater(() -> {
+            treeTableView.requestFocus();
+            treeTableView.getSelectionModel().select(selectedEntry);
+            treeTableView.scrollTo(treeTableView.getSelectionModel().getSelectedIndex());
+        });
+
+        return true;
+    }
+
+    private static boolean findEntryPath(Entry parentEntry, Entry entry, List<Entry> entryPath) {
+        for(Entry childEntry : parentEntry.getChildren()) {
+            entryPath.add(childEntry);
+            if(childEntry.equals(entry) || findEntryPath(childEntry, entry, entryPath)) {
                 return true;
             }
+            entryPath.remove(entryPath.size() - 1);
         }
 
         return false;
@@ -22,13 +22,22 @@ import java.util.stream.Collectors;
 public class WalletTransactionsEntry extends Entry {
     private static final Logger log = LoggerFactory.getLogger(WalletTransactionsEntry.class);
 
+    //Only the entries displayed in the wallet's transactions list have their confirmations updated as blocks arrive
+    private final boolean trackConfirmations;
+
     public WalletTransactionsEntry(Wallet wallet) {
-        this(wallet, false);
+        this(wallet, false, true);
     }
 
     public WalletTransactionsEntry(Wallet wallet, boolean includeAllChildWallets) {
+        this(wallet, includeAllChildWallets, false);
+    }
+
+    private WalletTransactionsEntry(Wallet wallet, boolean includeAllChildWallets, boolean trackConfirmations) {
         super(wallet, wallet.getDisplayName(), getWalletTransactions(wallet, includeAllChildWallets).stream().map(WalletTransaction::getTransactionEntry).collect(Collectors.toList()));
+        this.trackConfirmations = trackConfirmations;
         calculateBalances(false); //No need to resort
+        getChildren().forEach(entry -> track((TransactionEntry)entry));
     }
 
     @Override
@@ -83,9 +92,11 @@ public class WalletTransactionsEntry extends Entry {
 
         Set<Entry> entriesAdded = Sets.difference(current, previous);
         getChildren().addAll(entriesAdded);
+        entriesAdded.forEach(entry -> track((TransactionEntry)entry));
 
         Set<Entry> entriesRemoved = Sets.difference(previous, current);
         getChildren().removeAll(entriesRemoved);
+        entriesRemoved.forEach(entry -> untrack((TransactionEntry)entry));
 
         calculateBalances(true);
 
@@ -100,12 +111,25 @@ public class WalletTransactionsEntry extends Entry {
             for(Entry entry : incompleteEntries) {
                 TransactionEntry txEntry = (TransactionEntry)entry;
                 getChildren().remove(txEntry);
+                untrack(txEntry);
                 log.warn("Removing and not notifying incomplete entry " + ((TransactionEntry)entry).getBlockTransaction().getHashAsString() + " value " + txEntry.getValue()
                         + " children " + entry.getChildren().stream().map(e -> e.getEntryType() + " " + ((HashIndexEntry)e).getHashIndex()).collect(Collectors.toList()));
             }
         }
     }
 
+    private void track(TransactionEntry entry) {
+        if(trackConfirmations) {
+            ConfirmationTracker.get().track(entry);
+        }
+    }
+
+    private void untrack(TransactionEntry entry) {
+        if(trackConfirmations) {
+            ConfirmationTracker.get().untrack(entry);
+        }
+    }
+
     private static Collection<WalletTransaction> getWalletTransactions(Wallet wallet, boolean includeAllChildWallets) {
         Map<BlockTransaction, WalletTransaction> walletTransactionMap = new HashMap<>(wallet.getTransactions().size());
 
@@ -0,0 +1,49 @@
+package com.sparrowwallet.sparrow.wallet;
+
+import com.sparrowwallet.drongo.KeyPurpose;
+import com.sparrowwallet.drongo.protocol.Sha256Hash;
+import com.sparrowwallet.drongo.wallet.BlockTransactionHashIndex;
+import com.sparrowwallet.drongo.wallet.Wallet;
+import com.sparrowwallet.drongo.wallet.WalletNode;
+
+import java.util.*;
+
+/**
+ * The transaction outputs of a wallet's receive and change addresses, indexed by the txid that created them and the txid that spent them.
+ * Replaces walking every address and output of the wallet when looking up outputs for a single transaction, as is done when propagating labels.
+ * The index reflects the wallet history at the time it was built, and must be discarded when the history changes or is cleared.
+ */
+public class WalletTxoIndex {
+    private final Map<Sha256Hash, List<NodeTxo>> outputsByTxid = new HashMap<>();
+    private final Map<Sha256Hash, List<NodeTxo>> spentOutputsBySpendingTxid = new HashMap<>();
+
+    public WalletTxoIndex(Wallet wallet) {
+        for(KeyPurpose keyPurpose : KeyPurpose.DEFAULT_PURPOSES) {
+            for(WalletNode childNode : wallet.getNode(keyPurpose).getChildren()) {
+                for(BlockTransactionHashIndex txo : childNode.getTransactionOutputs()) {
+                    NodeTxo nodeTxo = new NodeTxo(childNode, keyPurpose, txo);
+                    outputsByTxid.computeIfAbsent(txo.getHash(), hash -> new ArrayList<>()).add(nodeTxo);
+                    if(txo.isSpent()) {
+                        spentOutputsBySpendingTxid.computeIfAbsent(txo.getSpentBy().getHash(), hash -> new ArrayList<>()).add(nodeTxo);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the wallet outputs created by the transaction, in address order
+     */
+    public List<NodeTxo> getOutputs(Sha256Hash txid) {
+        return outputsByTxid.getOrDefault(txid, Collections.emptyList());
+    }
+
+    /**
+     * @return the wallet outputs spent by the transaction, in address order
+     */
+    public List<NodeTxo> getSpentOutputs(Sha256Hash txid) {
+        return spentOutputsBySpendingTxid.getOrDefault(txid, Collections.emptyList());
+    }
+
+    public record NodeTxo(WalletNode node, KeyPurpose keyPurpose, BlockTransactionHashIndex txo) {}
+}
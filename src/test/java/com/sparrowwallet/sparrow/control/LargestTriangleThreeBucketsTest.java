@@ -0,0 +1,53 @@
+package com.sparrowwallet.sparrow.control;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class LargestTriangleThreeBucketsTest {
+    @Test
+    public void thresholdAtOrAboveSizeReturnsAllPoints() {
+        List<Integer> points = indexes(10);
+        double[] y = new double[10];
+
+        Assertions.assertEquals(points, LargestTriangleThreeBuckets.downsample(points, 10, i -> i, i -> y[i]));
+        Assertions.assertEquals(points, LargestTriangleThreeBuckets.downsample(points, 20, i -> i, i -> y[i]));
+        //Thresholds too small to hold a bucket between the first and last points are ignored
+        Assertions.assertEquals(points, LargestTriangleThreeBuckets.downsample(points, 2, i -> i, i -> y[i]));
+    }
+
+    @Test
+    public void retainsFirstAndLastPoints() {
+        Random random = new Random(0);
+        double[] y = random.doubles(1000).toArray();
+        List<Integer> points = indexes(y.length);
+
+        for(int threshold = 3; threshold < 50; threshold++) {
+            List<Integer> sampled = LargestTriangleThreeBuckets.downsample(points, threshold, i -> i, i -> y[i]);
+            Assertions.assertEquals(threshold, sampled.size());
+            Assertions.assertEquals(0, sampled.get(0));
+            Assertions.assertEquals(y.length - 1, sampled.get(sampled.size() - 1));
+            for(int i = 1; i < sampled.size(); i++) {
+                Assertions.assertTrue(sampled.get(i) > sampled.get(i - 1));
+            }
+        }
+    }
+
+    @Test
+    public void selectsLargestTriangles() {
+        double[] y = {0, 1, 5, 2, 3, 9, 1, 0};
+        List<Integer> points = indexes(y.length);
+
+        //Buckets of indexes 1-3 and 4-6, each choosing the point furthest from the line between the previous selection and the next bucket average
+        List<Integer> sampled = LargestTriangleThreeBuckets.downsample(points, 4, i -> i, i -> y[i]);
+        Assertions.assertEquals(List.of(0, 2, 5, 7), sampled);
+    }
+
+    private static List<Integer> indexes(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,169 @@
+package com.sparrowwallet.sparrow.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class BackupStoreTest {
+    private static final int WALLET_SIZE = 128 * 1024 * 1024;
+    private static final int PAGE_SIZE = 4096;
+    private static final int GENERATIONS = 3;
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void incrementalGenerations() throws Exception {
+        File walletFile = new File(tempDir, "wallet.mv.db");
+        File backupDir = new File(tempDir, "backup");
+        Assertions.assertTrue(backupDir.mkdir());
+        BackupStore backupStore = new BackupStore(backupDir);
+        byte[] wallet = generateWallet();
+        Random random = new Random(1);
+
+        byte[][] versions = new byte[GENERATIONS][];
+        File[] manifests = new File[GENERATIONS];
+        for(int i = 0; i < GENERATIONS; i++) {
+            if(i > 0) {
+                wallet = updateWallet(wallet, random);
+            }
+            versions[i] = wallet;
+            Files.write(walletFile.toPath(), wallet);
+
+            long chunksSize = backupStore.getChunksSize();
+            try(BackupStore.GenerationOutputStream outputStream = backupStore.createGeneration("wallet-2026010100000" + i + ".mv.db")) {
+                Files.copy(walletFile.toPath(), outputStream);
+                outputStream.commit();
+                manifests[i] = outputStream.getManifestFile();
+            }
+            long addedSize = backupStore.getChunksSize() - chunksSize;
+
+            Assertions.assertTrue(BackupStore.isManifest(manifests[i]));
+            if(i == 0) {
+                Assertions.assertEquals(wallet.length, addedSize);
+            } else {
+                //Only the chunks around the rewritten and appended pages are stored again
+                Assertions.assertTrue(addedSize > 0 && addedSize < wallet.length / 10, "Added " + addedSize);
+            }
+        }
+
+        for(int i = 0; i < GENERATIONS; i++) {
+            File restored = new File(tempDir, "restored" + i + ".mv.db");
+            backupStore.restore(manifests[i], restored);
+            Assertions.assertArrayEquals(versions[i], Files.readAllBytes(restored.toPath()));
+        }
+        Assertions.assertEquals(GENERATIONS, tempDir.list((dir, name) -> name.startsWith("restored")).length);
+
+        //Removing the oldest generations keeps the chunks still used by the newest
+        backupStore.delete(Arrays.asList(manifests).subList(0, GENERATIONS - 1));
+        Assertions.assertTrue(backupStore.getChunksSize() <= wallet.length + wallet.length / 100);
+        backupStore.verify(manifests[GENERATIONS - 1]);
+
+        backupStore.delete(List.of(manifests[GENERATIONS - 1]));
+        Assertions.assertEquals(0, backupStore.getChunksSize());
+    }
+
+    @Test
+    public void corruptedChunkIsDetected() throws Exception {
+        File backupDir = new File(tempDir, "backup");
+        Assertions.assertTrue(backupDir.mkdir());
+        BackupStore backupStore = new BackupStore(backupDir);
+        byte[] wallet = new byte[1024 * 1024];
+        new Random(2).nextBytes(wallet);
+
+        File manifest;
+        try(BackupStore.GenerationOutputStream outputStream = backupStore.createGeneration("wallet-20260101000000.mv.db")) {
+            outputStream.write(wallet);
+            outputStream.commit();
+            manifest = outputStream.getManifestFile();
+        }
+
+        File[] chunkDirs = new File(backupDir, BackupStore.CHUNKS_DIR).listFiles();
+        File chunk = chunkDirs[0].listFiles()[0];
+        byte[] data = Files.readAllBytes(chunk.toPath());
+        data[data.length / 2] ^= 1;
+        Files.write(chunk.toPath(), data);
+
+        File restored = new File(tempDir, "restored.mv.db");
+        Assertions.assertThrows(IOException.class, () -> backupStore.verify(manifest));
+        Assertions.assertThrows(IOException.class, () -> backupStore.restore(manifest, restored));
+        Assertions.assertFalse(restored.exists());
+        Assertions.assertArrayEquals(new String[] {"backup"}, tempDir.list());
+    }
+
+    @Test
+    public void uncommittedGenerationIsDiscarded() throws Exception {
+        File backupDir = new File(tempDir, "backup");
+        Assertions.assertTrue(backupDir.mkdir());
+        BackupStore backupStore = new BackupStore(backupDir);
+        byte[] wallet = new byte[1024 * 1024];
+        new Random(3).nextBytes(wallet);
+
+        File manifest;
+        try(BackupStore.GenerationOutputStream outputStream = backupStore.createGeneration("wallet-20260101000000.mv.db")) {
+            outputStream.write(wallet);
+            manifest = outputStream.getManifestFile();
+        }
+
+        Assertions.assertFalse(manifest.exists());
+        backupStore.delete(List.of());
+        Assertions.assertEquals(0, backupStore.getChunksSize());
+    }
+
+    @Test
+    public void invalidManifestIsRejected() throws Exception {
+        File backupDir = new File(tempDir, "backup");
+        Assertions.assertTrue(backupDir.mkdir());
+        BackupStore backupStore = new BackupStore(backupDir);
+        String hash = "ab".repeat(32);
+
+        File walletFile = new File(backupDir, "wallet-20260101000000.mv.db.backup");
+        Files.write(walletFile.toPath(), new byte[] {'H', '2', 0, 1});
+        File traversal = new File(backupDir, "wallet-20260101000001.mv.db.backup");
+        Files.writeString(traversal.toPath(), "{\"size\":10,\"hash\":\"" + hash + "\",\"chunks\":[{\"hash\":\"../../wallet.mv.db\",\"length\":10}]}");
+        File wrongSize = new File(backupDir, "wallet-20260101000002.mv.db.backup");
+        Files.writeString(wrongSize.toPath(), "{\"size\":20,\"hash\":\"" + hash + "\",\"chunks\":[{\"hash\":\"" + hash + "\",\"length\":10}]}");
+        File valid = new File(backupDir, "wallet-20260101000003.mv.db.backup");
+        Files.writeString(valid.toPath(), "{\"size\":10,\"hash\":\"" + hash + "\",\"chunks\":[{\"hash\":\"" + hash + "\",\"length\":10}]}");
+        File otherExtension = new File(backupDir, "wallet-20260101000003.mv.db");
+        Files.copy(valid.toPath(), otherExtension.toPath());
+
+        for(File invalid : List.of(walletFile, traversal, wrongSize)) {
+            Assertions.assertFalse(BackupStore.isManifest(invalid), invalid.getName());
+            Assertions.assertThrows(IOException.class, () -> backupStore.restore(invalid, new File(tempDir, "restored.mv.db")));
+        }
+        Assertions.assertTrue(BackupStore.isManifest(valid));
+        Assertions.assertFalse(BackupStore.isManifest(otherExtension));
+        Assertions.assertFalse(new File(tempDir, "restored.mv.db").exists());
+    }
+
+    //A page structured file, similar to an H2 database, where most pages are unchanged between saves
+    private static byte[] generateWallet() {
+        byte[] wallet = new byte[WALLET_SIZE];
+        new Random(0).nextBytes(wallet);
+        return wallet;
+    }
+
+    private static byte[] updateWallet(byte[] wallet, Random random) {
+        byte[] updated = wallet.clone();
+        byte[] page = new byte[PAGE_SIZE];
+        for(int i = 0; i < 20; i++) {
+            random.nextBytes(page);
+            int offset = random.nextInt(updated.length / PAGE_SIZE) * PAGE_SIZE;
+            System.arraycopy(page, 0, updated, offset, PAGE_SIZE);
+        }
+
+        //Appended pages, as written when the database grows
+        byte[] appended = new byte[PAGE_SIZE * 16];
+        random.nextBytes(appended);
+        byte[] grown = Arrays.copyOf(updated, updated.length + appended.length);
+        System.arraycopy(appended, 0, grown, updated.length, appended.length);
+        return grown;
+    }
+}
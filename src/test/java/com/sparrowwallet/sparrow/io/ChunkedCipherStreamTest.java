@@ -0,0 +1,153 @@
+package com.sparrowwallet.sparrow.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.sparrowwallet.sparrow.io.ChunkedCipherOutputStream.CHUNK_SIZE;
+import static com.sparrowwallet.sparrow.io.ChunkedCipherOutputStream.TAG_LENGTH_BYTES;
+
+public class ChunkedCipherStreamTest {
+    private static final int STREAMED_SIZE = 16 * 1024 * 1024;
+    private static final byte[] HEADER = "header".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void roundTrip() throws IOException {
+        SecretKey key = generateKey();
+        for(int size : new int[] {0, 1, CHUNK_SIZE - 1, CHUNK_SIZE, CHUNK_SIZE + 1, CHUNK_SIZE * 3}) {
+            byte[] plaintext = getPlaintext(size);
+            byte[] encrypted = encrypt(plaintext, key);
+            int chunks = Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            Assertions.assertEquals(size + chunks * TAG_LENGTH_BYTES, encrypted.length, "Size " + size);
+            Assertions.assertArrayEquals(plaintext, decrypt(encrypted, key), "Size " + size);
+        }
+    }
+
+    @Test
+    public void singleByteWrites() throws IOException {
+        SecretKey key = generateKey();
+        byte[] plaintext = getPlaintext(CHUNK_SIZE + 10);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try(OutputStream outputStream = new ChunkedCipherOutputStream(baos, key, HEADER)) {
+            for(byte b : plaintext) {
+                outputStream.write(b);
+            }
+        }
+
+        Assertions.assertEquals(encrypt(plaintext, key).length, baos.toByteArray().length);
+        Assertions.assertArrayEquals(plaintext, decrypt(baos.toByteArray(), key));
+    }
+
+    @Test
+    public void tamperedChunk() throws IOException {
+        SecretKey key = generateKey();
+        byte[] encrypted = encrypt(getPlaintext(CHUNK_SIZE * 2 + 100), key);
+        encrypted[CHUNK_SIZE + TAG_LENGTH_BYTES + 5] ^= 1;
+
+        try(InputStream inputStream = new ChunkedCipherInputStream(new ByteArrayInputStream(encrypted), key, HEADER)) {
+            //The first chunk is authenticated and returned before the tampered chunk is reached
+            Assertions.assertEquals(CHUNK_SIZE, inputStream.readNBytes(CHUNK_SIZE).length);
+            Assertions.assertThrows(IOException.class, inputStream::read);
+        }
+    }
+
+    @Test
+    public void wrongAssociatedData() throws IOException {
+        SecretKey key = generateKey();
+        byte[] encrypted = encrypt(getPlaintext(100), key);
+        Assertions.assertThrows(IOException.class, () -> new ChunkedCipherInputStream(new ByteArrayInputStream(encrypted), key, new byte[0]).readAllBytes());
+    }
+
+    @Test
+    public void truncatedStream() throws IOException {
+        SecretKey key = generateKey();
+        byte[] encrypted = encrypt(getPlaintext(CHUNK_SIZE * 2 + 100), key);
+
+        //Dropping the final chunk leaves a stream that ends on a chunk not marked as final
+        byte[] truncated = Arrays.copyOf(encrypted, (CHUNK_SIZE + TAG_LENGTH_BYTES) * 2);
+        Assertions.assertThrows(IOException.class, () -> decrypt(truncated, key));
+
+        byte[] partial = Arrays.copyOf(encrypted, encrypted.length - 1);
+        Assertions.assertThrows(IOException.class, () -> decrypt(partial, key));
+    }
+
+    @Test
+    public void reorderedChunks() throws IOException {
+        SecretKey key = generateKey();
+        byte[] encrypted = encrypt(getPlaintext(CHUNK_SIZE * 2 + 100), key);
+        int chunkLength = CHUNK_SIZE + TAG_LENGTH_BYTES;
+
+        byte[] reordered = encrypted.clone();
+        System.arraycopy(encrypted, 0, reordered, chunkLength, chunkLength);
+        System.arraycopy(encrypted, chunkLength, reordered, 0, chunkLength);
+        Assertions.assertThrows(IOException.class, () -> decrypt(reordered, key));
+    }
+
+    @Test
+    public void streamingAllocationIsBounded() throws Exception {
+        SecretKey key = generateKey();
+        byte[] plaintext = getPlaintext(STREAMED_SIZE);
+        byte[] readBuffer = new byte[8192];
+        File file = File.createTempFile("chunked", ".enc");
+
+        //Only a chunk is buffered on each side, so the allocations do not grow with the size of the payload
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long allocated = threadMXBean.getCurrentThreadAllocatedBytes();
+        try {
+            try(OutputStream outputStream = new ChunkedCipherOutputStream(new BufferedOutputStream(new FileOutputStream(file)), key, HEADER)) {
+                for(int off = 0; off < plaintext.length; off += readBuffer.length) {
+                    outputStream.write(plaintext, off, Math.min(readBuffer.length, plaintext.length - off));
+                }
+            }
+            Assertions.assertEquals(STREAMED_SIZE + (long)(STREAMED_SIZE / CHUNK_SIZE) * TAG_LENGTH_BYTES, file.length());
+
+            try(InputStream inputStream = new ChunkedCipherInputStream(new BufferedInputStream(new FileInputStream(file)), key, HEADER)) {
+                long total = 0;
+                for(int read; (read = inputStream.read(readBuffer)) >= 0; ) {
+                    Assertions.assertTrue(Arrays.equals(plaintext, (int)total, (int)total + read, readBuffer, 0, read));
+                    total += read;
+                }
+                Assertions.assertEquals(plaintext.length, total);
+            }
+        } finally {
+            file.delete();
+        }
+
+        long streamAllocated = threadMXBean.getCurrentThreadAllocatedBytes() - allocated;
+        Assertions.assertTrue(streamAllocated < STREAMED_SIZE / 10, streamAllocated + " bytes allocated");
+    }
+
+    private static byte[] encrypt(byte[] plaintext, SecretKey key) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try(OutputStream outputStream = new ChunkedCipherOutputStream(baos, key, HEADER)) {
+            outputStream.write(plaintext);
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] decrypt(byte[] encrypted, SecretKey key) throws IOException {
+        try(InputStream inputStream = new ChunkedCipherInputStream(new ByteArrayInputStream(encrypted), key, HEADER)) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static SecretKey generateKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return new SecretKeySpec(key, "AES");
+    }
+
+    private static byte[] getPlaintext(int size) {
+        byte[] plaintext = new byte[size];
+        new Random(size).nextBytes(plaintext);
+        return plaintext;
+    }
+}
@@ -0,0 +1,146 @@
+package com.sparrowwallet.sparrow.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConfigWriterTest {
+    private static final int BURST_CHANGES = 1000;
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void burstIsCoalesced() throws Exception {
+        File configFile = new File(tempDir, "config");
+        AtomicInteger value = new AtomicInteger();
+        ConfigWriter configWriter = new ConfigWriter(() -> configFile, () -> "{\"value\": " + value.get() + "}", 60000);
+
+        for(int i = 1; i <= BURST_CHANGES; i++) {
+            value.set(i);
+            configWriter.requestWrite();
+        }
+        Assertions.assertEquals(0, configWriter.getWriteCount());
+
+        configWriter.flush();
+        Assertions.assertEquals(1, configWriter.getWriteCount());
+        Assertions.assertEquals("{\"value\": " + BURST_CHANGES + "}", Files.readString(configFile.toPath()));
+
+        configWriter.flush();
+        Assertions.assertEquals(1, configWriter.getWriteCount());
+    }
+
+    @Test
+    public void changeDuringWriteIsWritten() throws Exception {
+        File configFile = new File(tempDir, "config");
+        AtomicInteger value = new AtomicInteger(1);
+        AtomicReference<ConfigWriter> writer = new AtomicReference<>();
+        CountDownLatch secondWrite = new CountDownLatch(1);
+        ConfigWriter configWriter = new ConfigWriter(() -> configFile, () -> {
+            int current = value.get();
+            if(current == 1) {
+                //A change requested while the scheduled write is serializing the previous content
+                value.set(2);
+                writer.get().requestWrite();
+            } else {
+                secondWrite.countDown();
+            }
+            return String.valueOf(current);
+        }, 0);
+        writer.set(configWriter);
+
+        configWriter.requestWrite();
+        Assertions.assertTrue(secondWrite.await(10, TimeUnit.SECONDS));
+        configWriter.flush();
+        Assertions.assertEquals("2", Files.readString(configFile.toPath()));
+        Assertions.assertEquals(2, configWriter.getWriteCount());
+    }
+
+    @Test
+    public void flushWritesPendingChange() throws Exception {
+        File configFile = new File(tempDir, "config");
+        AtomicReference<String> content = new AtomicReference<>("first");
+        ConfigWriter configWriter = new ConfigWriter(() -> configFile, content::get, 60000);
+
+        configWriter.flush();
+        Assertions.assertFalse(configFile.exists());
+
+        configWriter.requestWrite();
+        content.set("second");
+        configWriter.flush();
+        Assertions.assertEquals("second", Files.readString(configFile.toPath()));
+        Assertions.assertEquals(1, configWriter.getWriteCount());
+
+        configWriter.flush();
+        Assertions.assertEquals(1, configWriter.getWriteCount());
+    }
+
+    @Test
+    public void failedWriteLeavesOriginal() throws Exception {
+        File configFile = new File(tempDir, "config");
+        Files.writeString(configFile.toPath(), "original");
+        ConfigWriter configWriter = new ConfigWriter(() -> configFile, () -> {
+            throw new IllegalStateException("Serialization failed");
+        }, 60000);
+
+        configWriter.requestWrite();
+        Assertions.assertThrows(IllegalStateException.class, configWriter::flush);
+        Assertions.assertEquals("original", Files.readString(configFile.toPath()));
+        Assertions.assertArrayEquals(new String[] {"config"}, tempDir.list());
+    }
+
+    @Test
+    public void readersNeverSeePartialWrites() throws Exception {
+        File configFile = new File(tempDir, "config");
+        AtomicInteger version = new AtomicInteger();
+        //A large file makes it likely a reader would observe a partially written file if the original was overwritten in place
+        ConfigWriter configWriter = new ConfigWriter(() -> configFile, () -> getContent(version.get()), 0);
+        configWriter.requestWrite();
+        configWriter.flush();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger reads = new AtomicInteger();
+        AtomicReference<String> partial = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while(running.get()) {
+                try {
+                    String content = Files.readString(configFile.toPath(), StandardCharsets.UTF_8);
+                    int contentVersion = Integer.parseInt(content.substring(0, content.indexOf(':')));
+                    if(!content.equals(getContent(contentVersion))) {
+                        partial.set(content.length() + " chars at version " + contentVersion);
+                    }
+                    reads.incrementAndGet();
+                } catch(Exception e) {
+                    partial.set(Objects.toString(e.getMessage()));
+                }
+            }
+        });
+        reader.start();
+
+        for(int i = 1; i <= 50; i++) {
+            version.set(i);
+            configWriter.requestWrite();
+            configWriter.flush();
+        }
+        running.set(false);
+        reader.join();
+
+        Assertions.assertNull(partial.get());
+        Assertions.assertTrue(reads.get() > 0);
+        Assertions.assertEquals(getContent(50), Files.readString(configFile.toPath()));
+    }
+
+    private static String getContent(int version) {
+        return version + ":" + "x".repeat(1024 * 1024);
+    }
+}
@@ -0,0 +1,108 @@
+package com.sparrowwallet.sparrow.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DerivedKeyCacheTest {
+    private static final File WALLET_FILE = new File("wallet.mv.db");
+    private static final int ACCOUNTS = 5;
+
+    private final AtomicLong time = new AtomicLong(1000);
+    private final AtomicInteger timeoutSecs = new AtomicInteger(DerivedKeyCache.DEFAULT_IDLE_TIMEOUT_SECS);
+    private final AtomicInteger derivations = new AtomicInteger();
+    private final DerivedKeyCache cache = new DerivedKeyCache(timeoutSecs::get, time::get);
+
+    @Test
+    public void secondOperationSkipsDerivation() throws Exception {
+        byte[] key = getKey("password");
+        Assertions.assertEquals(1, derivations.get());
+        Assertions.assertArrayEquals(key, getKey("password"));
+        Assertions.assertEquals(1, derivations.get());
+    }
+
+    @Test
+    public void wrongPasswordIsNotServed() throws Exception {
+        getKey("password");
+        Assertions.assertNull(cache.getKey(WALLET_FILE, "Password"));
+        Assertions.assertNull(cache.getKey(new File("other.mv.db"), "password"));
+        Assertions.assertNotNull(cache.getKey(WALLET_FILE, "password"));
+    }
+
+    @Test
+    public void idleExpiry() throws Exception {
+        getKey("password");
+        time.addAndGet(DerivedKeyCache.DEFAULT_IDLE_TIMEOUT_SECS * 1000L - 1);
+        Assertions.assertNotNull(cache.getKey(WALLET_FILE, "password"));
+
+        //Access resets the idle period
+        time.addAndGet(DerivedKeyCache.DEFAULT_IDLE_TIMEOUT_SECS * 1000L - 1);
+        cache.removeExpired();
+        Assertions.assertEquals(1, cache.size());
+
+        time.addAndGet(DerivedKeyCache.DEFAULT_IDLE_TIMEOUT_SECS * 1000L);
+        cache.removeExpired();
+        Assertions.assertEquals(0, cache.size());
+        getKey("password");
+        Assertions.assertEquals(2, derivations.get());
+    }
+
+    @Test
+    public void removeAndDisable() throws Exception {
+        getKey("password");
+        cache.remove(WALLET_FILE);
+        Assertions.assertNull(cache.getKey(WALLET_FILE, "password"));
+
+        timeoutSecs.set(0);
+        getKey("password");
+        getKey("password");
+        Assertions.assertEquals(3, derivations.get());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void returnedKeyIsCopy() throws Exception {
+        byte[] key = getKey("password");
+        byte[] cached = cache.getKey(WALLET_FILE, "password");
+        cached[0] ^= 1;
+        Assertions.assertArrayEquals(key, cache.getKey(WALLET_FILE, "password"));
+    }
+
+    @Test
+    public void signingAccountsDeriveOnce() throws Exception {
+        timeoutSecs.set(0);
+        byte[] key = getKey("password");
+        for(int i = 1; i < ACCOUNTS; i++) {
+            Assertions.assertArrayEquals(key, getKey("password"));
+        }
+        Assertions.assertEquals(ACCOUNTS, derivations.get());
+
+        //Signing for each account reuses the key derived for the first
+        timeoutSecs.set(DerivedKeyCache.DEFAULT_IDLE_TIMEOUT_SECS);
+        derivations.set(0);
+        for(int i = 0; i < ACCOUNTS; i++) {
+            Assertions.assertArrayEquals(key, getKey("password"));
+        }
+        Assertions.assertEquals(1, derivations.get());
+    }
+
+    //Mirrors Storage.getEncryptionKey, with PBKDF2 standing in for the wallet KDF
+    private byte[] getKey(String password) throws Exception {
+        byte[] cached = cache.getKey(WALLET_FILE, password);
+        if(cached != null) {
+            return cached;
+        }
+
+        derivations.incrementAndGet();
+        PBEKeySpec keySpec = new PBEKeySpec(password.toCharArray(), "salt".getBytes(StandardCharsets.UTF_8), 200000, 256);
+        byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(keySpec).getEncoded();
+        cache.putKey(WALLET_FILE, password, key);
+        return key;
+    }
+}
@@ -0,0 +1,101 @@
+package com.sparrowwallet.sparrow.io;
+
+import com.sparrowwallet.drongo.KeyPurpose;
+import com.sparrowwallet.drongo.wallet.MnemonicException;
+import com.sparrowwallet.drongo.wallet.Wallet;
+import com.sparrowwallet.sparrow.wallet.Entry;
+import com.sparrowwallet.sparrow.wallet.NodeEntry;
+import com.sparrowwallet.sparrow.wallet.WalletForm;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.IntFunction;
+
+public class WalletLabelsTest extends IoTest {
+    private static final int LABEL_COUNT = 1000000;
+
+    private WalletForm walletForm;
+    private List<NodeEntry> addressEntries;
+
+    @BeforeEach
+    public void setUp() throws IOException, MnemonicException, StorageException {
+        System.setProperty(Wallet.ALLOW_DERIVATIONS_MATCHING_OTHER_NETWORKS_PROPERTY, "true");
+        Storage storage = new Storage(getFile("sparrow-single-wallet"));
+        Wallet wallet = storage.loadEncryptedWallet("pass").getWallet();
+        walletForm = new WalletForm(storage, wallet);
+
+        addressEntries = new ArrayList<>();
+        for(KeyPurpose keyPurpose : KeyPurpose.DEFAULT_PURPOSES) {
+            for(Entry entry : walletForm.getNodeEntry(keyPurpose).getChildren()) {
+                addressEntries.add((NodeEntry)entry);
+            }
+        }
+        Assertions.assertFalse(addressEntries.isEmpty());
+    }
+
+    @Test
+    public void importsAddressLabels() throws ImportException {
+        NodeEntry first = addressEntries.get(0);
+        NodeEntry second = addressEntries.get(1);
+        String secondLabel = second.getNode().getLabel();
+        String labels = String.join("\n",
+                "{\"type\":\"addr\",\"ref\":\"" + first.getAddress() + "\",\"label\":\"First\"}",
+                "{\"type\":\"addr\",\"ref\":\"" + second.getAddress() + "\",\"label\":\"Other wallet\",\"origin\":\"wpkh([00000000/84'/0'/0'])\"}",
+                "{\"type\":\"addr\",\"ref\":\"" + second.getAddress() + "\",\"label\":\"\"}",
+                "not a label",
+                "{\"type\":\"tx\",\"ref\":\"" + "00".repeat(32) + "\",\"label\":\"Unknown transaction\"}");
+
+        importLabels(new ByteArrayInputStream(labels.getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertEquals("First", first.getLabel());
+        Assertions.assertEquals("First", first.getNode().getLabel());
+        //Labels for another wallet, and empty labels, are ignored
+        Assertions.assertEquals(secondLabel, second.getNode().getLabel());
+    }
+
+    @Test
+    public void importsGeneratedLabels() throws ImportException {
+        //Most labels refer to transactions not in the wallet, with every thousandth relabelling an address
+        IntFunction<String> labelLine = i -> i % 1000 == 0 ?
+                "{\"type\":\"addr\",\"ref\":\"" + addressEntries.get((i / 1000) % addressEntries.size()).getAddress() + "\",\"label\":\"Address " + i + "\"}" :
+                "{\"type\":\"tx\",\"ref\":\"" + String.format("%064x", i) + "\",\"label\":\"Transaction " + i + "\"}";
+
+        Map<NodeEntry, String> expectedLabels = new HashMap<>();
+        for(int i = 0; i < LABEL_COUNT; i += 1000) {
+            expectedLabels.put(addressEntries.get((i / 1000) % addressEntries.size()), "Address " + i);
+        }
+
+        //The file is generated as it is read, and the importer logs its throughput on completion
+        importLabels(generateLabels(LABEL_COUNT, labelLine));
+
+        for(Map.Entry<NodeEntry, String> expected : expectedLabels.entrySet()) {
+            Assertions.assertEquals(expected.getValue(), expected.getKey().getLabel());
+            Assertions.assertEquals(expected.getValue(), expected.getKey().getNode().getLabel());
+        }
+    }
+
+    private void importLabels(InputStream inputStream) throws ImportException {
+        WalletLabels walletLabels = new WalletLabels(List.of(walletForm));
+        Assertions.assertSame(walletForm.getWallet(), walletLabels.importWallet(inputStream, null));
+    }
+
+    private static InputStream generateLabels(int count, IntFunction<String> labelLine) {
+        return new SequenceInputStream(new Enumeration<>() {
+            private int index;
+
+            @Override
+            public boolean hasMoreElements() {
+                return index < count;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return new ByteArrayInputStream((labelLine.apply(index++) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package com.sparrowwallet.sparrow.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.*;
+
+public class WalletTransactionsTest {
+    private static final String TX1 = "1".repeat(64);
+    private static final String TX2 = "2".repeat(64);
+    private static final String TX3 = "3".repeat(64);
+    private static final String TX4 = "4".repeat(64);
+    private static final String TX5 = "5".repeat(64);
+
+    @Test
+    public void unchangedTransactionsAreOmitted() {
+        Map<String, Integer> heights = heights(TX1, 100, TX2, 0);
+        Assertions.assertTrue(WalletTransactions.getChanges(heights, heights).isEmpty());
+    }
+
+    @Test
+    public void classifiesChanges() {
+        Map<String, Integer> checkpointHeights = heights(TX1, 100, TX2, 0, TX3, 101, TX4, 102);
+        Map<String, Integer> txHeights = heights(TX5, 0, TX1, 100, TX2, 103, TX3, 104);
+
+        Map<String, WalletTransactions.Change> changes = WalletTransactions.getChanges(txHeights, checkpointHeights);
+
+        Assertions.assertEquals(List.of(TX5, TX2, TX3, TX4), new ArrayList<>(changes.keySet()));
+        Assertions.assertEquals(WalletTransactions.Change.NEW, changes.get(TX5));
+        Assertions.assertEquals(WalletTransactions.Change.CONFIRMED, changes.get(TX2));
+        Assertions.assertEquals(WalletTransactions.Change.REORGED, changes.get(TX3));
+        Assertions.assertEquals(WalletTransactions.Change.REMOVED, changes.get(TX4));
+    }
+
+    @Test
+    public void reorgedOutOfBlockIsReported() {
+        //A transaction returned to the mempool by a reorg no longer has its previous height
+        Map<String, WalletTransactions.Change> changes = WalletTransactions.getChanges(heights(TX1, 0), heights(TX1, 100));
+        Assertions.assertEquals(Map.of(TX1, WalletTransactions.Change.REORGED), changes);
+    }
+
+    @Test
+    public void newUnconfirmedTransactionIsOnlyReportedOnce() {
+        Map<String, Integer> txHeights = heights(TX1, 0);
+        Assertions.assertEquals(Map.of(TX1, WalletTransactions.Change.NEW), WalletTransactions.getChanges(txHeights, Map.of()));
+        Assertions.assertTrue(WalletTransactions.getChanges(heights(TX1, -1), txHeights).isEmpty());
+    }
+
+    @Test
+    public void changesAreWrittenAlongsideDestination() {
+        File destination = new File("exports", "wallet-transactions.csv");
+        Date date = new GregorianCalendar(2026, Calendar.JANUARY, 2, 3, 4, 5).getTime();
+
+        File changesFile = ExportCheckpoint.getChangesFile(destination, date);
+        Assertions.assertEquals(new File("exports", "wallet-transactions-changes-20260102-030405.csv"), changesFile);
+        Assertions.assertNotEquals(destination, changesFile);
+    }
+
+    private static Map<String, Integer> heights(Object... txidHeights) {
+        Map<String, Integer> heights = new LinkedHashMap<>();
+        for(int i = 0; i < txidHeights.length; i += 2) {
+            heights.put((String)txidHeights[i], (Integer)txidHeights[i + 1]);
+        }
+
+        return heights;
+    }
+}
@@ -0,0 +1,74 @@
+package com.sparrowwallet.sparrow.io.db;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.*;
+
+public class DbCompactionTest {
+    private static final int ROWS = 20000;
+    private static final int REWRITES = 5;
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void compactionRequired() {
+        Assertions.assertFalse(new DbCompaction.FileStats(DbCompaction.MIN_FILE_SIZE / 2, 10).isCompactionRequired());
+        Assertions.assertFalse(new DbCompaction.FileStats(DbCompaction.MIN_FILE_SIZE * 4, 90).isCompactionRequired());
+        Assertions.assertTrue(new DbCompaction.FileStats(DbCompaction.MIN_FILE_SIZE * 4, 40).isCompactionRequired());
+        Assertions.assertTrue(new DbCompaction.FileStats(DbCompaction.MAX_UNUSED_BYTES * 10, 80).isCompactionRequired());
+    }
+
+    @Test
+    public void compactsUnusedSpace() throws Exception {
+        File dbFile = new File(tempDir, "wallet");
+        String url = "jdbc:h2:" + dbFile.getAbsolutePath() + ";DATABASE_TO_UPPER=false;MAX_COMPACT_TIME=0";
+        File mvFile = new File(tempDir, "wallet.mv.db");
+
+        //Repeatedly rewriting the same rows, as history updates do, leaves most of the file unused
+        Connection connection = DriverManager.getConnection(url, "sa", "");
+        try(Statement statement = connection.createStatement()) {
+            statement.execute("create table txo (id int primary key, data varchar(1000))");
+        }
+        for(int i = 0; i < REWRITES; i++) {
+            try(Statement statement = connection.createStatement()) {
+                statement.execute("delete from txo");
+            }
+            try(PreparedStatement statement = connection.prepareStatement("insert into txo values (?, ?)")) {
+                for(int j = 0; j < ROWS; j++) {
+                    statement.setInt(1, j);
+                    statement.setString(2, "x".repeat(200));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+        try(Statement statement = connection.createStatement()) {
+            statement.execute("delete from txo where id >= 1000");
+        }
+
+        DbCompaction.FileStats fileStats = DbCompaction.getFileStats(connection);
+        Assertions.assertTrue(fileStats.isCompactionRequired(), fileStats.toString());
+
+        //With MAX_COMPACT_TIME=0 closing only flushes, leaving the unused space in the file
+        connection.close();
+        long closedSize = mvFile.length();
+        Assertions.assertTrue(closedSize >= fileStats.fileSize() / 2, closedSize + " bytes after close");
+
+        DbCompaction.compact(url, "sa", "");
+        long compactedSize = mvFile.length();
+        Assertions.assertTrue(compactedSize < closedSize / 2, compactedSize + " bytes after compaction");
+        //The compacted copy replaces the original, so no temporary file is left behind
+        Assertions.assertArrayEquals(new String[] {mvFile.getName()}, tempDir.list((dir, name) -> name.startsWith("wallet.")));
+
+        try(Connection reopened = DriverManager.getConnection(url, "sa", ""); Statement statement = reopened.createStatement();
+            ResultSet resultSet = statement.executeQuery("select count(*) from txo")) {
+            resultSet.next();
+            Assertions.assertEquals(1000, resultSet.getInt(1));
+            Assertions.assertFalse(DbCompaction.getFileStats(reopened).isCompactionRequired());
+        }
+    }
+}
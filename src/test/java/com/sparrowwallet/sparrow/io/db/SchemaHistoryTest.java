@@ -0,0 +1,112 @@
+package com.sparrowwallet.sparrow.io.db;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.*;
+
+public class SchemaHistoryTest {
+    private static final int CHILD_SCHEMAS = 50;
+
+    @TempDir
+    File tempDir;
+
+    private HikariDataSource dataSource;
+    private File migrationDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:" + new File(tempDir, "wallet").getAbsolutePath() + ";DATABASE_TO_UPPER=false");
+        config.setUsername("sa");
+        config.setPassword("");
+        dataSource = new HikariDataSource(config);
+        migrationDir = new File(SchemaHistoryTest.class.getClassLoader().getResource(DbPersistence.MIGRATION_RESOURCES_DIR).toURI());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    public void latestVersion() {
+        Assertions.assertEquals("10", SchemaHistory.getLatestVersion(new String[] {"V9__Nine.sql", "V10__Ten.sql", "V2__Two.sql", "README.md"}));
+        Assertions.assertEquals("1.10", SchemaHistory.getLatestVersion(new String[] {"V1_9__Nine.sql", "V1_10__Ten.sql"}));
+        Assertions.assertNull(SchemaHistory.getLatestVersion(new String[0]));
+        Assertions.assertEquals(SchemaHistory.getLatestVersion(migrationDir.list()), String.valueOf(Objects.requireNonNull(migrationDir.list()).length));
+    }
+
+    @Test
+    public void detectsPendingMigrations() {
+        String latestVersion = SchemaHistory.getLatestVersion(migrationDir.list());
+        int latest = Integer.parseInt(latestVersion);
+        Set<String> currentSchemas = Jdbi.create(dataSource).withHandle(handle -> {
+            createSchemaHistory(handle, "wallet_current", latest, true);
+            createSchemaHistory(handle, "wallet_previous", latest - 1, true);
+            createSchemaHistory(handle, "wallet_failed", latest, false);
+            handle.execute("create schema \"wallet_missing\"");
+            return SchemaHistory.getCurrentSchemas(handle, List.of("wallet_current", "wallet_previous", "wallet_failed", "wallet_missing"), latestVersion);
+        });
+
+        Assertions.assertEquals(Set.of("wallet_current"), currentSchemas);
+    }
+
+    @Test
+    public void checksEveryChildSchema() {
+        String latestVersion = SchemaHistory.getLatestVersion(migrationDir.list());
+        int latest = Integer.parseInt(latestVersion);
+        List<String> schemas = new ArrayList<>();
+        Set<String> expectedSchemas = new HashSet<>();
+        Set<String> currentSchemas = Jdbi.create(dataSource).withHandle(handle -> {
+            //Every fifth child schema is left behind, so that an unreadable or outdated schema does not affect those checked after it
+            for(int i = 0; i < CHILD_SCHEMAS; i++) {
+                String schema = "wallet_child" + i;
+                schemas.add(schema);
+                if(i % 5 == 0) {
+                    handle.execute("create schema \"" + schema + "\"");
+                } else if(i % 5 == 1) {
+                    createSchemaHistory(handle, schema, latest - 1, true);
+                } else {
+                    createSchemaHistory(handle, schema, latest, true);
+                    expectedSchemas.add(schema);
+                }
+            }
+
+            return SchemaHistory.getCurrentSchemas(handle, schemas, latestVersion);
+        });
+
+        Assertions.assertEquals(CHILD_SCHEMAS * 3 / 5, expectedSchemas.size());
+        Assertions.assertEquals(expectedSchemas, currentSchemas);
+    }
+
+    @Test
+    public void noSchemasCurrentWithoutMigrations() {
+        Set<String> currentSchemas = Jdbi.create(dataSource).withHandle(handle -> {
+            createSchemaHistory(handle, "wallet_current", 1, true);
+            return SchemaHistory.getCurrentSchemas(handle, List.of("wallet_current"), null);
+        });
+
+        Assertions.assertTrue(currentSchemas.isEmpty());
+    }
+
+    //Creates the history table as Flyway does on H2, with one row for each applied migration
+    private static void createSchemaHistory(Handle handle, String schema, int version, boolean lastSucceeded) {
+        handle.execute("create schema \"" + schema + "\"");
+        handle.execute("create table \"" + schema + "\".\"" + SchemaHistory.HISTORY_TABLE + "\" (\"installed_rank\" int not null primary key, \"version\" varchar(50), " +
+                "\"description\" varchar(200) not null, \"type\" varchar(20) not null, \"script\" varchar(1000) not null, \"checksum\" int, " +
+                "\"installed_by\" varchar(100) not null, \"installed_on\" timestamp default current_timestamp not null, \"execution_time\" int not null, \"success\" boolean not null)");
+        for(int i = 1; i <= version; i++) {
+            handle.execute("insert into \"" + schema + "\".\"" + SchemaHistory.HISTORY_TABLE + "\" (\"installed_rank\", \"version\", \"description\", \"type\", \"script\", \"installed_by\", \"execution_time\", \"success\") " +
+                    "values (?, ?, ?, 'SQL', ?, 'sa', 0, ?)", i, String.valueOf(i), "Migration " + i, "V" + i + "__Migration.sql", i < version || lastSucceeded);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.sparrowwallet.sparrow.net;
+
+import com.sparrowwallet.drongo.policy.Policy;
+import com.sparrowwallet.drongo.policy.PolicyType;
+import com.sparrowwallet.drongo.protocol.ScriptType;
+import com.sparrowwallet.drongo.wallet.*;
+import com.sparrowwallet.sparrow.io.IoTest;
+import com.sparrowwallet.sparrow.io.Storage;
+import com.sparrowwallet.sparrow.io.StorageException;
+import com.sparrowwallet.sparrow.io.WalletAndKey;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+public class Bip47AddressDeriverTest extends IoTest {
+    private static final List<String> CONTACT_MNEMONICS = List.of(
+            "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon about",
+            "zoo zoo zoo zoo zoo zoo zoo zoo zoo zoo zoo wrong");
+
+    @BeforeEach
+    public void setUp() {
+        System.setProperty(Wallet.ALLOW_DERIVATIONS_MATCHING_OTHER_NETWORKS_PROPERTY, "true");
+    }
+
+    @Test
+    public void derivesChildWalletAddresses() throws Exception {
+        //The same contacts are added to two copies of the wallet, one derived concurrently and the other one address at a time
+        List<Wallet> childWallets = addContacts(loadSeedWallet());
+        List<Wallet> expectedChildWallets = addContacts(loadSeedWallet());
+
+        Map<Wallet, List<WalletNode>> walletNodes = new LinkedHashMap<>();
+        for(Wallet childWallet : childWallets) {
+            Assertions.assertTrue(childWallet.isBip47());
+            List<WalletNode> underivedNodes = Bip47AddressDeriver.getUnderivedNodes(childWallet);
+            Assertions.assertFalse(underivedNodes.isEmpty());
+            walletNodes.put(childWallet, underivedNodes);
+        }
+
+        Bip47AddressDeriver.deriveAddresses(walletNodes);
+
+        for(int i = 0; i < childWallets.size(); i++) {
+            Wallet childWallet = childWallets.get(i);
+            List<WalletNode> derivedNodes = walletNodes.get(childWallet);
+            List<WalletNode> expectedNodes = Bip47AddressDeriver.getUnderivedNodes(expectedChildWallets.get(i));
+            Assertions.assertEquals(expectedNodes.size(), derivedNodes.size());
+
+            for(int j = 0; j < derivedNodes.size(); j++) {
+                Assertions.assertNotNull(derivedNodes.get(j).getAddressData());
+                Assertions.assertEquals(expectedNodes.get(j).getDerivationPath(), derivedNodes.get(j).getDerivationPath());
+                Assertions.assertEquals(expectedNodes.get(j).getAddress(), derivedNodes.get(j).getAddress());
+            }
+
+            //Derived addresses are kept with the nodes, so a further pass has nothing to derive
+            Assertions.assertTrue(Bip47AddressDeriver.getUnderivedNodes(childWallet).isEmpty());
+        }
+    }
+
+    @Test
+    public void continuesAfterFailedBatch() throws Exception {
+        List<Integer> derived = Collections.synchronizedList(new ArrayList<>());
+        Bip47AddressDeriver.deriveConcurrently(List.of(List.of(1, 2), List.of(-1, 3), List.of(4)), value -> {
+            if(value < 0) {
+                throw new IllegalArgumentException("Invalid payment code");
+            }
+            derived.add(value);
+        }, 2);
+
+        Assertions.assertEquals(Set.of(1, 2, 4), new HashSet<>(derived));
+    }
+
+    private Wallet loadSeedWallet() throws IOException, MnemonicException, StorageException {
+        Storage storage = new Storage(getFile("sparrow-single-seed-wallet"));
+        WalletAndKey walletAndKey = storage.loadEncryptedWallet("pass");
+        Wallet wallet = walletAndKey.getWallet();
+        wallet.decrypt(walletAndKey.getKey());
+        return wallet;
+    }
+
+    private static List<Wallet> addContacts(Wallet masterWallet) throws MnemonicException {
+        List<Wallet> childWallets = new ArrayList<>();
+        for(String mnemonic : CONTACT_MNEMONICS) {
+            Wallet contactWallet = getWallet(mnemonic);
+            childWallets.add(masterWallet.addChildWallet(contactWallet.getPaymentCode(), ScriptType.P2WPKH, contactWallet.getName()));
+        }
+
+        return childWallets;
+    }
+
+    private static Wallet getWallet(String mnemonic) throws MnemonicException {
+        DeterministicSeed seed = new DeterministicSeed(Arrays.asList(mnemonic.split(" ")), "", 0, DeterministicSeed.Type.BIP39);
+        Wallet wallet = new Wallet(mnemonic.substring(0, mnemonic.indexOf(' ')));
+        wallet.setPolicyType(PolicyType.SINGLE);
+        wallet.setScriptType(ScriptType.P2WPKH);
+        wallet.getKeystores().add(Keystore.fromSeed(seed, ScriptType.P2WPKH.getDefaultDerivation()));
+        wallet.setDefaultPolicy(Policy.getPolicy(PolicyType.SINGLE, ScriptType.P2WPKH, wallet.getKeystores(), 1));
+        return wallet;
+    }
+}
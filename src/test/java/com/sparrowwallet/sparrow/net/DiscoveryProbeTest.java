@@ -0,0 +1,99 @@
+package com.sparrowwallet.sparrow.net;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class DiscoveryProbeTest {
+    private static final int GAP_LIMIT = 20;
+
+    @Test
+    public void findsUsedCandidatesInOrder() throws ServerException {
+        Map<String, List<String>> candidates = new LinkedHashMap<>();
+        candidates.put("unused", scriptHashes("unused"));
+        candidates.put("usedLate", scriptHashes("usedLate"));
+        candidates.put("usedFirst", scriptHashes("usedFirst"));
+        Set<String> usedScriptHashes = Set.of("usedLate-17", "usedFirst-0");
+
+        DiscoveryProbe<String> probe = new DiscoveryProbe<>(5);
+        Set<String> used = probe.findUsed(candidates, new MockServer(usedScriptHashes));
+
+        Assertions.assertEquals(List.of("usedLate", "usedFirst"), new ArrayList<>(used));
+        Assertions.assertEquals(GAP_LIMIT / 5, probe.getRoundTrips());
+        //usedFirst is resolved after the first window, so is not requested again
+        Assertions.assertEquals(GAP_LIMIT + GAP_LIMIT + 5, probe.getRequests());
+    }
+
+    @Test
+    public void fewerRoundTripsThanSequential() throws ServerException {
+        int accounts = 30;
+        Map<Integer, List<String>> candidates = new LinkedHashMap<>();
+        Set<String> usedScriptHashes = new HashSet<>();
+        for(int i = 0; i < accounts; i++) {
+            candidates.put(i, scriptHashes("account" + i));
+            if(i % 3 == 0) {
+                usedScriptHashes.add("account" + i + "-0");
+            }
+        }
+
+        MockServer sequentialServer = new MockServer(usedScriptHashes);
+        int sequentialFound = 0;
+        for(Map.Entry<Integer, List<String>> entry : candidates.entrySet()) {
+            Map<String, String> pathScriptHashes = new LinkedHashMap<>();
+            for(int i = 0; i < entry.getValue().size(); i++) {
+                pathScriptHashes.put("m/0/" + i, entry.getValue().get(i));
+            }
+            if(sequentialServer.getHistory(pathScriptHashes).values().stream().anyMatch(txes -> txes.length > 0)) {
+                sequentialFound++;
+            }
+        }
+
+        MockServer probeServer = new MockServer(usedScriptHashes);
+        DiscoveryProbe<Integer> probe = new DiscoveryProbe<>();
+        Set<Integer> used = probe.findUsed(candidates, probeServer);
+
+        Assertions.assertEquals(sequentialFound, used.size());
+        Assertions.assertEquals(accounts, sequentialServer.roundTrips);
+        Assertions.assertEquals(GAP_LIMIT / DiscoveryProbe.DEFAULT_WINDOW_SIZE, probeServer.roundTrips);
+        Assertions.assertTrue(probeServer.requests < sequentialServer.requests);
+    }
+
+    private static List<String> scriptHashes(String prefix) {
+        List<String> scriptHashes = new ArrayList<>();
+        for(int i = 0; i < GAP_LIMIT; i++) {
+            scriptHashes.add(prefix + "-" + i);
+        }
+        return scriptHashes;
+    }
+
+    private static class MockServer implements DiscoveryProbe.HistoryFetcher {
+        private final Set<String> usedScriptHashes;
+        private int roundTrips;
+        private int requests;
+
+        public MockServer(Set<String> usedScriptHashes) {
+            this.usedScriptHashes = usedScriptHashes;
+        }
+
+        @Override
+        public Map<String, ScriptHashTx[]> getHistory(Map<String, String> pathScriptHashes) {
+            roundTrips++;
+            requests += pathScriptHashes.size();
+
+            Map<String, ScriptHashTx[]> result = new LinkedHashMap<>();
+            for(Map.Entry<String, String> entry : pathScriptHashes.entrySet()) {
+                if(usedScriptHashes.contains(entry.getValue())) {
+                    ScriptHashTx scriptHashTx = new ScriptHashTx();
+                    scriptHashTx.tx_hash = "0000000000000000000000000000000000000000000000000000000000000001";
+                    scriptHashTx.height = 100;
+                    result.put(entry.getKey(), new ScriptHashTx[] {scriptHashTx});
+                } else {
+                    result.put(entry.getKey(), new ScriptHashTx[0]);
+                }
+            }
+
+            return result;
+        }
+    }
+}
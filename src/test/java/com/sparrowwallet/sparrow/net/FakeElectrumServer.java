@@ -0,0 +1,118 @@
+package com.sparrowwallet.sparrow.net;
+
+import com.google.common.net.HostAndPort;
+import com.google.gson.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal line-based JSON-RPC server on the loopback interface that answers Electrum requests after a configurable delay.
+ */
+public class FakeElectrumServer implements Closeable {
+    private final String name;
+    private final ServerSocket serverSocket;
+    private final List<Socket> connections = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile long responseDelayMillis;
+    private volatile boolean closed;
+
+    public FakeElectrumServer(String name, long responseDelayMillis) throws IOException {
+        this.name = name;
+        this.responseDelayMillis = responseDelayMillis;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptThread = new Thread(this::acceptLoop, "FakeElectrumServer-" + name);
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public HostAndPort getHostAndPort() {
+        return HostAndPort.fromParts(serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public void setResponseDelayMillis(long responseDelayMillis) {
+        this.responseDelayMillis = responseDelayMillis;
+    }
+
+    private void acceptLoop() {
+        while(!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                Thread connectionThread = new Thread(() -> handle(socket), "FakeElectrumServerConnection-" + name);
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            } catch(IOException e) {
+                //closed
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try(socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            String line;
+            while((line = in.readLine()) != null) {
+                JsonElement request = JsonParser.parseString(line);
+                boolean handshake = request.isJsonObject() && "server.version".equals(request.getAsJsonObject().get("method").getAsString());
+                if(!handshake) {
+                    requestCount.incrementAndGet();
+                    Thread.sleep(responseDelayMillis);
+                }
+
+                if(request.isJsonArray()) {
+                    JsonArray responses = new JsonArray();
+                    for(JsonElement element : request.getAsJsonArray()) {
+                        responses.add(getResponse(element.getAsJsonObject()));
+                    }
+                    out.println(responses);
+                } else {
+                    out.println(getResponse(request.getAsJsonObject()));
+                }
+            }
+        } catch(Exception e) {
+            //connection closed
+        }
+    }
+
+    private JsonObject getResponse(JsonObject request) {
+        JsonObject response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.add("id", request.get("id"));
+        if("server.version".equals(request.get("method").getAsString())) {
+            JsonArray version = new JsonArray();
+            version.add("ElectrumX 1.16.0");
+            version.add("1.4");
+            response.add("result", version);
+        } else {
+            response.addProperty("result", name);
+        }
+
+        return response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for(Socket connection : connections) {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.sparrowwallet.sparrow.net;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class GapLimitLookaheadTest {
+    private static final int GAP_LIMIT = 20;
+
+    @Test
+    public void noHistoryExtendsToGapLimit() throws ServerException {
+        MockChain chain = new MockChain(Set.of(), 0);
+        new GapLimitLookahead(GAP_LIMIT).extend(chain);
+
+        Assertions.assertEquals(GAP_LIMIT, chain.size);
+        Assertions.assertEquals(range(0, GAP_LIMIT), chain.subscribed);
+        Assertions.assertTrue(chain.checked.isEmpty());
+    }
+
+    @Test
+    public void historyExactlyAtGapLimit() throws ServerException {
+        //The last address of the initial chain is used, so exactly one further gap limit of addresses is needed
+        MockChain chain = new MockChain(Set.of(GAP_LIMIT - 1), GAP_LIMIT);
+        GapLimitLookahead lookahead = new GapLimitLookahead(GAP_LIMIT);
+        lookahead.extend(chain);
+
+        Assertions.assertEquals(GAP_LIMIT * 2, chain.size);
+        Assertions.assertEquals(range(0, GAP_LIMIT * 2), chain.subscribed);
+        Assertions.assertTrue(chain.checked.isEmpty());
+        Assertions.assertEquals(1, lookahead.getRounds());
+    }
+
+    @Test
+    public void historyJustBeyondGapLimitIsNotFound() throws ServerException {
+        MockChain chain = new MockChain(Set.of(5, 5 + GAP_LIMIT + 1), GAP_LIMIT);
+        new GapLimitLookahead(GAP_LIMIT).extend(chain);
+
+        Assertions.assertEquals(5 + GAP_LIMIT + 1, chain.size);
+        Assertions.assertEquals(range(0, 5 + GAP_LIMIT + 1), chain.subscribed);
+    }
+
+    @Test
+    public void longChainMatchesSequentialExtension() throws ServerException {
+        Set<Integer> used = range(0, 300);
+        used.add(310);
+        used.add(330);
+
+        MockChain chain = new MockChain(used, GAP_LIMIT);
+        GapLimitLookahead lookahead = new GapLimitLookahead(GAP_LIMIT);
+        lookahead.extend(chain);
+
+        int expectedSize = 330 + GAP_LIMIT + 1;
+        Assertions.assertEquals(expectedSize, chain.size);
+        Assertions.assertEquals(range(0, expectedSize), chain.subscribed);
+        //Extending one gap limit at a time would take one round per gap limit of used addresses
+        Assertions.assertTrue(lookahead.getRounds() < expectedSize / GAP_LIMIT / 2, "Rounds: " + lookahead.getRounds());
+    }
+
+    @Test
+    public void usedAddressesBeyondLookaheadAreIgnored() throws ServerException {
+        //Index 60 is checked speculatively while the chain is consumed, but the gap limit never reaches it once the chain stops at 39
+        Set<Integer> used = range(0, 40);
+        used.add(60 + GAP_LIMIT);
+        MockChain chain = new MockChain(used, GAP_LIMIT);
+        new GapLimitLookahead(GAP_LIMIT).extend(chain);
+
+        int expectedSize = 39 + GAP_LIMIT + 1;
+        Assertions.assertEquals(expectedSize, chain.size);
+        Assertions.assertEquals(range(0, expectedSize), chain.subscribed);
+        Assertions.assertTrue(chain.checked.contains(60 + GAP_LIMIT));
+        Assertions.assertFalse(chain.subscribed.contains(60 + GAP_LIMIT));
+    }
+
+    @Test
+    public void lookaheadIsCapped() throws ServerException {
+        MockChain chain = new MockChain(range(0, 5000), GAP_LIMIT);
+        new GapLimitLookahead(GAP_LIMIT).extend(chain);
+
+        Assertions.assertEquals(5000 + GAP_LIMIT, chain.size);
+        Assertions.assertEquals(range(0, 5000 + GAP_LIMIT), chain.subscribed);
+        Assertions.assertTrue(chain.checkSizes.stream().allMatch(size -> size <= GapLimitLookahead.MAX_LOOKAHEAD), "Check sizes: " + chain.checkSizes);
+        Assertions.assertTrue(chain.checkSizes.contains(GapLimitLookahead.MAX_LOOKAHEAD));
+    }
+
+    private static Set<Integer> range(int startInclusive, int endExclusive) {
+        return IntStream.range(startInclusive, endExclusive).boxed().collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static class MockChain implements GapLimitLookahead.Chain {
+        private final Set<Integer> used;
+        private final Set<Integer> subscribed = new TreeSet<>();
+        private final Set<Integer> checked = new TreeSet<>();
+        private final List<Integer> checkSizes = new ArrayList<>();
+        private int size;
+
+        public MockChain(Set<Integer> used, int initialSize) {
+            this.used = used;
+            this.size = initialSize;
+            //The caller has already subscribed to the existing addresses
+            subscribed.addAll(range(0, initialSize));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void fill(int size) {
+            this.size = Math.max(this.size, size);
+        }
+
+        @Override
+        public void subscribe(int startIndex, int endIndex) {
+            for(int i = startIndex; i < endIndex; i++) {
+                Assertions.assertTrue(i < size);
+                Assertions.assertTrue(subscribed.add(i), "Subscribed twice to " + i);
+            }
+        }
+
+        @Override
+        public Set<Integer> getUsedIndexes(int startIndex, int endIndex) {
+            checkSizes.add(endIndex - startIndex);
+            Set<Integer> usedIndexes = new HashSet<>();
+            for(int i = startIndex; i < endIndex; i++) {
+                Assertions.assertTrue(i < size);
+                Assertions.assertFalse(subscribed.contains(i));
+                Assertions.assertTrue(checked.add(i), "Checked twice " + i);
+                if(used.contains(i)) {
+                    usedIndexes.add(i);
+                }
+            }
+
+            return usedIndexes;
+        }
+
+        @Override
+        public int getGapLimitSize() {
+            return subscribed.stream().filter(used::contains).mapToInt(Integer::intValue).max().orElse(-1) + GAP_LIMIT + 1;
+        }
+
+        @Override
+        public void trim(int size) {
+            Assertions.assertTrue(subscribed.stream().allMatch(index -> index < size));
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.sparrowwallet.sparrow.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+public class HedgedTransportTest {
+    private final List<FakeElectrumServer> servers = new ArrayList<>();
+    private HedgedTransport transport;
+
+    @Test
+    public void hedgesSlowPrimary() throws Exception {
+        FakeElectrumServer primary = createServer("primary", 5000);
+        FakeElectrumServer fallback = createServer("fallback", 10);
+        connect(primary, fallback);
+
+        long start = System.currentTimeMillis();
+        String response = transport.pass(request(1, "blockchain.transaction.get"));
+        long elapsed = System.currentTimeMillis() - start;
+
+        Assertions.assertTrue(response.contains("fallback"));
+        Assertions.assertTrue(elapsed < 4000, "Hedged request took " + elapsed + "ms");
+        Assertions.assertEquals(1, fallback.getRequestCount());
+    }
+
+    @Test
+    public void abandonedPrimaryDoesNotRaiseTimeout() throws Exception {
+        FakeElectrumServer primary = createServer("primary", 10);
+        FakeElectrumServer fallback = createServer("fallback", 10);
+        connect(primary, fallback);
+        Assertions.assertTrue(transport.pass(request(1, "blockchain.transaction.get")).contains("primary"));
+
+        //Slower than the first read timeout, which the primary would reach if it kept waiting after the fallback won
+        primary.setResponseDelayMillis(4000);
+        Assertions.assertTrue(transport.pass(request(2, "blockchain.transaction.get")).contains("fallback"));
+        primary.setResponseDelayMillis(10);
+
+        //The late response to the abandoned request is discarded, and the subscription receives its own response
+        String response = transport.pass(request(3, "blockchain.scripthash.subscribe"));
+        Assertions.assertTrue(response.contains("\"id\":3"));
+        Assertions.assertEquals(0, transport.getTimeoutCount());
+    }
+
+    @Test
+    public void latePrimaryResponseIsNotRecorded() throws Exception {
+        FakeElectrumServer primary = createServer("primary", 2500);
+        FakeElectrumServer fallback = createServer("fallback", 10);
+        connect(primary, fallback);
+
+        Assertions.assertTrue(transport.pass(request(1, "blockchain.transaction.get")).contains("fallback"));
+        Assertions.assertEquals(0, transport.getLatencySampleCount());
+
+        primary.setResponseDelayMillis(10);
+        Assertions.assertTrue(transport.pass(request(2, "blockchain.scripthash.subscribe")).contains("primary"));
+        Assertions.assertEquals(1, transport.getLatencySampleCount());
+    }
+
+    @Test
+    public void fastPrimaryIsNotHedged() throws Exception {
+        FakeElectrumServer primary = createServer("primary", 10);
+        FakeElectrumServer fallback = createServer("fallback", 10);
+        connect(primary, fallback);
+
+        for(int i = 1; i <= 5; i++) {
+            String response = transport.pass(request(i, "blockchain.transaction.get"));
+            Assertions.assertTrue(response.contains("primary"));
+        }
+
+        Assertions.assertEquals(5, primary.getRequestCount());
+        Assertions.assertEquals(0, fallback.getRequestCount());
+    }
+
+    @Test
+    public void subscriptionsAreNotHedged() throws Exception {
+        FakeElectrumServer primary = createServer("primary", 2500);
+        FakeElectrumServer fallback = createServer("fallback", 10);
+        connect(primary, fallback);
+
+        String response = transport.pass(request(1, "blockchain.scripthash.subscribe"));
+
+        Assertions.assertTrue(response.contains("primary"));
+        Assertions.assertEquals(0, fallback.getRequestCount());
+    }
+
+    @Test
+    public void failsOverWhenPrimaryCloses() throws Exception {
+        FakeElectrumServer primary = createServer("primary", 10);
+        FakeElectrumServer fallback = createServer("fallback", 10);
+        connect(primary, fallback);
+
+        Assertions.assertTrue(transport.pass(request(1, "blockchain.block.header")).contains("primary"));
+        primary.close();
+
+        String response = transport.pass(request(2, "blockchain.block.header"));
+        Assertions.assertTrue(response.contains("fallback"));
+    }
+
+    @Test
+    public void lateBatchResponseIsNotReturnedForNextBatch() throws Exception {
+        FakeElectrumServer primary = createServer("primary", 2500);
+        FakeElectrumServer fallback = createServer("fallback", 10);
+        connect(primary, fallback);
+
+        //A batch that outlasts the hedge delay waits for the primary rather than being abandoned with its response still to come
+        String response = transport.pass(batchRequest(1, 2));
+        Assertions.assertTrue(response.contains("\"id\":1") && response.contains("\"id\":2"));
+        Assertions.assertTrue(response.contains("primary"));
+        Assertions.assertEquals(0, fallback.getRequestCount());
+
+        primary.setResponseDelayMillis(10);
+        response = transport.pass(batchRequest(3, 4));
+        Assertions.assertTrue(response.contains("\"id\":3") && response.contains("\"id\":4"), response);
+        Assertions.assertFalse(response.contains("\"id\":1"), response);
+    }
+
+    private FakeElectrumServer createServer(String name, long delayMillis) throws IOException {
+        FakeElectrumServer server = new FakeElectrumServer(name, delayMillis);
+        servers.add(server);
+        return server;
+    }
+
+    private void connect(FakeElectrumServer primary, FakeElectrumServer fallback) throws Exception {
+        transport = new HedgedTransport(new TcpTransport(primary.getHostAndPort()), List.of(new TcpTransport(fallback.getHostAndPort())));
+        transport.connect();
+
+        Thread reader = new Thread(() -> {
+            try {
+                transport.readInputLoop();
+            } catch(ServerException e) {
+                //closed
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+
+        for(int i = 0; i < 50 && transport.getReadyFallbackCount() == 0; i++) {
+            Thread.sleep(100);
+        }
+        Assertions.assertEquals(1, transport.getReadyFallbackCount());
+    }
+
+    private static String request(int id, String method) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"" + method + "\",\"params\":[\"00\"]}";
+    }
+
+    private static String batchRequest(int... ids) {
+        StringJoiner joiner = new StringJoiner(",", "[", "]");
+        for(int id : ids) {
+            joiner.add(request(id, "blockchain.scripthash.get_history"));
+        }
+        return joiner.toString();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if(transport != null) {
+            transport.close();
+        }
+        for(FakeElectrumServer server : servers) {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.sparrowwallet.sparrow.net;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+public class MempoolDepthIndexTest {
+    @Test
+    public void matchesHistogramSums() {
+        Set<MempoolRateSize> rateSizes = new TreeSet<>();
+        rateSizes.add(new MempoolRateSize(1.0, 500000));
+        rateSizes.add(new MempoolRateSize(2.5, 200000));
+        rateSizes.add(new MempoolRateSize(5.0, 100000));
+        rateSizes.add(new MempoolRateSize(20.0, 40000));
+        rateSizes.add(new MempoolRateSize(150.0, 1000));
+
+        MempoolDepthIndex index = MempoolDepthIndex.get(rateSizes);
+        Assertions.assertSame(index, MempoolDepthIndex.get(rateSizes));
+        Assertions.assertEquals(841000, index.getTotalVSize());
+
+        for(double feeRate : new double[] {0.5, 1.0, 2.0, 2.5, 4.0, 5.0, 19.9, 20.0, 150.0, 200.0}) {
+            long expected = rateSizes.stream().filter(rateSize -> rateSize.getFee() > feeRate).mapToLong(MempoolRateSize::getVSize).sum();
+            Assertions.assertEquals(expected, index.getVSizeAbove(feeRate), "Fee rate " + feeRate);
+        }
+
+        Assertions.assertEquals(300000, index.getVSizeBetween(2, 10));
+        Assertions.assertEquals(41000, index.getVSizeBetween(20, Integer.MAX_VALUE));
+        Assertions.assertEquals(0, index.getVSizeBetween(6, 8));
+    }
+}
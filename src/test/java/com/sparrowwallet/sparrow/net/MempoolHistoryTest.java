@@ -0,0 +1,120 @@
+package com.sparrowwallet.sparrow.net;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+public class MempoolHistoryTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void downsamplesIntoCoarserTiers() {
+        MempoolHistory mempoolHistory = new MempoolHistory();
+        //Two days and one minute of samples
+        for(int minute = 0; minute <= 2 * 24 * 60; minute++) {
+            mempoolHistory.add(toDate(START.plusMinutes(minute)), rateSizes(minute % 60 < 30 ? 1000 : 3000));
+        }
+
+        Assertions.assertEquals(MempoolHistory.Tier.MINUTE.getCapacity(), mempoolHistory.getSnapshots(MempoolHistory.Tier.MINUTE).size());
+
+        TreeMap<Date, Set<MempoolRateSize>> hours = mempoolHistory.getSnapshots(MempoolHistory.Tier.HOUR);
+        Assertions.assertEquals(48, hours.size());
+        Assertions.assertEquals(toDate(START), hours.firstKey());
+        Assertions.assertEquals(2000, hours.firstEntry().getValue().iterator().next().getVSize());
+
+        TreeMap<Date, Set<MempoolRateSize>> days = mempoolHistory.getSnapshots(MempoolHistory.Tier.DAY);
+        Assertions.assertEquals(2, days.size());
+        Assertions.assertEquals(2000, days.firstEntry().getValue().iterator().next().getVSize());
+
+        Assertions.assertEquals(MempoolHistory.Tier.MINUTE.getCapacity(), mempoolHistory.getSnapshots(2).size());
+        //The views of coarser tiers include the period in progress, which here has a single minute sample
+        TreeMap<Date, Set<MempoolRateSize>> dayView = mempoolHistory.getSnapshots(24);
+        Assertions.assertEquals(49, dayView.size());
+        Assertions.assertEquals(toDate(START.plusDays(2)), dayView.lastKey());
+        Assertions.assertEquals(1000, dayView.lastEntry().getValue().iterator().next().getVSize());
+        Assertions.assertEquals(3, mempoolHistory.getSnapshots(24 * 30).size());
+    }
+
+    @Test
+    public void includesCurrentPeriod() {
+        MempoolHistory mempoolHistory = new MempoolHistory();
+        for(int minute = 0; minute <= 90; minute++) {
+            mempoolHistory.add(toDate(START.plusMinutes(minute)), rateSizes(minute));
+        }
+
+        Assertions.assertEquals(1, mempoolHistory.getSnapshots(MempoolHistory.Tier.HOUR).size());
+
+        TreeMap<Date, Set<MempoolRateSize>> dayView = mempoolHistory.getSnapshots(24);
+        Assertions.assertEquals(List.of(toDate(START), toDate(START.plusHours(1))), new ArrayList<>(dayView.keySet()));
+        //The average of the samples from minutes 60 to 90 of the hour in progress
+        Assertions.assertEquals(75, dayView.lastEntry().getValue().iterator().next().getVSize());
+
+        TreeMap<Date, Set<MempoolRateSize>> monthView = mempoolHistory.getSnapshots(24 * 30);
+        Assertions.assertEquals(1, monthView.size());
+        Assertions.assertEquals(toDate(START), monthView.firstKey());
+    }
+
+    @Test
+    public void survivesRestart() {
+        MempoolHistory mempoolHistory = new MempoolHistory();
+        for(int minute = 0; minute <= 90; minute++) {
+            mempoolHistory.add(toDate(START.plusMinutes(minute)), rateSizes(minute));
+        }
+
+        File file = new File(tempDir, "mempool.dat");
+        mempoolHistory.save(file);
+
+        MempoolHistory loaded = MempoolHistory.load(file);
+        for(MempoolHistory.Tier tier : MempoolHistory.Tier.values()) {
+            TreeMap<Date, Set<MempoolRateSize>> expected = mempoolHistory.getSnapshots(tier);
+            TreeMap<Date, Set<MempoolRateSize>> actual = loaded.getSnapshots(tier);
+            Assertions.assertEquals(expected.keySet(), actual.keySet());
+            for(Date date : expected.keySet()) {
+                Assertions.assertEquals(expected.get(date).iterator().next().getVSize(), actual.get(date).iterator().next().getVSize());
+            }
+        }
+    }
+
+    @Test
+    public void dropsMinutesBeforeGap() {
+        MempoolHistory mempoolHistory = new MempoolHistory();
+        for(int minute = 0; minute <= 90; minute++) {
+            mempoolHistory.add(toDate(START.plusMinutes(minute)), rateSizes(minute));
+        }
+
+        File file = new File(tempDir, "mempool.dat");
+        mempoolHistory.save(file);
+
+        //The first snapshot after a restart a day later rolls up the loaded minutes, which are then dropped from the minute tier
+        MempoolHistory loaded = MempoolHistory.load(file);
+        LocalDateTime restart = START.plusDays(1).plusMinutes(30);
+        loaded.add(toDate(restart), rateSizes(5000));
+
+        TreeMap<Date, Set<MempoolRateSize>> minutes = loaded.getSnapshots(MempoolHistory.Tier.MINUTE);
+        Assertions.assertEquals(List.of(toDate(restart.minusMinutes(1)), toDate(restart)), new ArrayList<>(minutes.keySet()));
+        Assertions.assertEquals(minutes.keySet(), loaded.getSnapshots(2).keySet());
+
+        TreeMap<Date, Set<MempoolRateSize>> hours = loaded.getSnapshots(MempoolHistory.Tier.HOUR);
+        Assertions.assertEquals(List.of(toDate(START), toDate(START.plusHours(1))), new ArrayList<>(hours.keySet()));
+        Assertions.assertEquals(75, hours.lastEntry().getValue().iterator().next().getVSize());
+        Assertions.assertEquals(1, loaded.getSnapshots(MempoolHistory.Tier.DAY).size());
+    }
+
+    private static Set<MempoolRateSize> rateSizes(long vSize) {
+        Set<MempoolRateSize> rateSizes = new TreeSet<>();
+        rateSizes.add(new MempoolRateSize(1.0, vSize));
+        return rateSizes;
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
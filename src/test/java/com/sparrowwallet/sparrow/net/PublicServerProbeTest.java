@@ -0,0 +1,80 @@
+package com.sparrowwallet.sparrow.net;
+
+import com.sparrowwallet.sparrow.io.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class PublicServerProbeTest {
+    private final List<FakeElectrumServer> fakeServers = new ArrayList<>();
+
+    @Test
+    public void ranksByProbedLatency() throws Exception {
+        List<Server> servers = new ArrayList<>();
+        servers.add(createServer("slow", 900));
+        servers.add(createServer("fast", 10));
+        servers.add(createServer("medium", 300));
+
+        ServerLatencyScores scores = new ServerLatencyScores(new HashMap<>());
+        for(int i = 0; i < servers.size(); i++) {
+            long latency = PublicServerProbeService.probe(new TcpTransport(fakeServers.get(i).getHostAndPort()));
+            scores.record(servers.get(i), latency);
+        }
+
+        Assertions.assertEquals(servers.get(1), scores.getBest(servers).orElseThrow());
+        Assertions.assertTrue(scores.getScore(servers.get(2)) < scores.getScore(servers.get(0)));
+    }
+
+    @Test
+    public void detectsDegradedServer() throws Exception {
+        Server current = createServer("current", 10);
+        Server other = createServer("other", 10);
+        List<Server> servers = List.of(current, other);
+
+        ServerLatencyScores scores = new ServerLatencyScores(new HashMap<>());
+        scores.record(current, PublicServerProbeService.probe(new TcpTransport(fakeServers.get(0).getHostAndPort())));
+        scores.record(other, PublicServerProbeService.probe(new TcpTransport(fakeServers.get(1).getHostAndPort())));
+        Assertions.assertFalse(scores.isDegraded(current, servers));
+
+        fakeServers.get(0).setResponseDelayMillis(2500);
+        for(int i = 0; i < 3; i++) {
+            scores.record(current, PublicServerProbeService.probe(new TcpTransport(fakeServers.get(0).getHostAndPort())));
+        }
+
+        Assertions.assertTrue(scores.isDegraded(current, servers));
+        Assertions.assertEquals(other, scores.getBest(servers).orElseThrow());
+    }
+
+    @Test
+    public void failuresSinkRanking() {
+        Server first = new Server("tcp://127.0.0.1:1");
+        Server second = new Server("tcp://127.0.0.1:2");
+        List<Server> servers = List.of(first, second);
+
+        ServerLatencyScores scores = new ServerLatencyScores(new HashMap<>());
+        scores.record(first, 200);
+        scores.record(second, 400);
+        Assertions.assertEquals(first, scores.getBest(servers).orElseThrow());
+
+        scores.recordFailure(first);
+        Assertions.assertEquals(second, scores.getBest(servers).orElseThrow());
+    }
+
+    private Server createServer(String name, long delayMillis) throws IOException {
+        FakeElectrumServer fakeServer = new FakeElectrumServer(name, delayMillis);
+        fakeServers.add(fakeServer);
+        return new Server(Protocol.TCP.toUrlString(fakeServer.getHostAndPort()), name);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for(FakeElectrumServer fakeServer : fakeServers) {
+            fakeServer.close();
+        }
+    }
+}
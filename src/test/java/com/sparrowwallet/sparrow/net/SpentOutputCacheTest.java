@@ -0,0 +1,70 @@
+package com.sparrowwallet.sparrow.net;
+
+import com.sparrowwallet.drongo.protocol.Sha256Hash;
+import com.sparrowwallet.drongo.wallet.BlockTransaction;
+import com.sparrowwallet.drongo.wallet.BlockTransactionHash;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class SpentOutputCacheTest {
+    private static final Sha256Hash FUNDING_TXID = Sha256Hash.wrap("1".repeat(64));
+    private static final int CURRENT_HEIGHT = 800000;
+
+    private Map<Sha256Hash, BlockTransaction> transactions;
+    private SpentOutputCache spentOutputCache;
+
+    @BeforeEach
+    public void setUp() {
+        transactions = new HashMap<>();
+        spentOutputCache = new SpentOutputCache(transactions);
+    }
+
+    @Test
+    public void confirmedSpendIsCached() {
+        BlockTransaction spendingTransaction = getBlockTransaction("2", CURRENT_HEIGHT - BlockTransactionHash.BLOCKS_TO_CONFIRM + 1);
+
+        Assertions.assertTrue(spentOutputCache.putSpendingTransaction(FUNDING_TXID, 1, spendingTransaction, CURRENT_HEIGHT));
+        Assertions.assertSame(spendingTransaction, spentOutputCache.getSpendingTransaction(FUNDING_TXID, 1));
+        Assertions.assertSame(spendingTransaction, transactions.get(spendingTransaction.getHash()));
+        Assertions.assertNull(spentOutputCache.getSpendingTransaction(FUNDING_TXID, 0));
+    }
+
+    @Test
+    public void insufficientlyConfirmedSpendIsNotCached() {
+        BlockTransaction recentTransaction = getBlockTransaction("2", CURRENT_HEIGHT - BlockTransactionHash.BLOCKS_TO_CONFIRM + 2);
+        BlockTransaction mempoolTransaction = getBlockTransaction("3", 0);
+        BlockTransaction confirmedTransaction = getBlockTransaction("4", 1);
+
+        Assertions.assertFalse(spentOutputCache.putSpendingTransaction(FUNDING_TXID, 0, recentTransaction, CURRENT_HEIGHT));
+        Assertions.assertFalse(spentOutputCache.putSpendingTransaction(FUNDING_TXID, 1, mempoolTransaction, CURRENT_HEIGHT));
+        //Without a known chain tip the number of confirmations cannot be determined
+        Assertions.assertFalse(spentOutputCache.putSpendingTransaction(FUNDING_TXID, 2, confirmedTransaction, null));
+
+        Assertions.assertNull(spentOutputCache.getSpendingTransaction(FUNDING_TXID, 0));
+        Assertions.assertNull(spentOutputCache.getSpendingTransaction(FUNDING_TXID, 1));
+        Assertions.assertNull(spentOutputCache.getSpendingTransaction(FUNDING_TXID, 2));
+        Assertions.assertTrue(transactions.isEmpty());
+    }
+
+    @Test
+    public void spendIsForgottenWithTransactions() {
+        BlockTransaction spendingTransaction = getBlockTransaction("2", 1);
+        spentOutputCache.putSpendingTransaction(FUNDING_TXID, 0, spendingTransaction, CURRENT_HEIGHT);
+
+        //Clearing the shared transactions, as on a server change, also invalidates the spends referring to them
+        transactions.clear();
+        Assertions.assertNull(spentOutputCache.getSpendingTransaction(FUNDING_TXID, 0));
+
+        spentOutputCache.putSpendingTransaction(FUNDING_TXID, 0, spendingTransaction, CURRENT_HEIGHT);
+        spentOutputCache.clear();
+        Assertions.assertNull(spentOutputCache.getSpendingTransaction(FUNDING_TXID, 0));
+    }
+
+    private static BlockTransaction getBlockTransaction(String hashChar, int height) {
+        return new BlockTransaction(Sha256Hash.wrap(hashChar.repeat(64)), height, null, 0L, null);
+    }
+}
@@ -0,0 +1,111 @@
+package com.sparrowwallet.sparrow.net;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+public class TransactionCacheTest {
+    private static final String GENESIS_TXID = "4a5e1e4baab89f3a32518a88c31bc87f618f76673e2cc77ab2127b7afdeda33b";
+    private static final String GENESIS_TX = "01000000010000000000000000000000000000000000000000000000000000000000000000ffffffff4d04ffff001d0104455468652054696d65732030332f4a616e2f32303039204368616e63656c6c6f72206f6e206272696e6b206f66207365636f6e64206261696c6f757420666f722062616e6b73ffffffff0100f2052a01000000434104678afdb0fe5548271967f1a67130b7105cd6a828e03909a67962e0ea1f61deb649f6bc3f4cef38c4f35504e51ec112de5c384df7ba0b8d578a4c702b6bf11d5fac00000000";
+
+    @TempDir
+    File cacheDir;
+
+    @Test
+    public void storesByTxid() {
+        TransactionCache transactionCache = new TransactionCache(cacheDir);
+        Assertions.assertNull(transactionCache.get(GENESIS_TXID));
+
+        transactionCache.put(GENESIS_TXID, GENESIS_TX);
+        Assertions.assertEquals(GENESIS_TX, transactionCache.get(GENESIS_TXID));
+
+        TransactionCache sharedCache = new TransactionCache(cacheDir);
+        Map<String, String> cached = sharedCache.getAll(List.of(GENESIS_TXID, "00".repeat(32)));
+        Assertions.assertEquals(Map.of(GENESIS_TXID, GENESIS_TX), cached);
+    }
+
+    @Test
+    public void rejectsMismatchedTxid() {
+        TransactionCache transactionCache = new TransactionCache(cacheDir);
+        String otherTxid = "00".repeat(31) + "01";
+        transactionCache.put(otherTxid, GENESIS_TX);
+        Assertions.assertNull(transactionCache.get(otherTxid));
+    }
+
+    @Test
+    public void removesCorruptEntry() throws IOException {
+        TransactionCache transactionCache = new TransactionCache(cacheDir);
+        transactionCache.put(GENESIS_TXID, GENESIS_TX);
+
+        File txFile = new File(new File(cacheDir, GENESIS_TXID.substring(0, 2)), GENESIS_TXID);
+        Assertions.assertTrue(txFile.exists());
+        Files.write(txFile.toPath(), new byte[] {1, 2, 3});
+
+        Assertions.assertNull(transactionCache.get(GENESIS_TXID));
+        Assertions.assertFalse(txFile.exists());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        String[] rawTxes = new String[4];
+        String[] txids = new String[4];
+        for(int i = 0; i < rawTxes.length; i++) {
+            //Changing the locktime of the genesis transaction gives distinct transactions with known txids
+            rawTxes[i] = GENESIS_TX.substring(0, GENESIS_TX.length() - 8) + String.format("%02x000000", i + 1);
+            txids[i] = getTxid(rawTxes[i]);
+        }
+
+        long txLength = GENESIS_TX.length() / 2;
+        TransactionCache transactionCache = new TransactionCache(cacheDir, txLength * 3);
+        long time = System.currentTimeMillis() - 60000;
+        for(int i = 0; i < 3; i++) {
+            transactionCache.put(txids[i], rawTxes[i]);
+            Assertions.assertTrue(getFile(txids[i]).setLastModified(time + i * 1000L));
+        }
+        Assertions.assertEquals(txLength * 3, transactionCache.getSize());
+
+        //Reading the oldest entry makes it the most recently used
+        Assertions.assertEquals(rawTxes[0], transactionCache.get(txids[0]));
+        transactionCache.put(txids[3], rawTxes[3]);
+
+        Assertions.assertEquals(rawTxes[0], transactionCache.get(txids[0]));
+        Assertions.assertNull(transactionCache.get(txids[1]));
+        Assertions.assertNull(transactionCache.get(txids[2]));
+        Assertions.assertEquals(rawTxes[3], transactionCache.get(txids[3]));
+        Assertions.assertEquals(txLength * 2, transactionCache.getSize());
+    }
+
+    @Test
+    public void removesTransactions() {
+        TransactionCache transactionCache = new TransactionCache(cacheDir);
+        transactionCache.put(GENESIS_TXID, GENESIS_TX);
+        transactionCache.removeAll(List.of(GENESIS_TXID, "00".repeat(32)));
+
+        Assertions.assertNull(transactionCache.get(GENESIS_TXID));
+        Assertions.assertEquals(0, transactionCache.getSize());
+    }
+
+    private File getFile(String txid) {
+        return new File(new File(cacheDir, txid.substring(0, 2)), txid);
+    }
+
+    private static String getTxid(String rawTx) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(digest.digest(HexFormat.of().parseHex(rawTx)));
+        for(int i = 0; i < hash.length / 2; i++) {
+            byte b = hash[i];
+            hash[i] = hash[hash.length - 1 - i];
+            hash[hash.length - 1 - i] = b;
+        }
+
+        return HexFormat.of().formatHex(hash);
+    }
+}
@@ -0,0 +1,225 @@
+package com.sparrowwallet.sparrow.paynym;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PayNymAvatarCacheTest {
+    private static final int MAX_CONCURRENT_FETCHES = 2;
+    private static final int MAX_CACHED_AVATARS = 20;
+
+    @TempDir
+    File tempDir;
+
+    private HttpServer server;
+    private final Map<String, String> avatars = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger conditionalRequests = new AtomicInteger();
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private volatile long responseDelayMs;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        //A local stand-in for the PayNym avatar endpoint, using the avatar content as its ETag
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(responseDelayMs);
+                String paymentCode = exchange.getRequestURI().getPath().split("/")[1];
+                String avatar = avatars.get(paymentCode);
+                String etag = "\"" + avatar + "\"";
+                String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                if(ifNoneMatch != null) {
+                    conditionalRequests.incrementAndGet();
+                }
+
+                if(avatar == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else if(etag.equals(ifNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    byte[] body = avatar.getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().add("ETag", etag);
+                    exchange.sendResponseHeaders(200, body.length);
+                    try(OutputStream outputStream = exchange.getResponseBody()) {
+                        outputStream.write(body);
+                    }
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrentRequests.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void servesFromDiskUntilRevalidation() throws Exception {
+        avatars.put("PM1", "avatar1");
+        PayNymAvatarCache avatarCache = createCache(TimeUnit.HOURS.toMillis(1));
+        Assertions.assertEquals("avatar1", getAvatar(avatarCache, "PM1", true));
+        Assertions.assertEquals(1, requests.get());
+
+        //A new cache instance, as after a restart, reads the avatar from disk
+        avatarCache = createCache(TimeUnit.HOURS.toMillis(1));
+        Assertions.assertEquals("avatar1", getAvatar(avatarCache, "PM1", true));
+        Assertions.assertEquals("avatar1", getAvatar(avatarCache, "PM1", false));
+        Assertions.assertEquals(1, requests.get());
+
+        //Once due for revalidation, a conditional request is made which is not modified
+        avatarCache = createCache(0);
+        Assertions.assertEquals("avatar1", getAvatar(avatarCache, "PM1", true));
+        Assertions.assertEquals(2, requests.get());
+        Assertions.assertEquals(1, conditionalRequests.get());
+
+        avatars.put("PM1", "avatar2");
+        Assertions.assertEquals("avatar2", getAvatar(avatarCache, "PM1", true));
+        Assertions.assertEquals(3, requests.get());
+
+        //The cached copy is used if revalidation fails
+        server.stop(0);
+        Assertions.assertEquals("avatar2", getAvatar(avatarCache, "PM1", true));
+    }
+
+    @Test
+    public void failsWithoutCachedCopy() {
+        PayNymAvatarCache avatarCache = createCache(TimeUnit.HOURS.toMillis(1));
+        Assertions.assertThrows(IOException.class, () -> avatarCache.getAvatar("PM404", true, true));
+        avatars.put("PM2", "avatar2");
+        Assertions.assertThrows(IOException.class, () -> avatarCache.getAvatar("PM2", false, true));
+    }
+
+    @Test
+    public void boundsCachedAvatars() throws Exception {
+        PayNymAvatarCache avatarCache = createCache(TimeUnit.HOURS.toMillis(1));
+        for(int i = 0; i < MAX_CACHED_AVATARS + 2; i++) {
+            avatars.put("PM" + i, "avatar" + i);
+            Assertions.assertEquals("avatar" + i, getAvatar(avatarCache, "PM" + i, true));
+        }
+
+        Assertions.assertEquals(MAX_CACHED_AVATARS, getRecordFiles().size());
+        Assertions.assertEquals(MAX_CACHED_AVATARS, getContentFiles().size());
+    }
+
+    @Test
+    public void removesReplacedContent() throws Exception {
+        avatars.put("PM1", "avatar1");
+        PayNymAvatarCache avatarCache = createCache(0);
+        Assertions.assertEquals("avatar1", getAvatar(avatarCache, "PM1", true));
+
+        avatars.put("PM1", "avatar2");
+        Assertions.assertEquals("avatar2", getAvatar(avatarCache, "PM1", true));
+
+        Assertions.assertEquals(1, getRecordFiles().size());
+        List<File> contentFiles = getContentFiles();
+        Assertions.assertEquals(1, contentFiles.size());
+        Assertions.assertEquals("avatar2", Files.readString(contentFiles.get(0).toPath()));
+    }
+
+    @Test
+    public void doesNotWriteAvatarsNotPersisted() throws Exception {
+        avatars.put("PM1", "avatar1");
+        PayNymAvatarCache avatarCache = createCache(TimeUnit.HOURS.toMillis(1));
+        Assertions.assertEquals("avatar1", new String(avatarCache.getAvatar("PM1", true, false), StandardCharsets.UTF_8));
+        Assertions.assertTrue(getRecordFiles().isEmpty());
+        Assertions.assertTrue(getContentFiles().isEmpty());
+
+        Assertions.assertThrows(IOException.class, () -> avatarCache.getAvatar("PM1", false, false));
+        Assertions.assertEquals("avatar1", new String(avatarCache.getAvatar("PM1", true, false), StandardCharsets.UTF_8));
+        Assertions.assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void deduplicatesAndLimitsFetches() throws Exception {
+        responseDelayMs = 50;
+        for(int i = 0; i < 10; i++) {
+            avatars.put("PM" + i, "avatar" + i);
+        }
+
+        PayNymAvatarCache avatarCache = createCache(TimeUnit.HOURS.toMillis(1));
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for(int i = 0; i < 40; i++) {
+                String paymentCode = "PM" + (i % 10);
+                futures.add(executor.submit(() -> getAvatar(avatarCache, paymentCode, true)));
+            }
+            for(int i = 0; i < futures.size(); i++) {
+                Assertions.assertEquals("avatar" + (i % 10), futures.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(10, requests.get());
+        Assertions.assertTrue(maxConcurrentRequests.get() <= MAX_CONCURRENT_FETCHES, "Concurrent requests: " + maxConcurrentRequests.get());
+    }
+
+    @Test
+    public void sharesConcurrentFetchesOfSameAvatar() throws Exception {
+        responseDelayMs = 200;
+        avatars.put("PM1", "avatar1");
+        PayNymAvatarCache avatarCache = createCache(TimeUnit.HOURS.toMillis(1));
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for(int i = 0; i < 10; i++) {
+                futures.add(executor.submit(() -> getAvatar(avatarCache, "PM1", true)));
+            }
+            for(Future<String> future : futures) {
+                Assertions.assertEquals("avatar1", future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(1, requests.get());
+    }
+
+    private PayNymAvatarCache createCache(long revalidateAfterMillis) {
+        String hostUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new PayNymAvatarCache(new File(tempDir, "avatars"), (paymentCode, proxy) -> hostUrl + "/" + paymentCode + "/avatar",
+                () -> null, MAX_CONCURRENT_FETCHES, revalidateAfterMillis, MAX_CACHED_AVATARS);
+    }
+
+    private static String getAvatar(PayNymAvatarCache avatarCache, String paymentCode, boolean online) throws IOException, InterruptedException {
+        return new String(avatarCache.getAvatar(paymentCode, online, true), StandardCharsets.UTF_8);
+    }
+
+    private List<File> getRecordFiles() {
+        return getCacheFiles().stream().filter(file -> file.getName().endsWith(".json")).toList();
+    }
+
+    private List<File> getContentFiles() {
+        return getCacheFiles().stream().filter(file -> !file.getName().endsWith(".json")).toList();
+    }
+
+    private List<File> getCacheFiles() {
+        File[] files = new File(tempDir, "avatars").listFiles();
+        return files == null ? Collections.emptyList() : Arrays.asList(files);
+    }
+}
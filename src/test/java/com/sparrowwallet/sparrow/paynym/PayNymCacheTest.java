@@ -0,0 +1,104 @@
+package com.sparrowwallet.sparrow.paynym;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PayNymCacheTest {
+    private static final int THREADS = 4;
+    private static final int PAYMENT_CODES = 40;
+
+    private ExecutorService executor;
+    private PayNymApi payNymApi;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        payNymApi = new PayNymApi(null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void looksUpConcurrentlyWithBoundedParallelism() throws Exception {
+        //Each lookup waits until as many lookups as there are threads are in progress, so fewer concurrent lookups fail
+        payNymApi = new PayNymApi(new CyclicBarrier(THREADS));
+        PayNymCache payNymCache = new PayNymCache(payNymApi::lookup, TimeUnit.HOURS.toMillis(1));
+        List<String> paymentCodes = new ArrayList<>();
+        for(int i = 0; i < PAYMENT_CODES; i++) {
+            paymentCodes.add("PM" + i);
+        }
+
+        Map<String, PayNym> payNyms = payNymCache.getPayNyms(paymentCodes, executor);
+
+        //Every odd payment code is unregistered
+        Assertions.assertEquals(PAYMENT_CODES / 2, payNyms.size());
+        Assertions.assertEquals("nym0", payNyms.get("PM0").nymName());
+        Assertions.assertEquals(List.copyOf(payNyms.keySet()), paymentCodes.stream().filter(code -> payNyms.containsKey(code)).toList());
+        Assertions.assertEquals(PAYMENT_CODES, payNymApi.requests.get());
+        Assertions.assertEquals(THREADS, payNymApi.maxConcurrentRequests.get());
+    }
+
+    @Test
+    public void cachesFoundPayNyms() throws Exception {
+        PayNymCache payNymCache = new PayNymCache(payNymApi::lookup, TimeUnit.HOURS.toMillis(1));
+        payNymCache.getPayNyms(List.of("PM0", "PM1", "PM2", "PM0"), executor);
+        Assertions.assertEquals(3, payNymApi.requests.get());
+
+        //Found PayNyms are served from the cache, unregistered payment codes are looked up again
+        Map<String, PayNym> payNyms = payNymCache.getPayNyms(List.of("PM0", "PM1", "PM2"), executor);
+        Assertions.assertEquals(2, payNyms.size());
+        Assertions.assertEquals(4, payNymApi.requests.get());
+    }
+
+    @Test
+    public void expiresCachedPayNyms() {
+        PayNymCache payNymCache = new PayNymCache(payNymApi::lookup, 0);
+        Assertions.assertNotNull(payNymCache.getPayNym("PM0"));
+        Assertions.assertNotNull(payNymCache.getPayNym("PM0"));
+        Assertions.assertEquals(2, payNymApi.requests.get());
+    }
+
+    /**
+     * A local stand-in for the PayNym API, which registers PayNyms for even numbered payment codes only
+     */
+    private static class PayNymApi {
+        private final CyclicBarrier barrier;
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger concurrentRequests = new AtomicInteger();
+        private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+        public PayNymApi(CyclicBarrier barrier) {
+            this.barrier = barrier;
+        }
+
+        public PayNym lookup(String paymentCode) {
+            requests.incrementAndGet();
+            maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+            try {
+                if(barrier != null) {
+                    barrier.await(10, TimeUnit.SECONDS);
+                }
+            } catch(InterruptedException | BrokenBarrierException | TimeoutException e) {
+                throw new IllegalStateException("Lookups were not concurrent", e);
+            } finally {
+                concurrentRequests.decrementAndGet();
+            }
+
+            int index = Integer.parseInt(paymentCode.substring(2));
+            if(index % 2 != 0) {
+                throw new IllegalStateException("Not found");
+            }
+
+            return new PayNym(null, "+nym" + index, "nym" + index, true, Collections.emptyList(), Collections.emptyList());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.sparrowwallet.sparrow.wallet;
+
+import com.sparrowwallet.drongo.KeyPurpose;
+import com.sparrowwallet.drongo.policy.Policy;
+import com.sparrowwallet.drongo.policy.PolicyType;
+import com.sparrowwallet.drongo.protocol.ScriptType;
+import com.sparrowwallet.drongo.protocol.Sha256Hash;
+import com.sparrowwallet.drongo.protocol.Transaction;
+import com.sparrowwallet.drongo.protocol.TransactionOutput;
+import com.sparrowwallet.drongo.wallet.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class ConfirmationTrackerTest {
+    private static final int TIP_HEIGHT = 800000;
+    private static final int ENTRIES = 5000;
+    private static final int RECENT_ENTRIES = 1000;
+    private static final String MNEMONIC = "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon about";
+
+    @Test
+    public void updatesConfirmingEntries() {
+        Wallet wallet = createWallet("updates");
+        TransactionEntry unconfirmed = createEntry(wallet, 0, 0);
+        TransactionEntry confirming = createEntry(wallet, 1, TIP_HEIGHT);
+        TransactionEntry confirmed = createEntry(wallet, 2, TIP_HEIGHT - BlockTransactionHash.BLOCKS_TO_FULLY_CONFIRM);
+
+        ConfirmationTracker confirmationTracker = ConfirmationTracker.get();
+        Assertions.assertEquals(1, confirmationTracker.getTrackedCount(wallet));
+
+        confirmationTracker.updateConfirmations(wallet, TIP_HEIGHT + 1);
+        Assertions.assertEquals(0, unconfirmed.getConfirmations());
+        Assertions.assertEquals(2, confirming.getConfirmations());
+        Assertions.assertEquals(BlockTransactionHash.BLOCKS_TO_FULLY_CONFIRM + 1, confirmed.getConfirmations());
+
+        confirmationTracker.updateConfirmations(wallet, TIP_HEIGHT + BlockTransactionHash.BLOCKS_TO_FULLY_CONFIRM - 1);
+        Assertions.assertEquals(BlockTransactionHash.BLOCKS_TO_FULLY_CONFIRM, confirming.getConfirmations());
+        Assertions.assertEquals(0, confirmationTracker.getTrackedCount(wallet));
+    }
+
+    @Test
+    public void dropsFullyConfirmedEntries() {
+        Wallet wallet = createWallet("drops");
+        List<TransactionEntry> entries = new ArrayList<>();
+        for(int i = 0; i < ENTRIES; i++) {
+            int height = i < RECENT_ENTRIES ? TIP_HEIGHT - (i % (BlockTransactionHash.BLOCKS_TO_FULLY_CONFIRM - 1)) : 0;
+            entries.add(createEntry(wallet, i, height));
+        }
+
+        ConfirmationTracker confirmationTracker = ConfirmationTracker.get();
+        Assertions.assertEquals(RECENT_ENTRIES, confirmationTracker.getTrackedCount(wallet));
+
+        for(int height = TIP_HEIGHT + 1; height <= TIP_HEIGHT + BlockTransactionHash.BLOCKS_TO_FULLY_CONFIRM; height++) {
+            confirmationTracker.updateConfirmations(wallet, height);
+        }
+
+        Assertions.assertEquals(0, confirmationTracker.getTrackedCount(wallet));
+        for(TransactionEntry entry : entries) {
+            Assertions.assertEquals(entry.getBlockTransaction().getConfirmations(TIP_HEIGHT + BlockTransactionHash.BLOCKS_TO_FULLY_CONFIRM), entry.getConfirmations());
+        }
+    }
+
+    @Test
+    public void displayedEntryIsUpdatedAfterRefresh() throws MnemonicException {
+        Wallet wallet = createSeedWallet();
+        WalletNode node = wallet.getFreshNode(KeyPurpose.RECEIVE);
+        receive(wallet, node, 10000L);
+
+        WalletTransactionsEntry walletTransactionsEntry = new WalletTransactionsEntry(wallet);
+        TransactionEntry displayed = (TransactionEntry)walletTransactionsEntry.getChildren().get(0);
+        ConfirmationTracker confirmationTracker = ConfirmationTracker.get();
+        Assertions.assertEquals(1, confirmationTracker.getTrackedCount(wallet));
+
+        //Refreshing the wallet history creates new entries for every transaction, but only those not already displayed are added
+        receive(wallet, node, 20000L);
+        walletTransactionsEntry.updateTransactions();
+        Assertions.assertEquals(2, walletTransactionsEntry.getChildren().size());
+        Assertions.assertTrue(walletTransactionsEntry.getChildren().stream().anyMatch(entry -> entry == displayed));
+        Assertions.assertEquals(2, confirmationTracker.getTrackedCount(wallet));
+
+        //Entries that are not displayed are not tracked and do not displace the displayed entry
+        TransactionEntry undisplayed = new TransactionEntry(wallet, displayed.getBlockTransaction(), Collections.emptyMap(), Collections.emptyMap());
+        confirmationTracker.updateConfirmations(wallet, TIP_HEIGHT + 1);
+        Assertions.assertEquals(2, displayed.getConfirmations());
+        Assertions.assertEquals(1, undisplayed.getConfirmations());
+
+        //Entries removed from the transactions list are no longer tracked
+        node.getTransactionOutputs().clear();
+        walletTransactionsEntry.updateTransactions();
+        Assertions.assertTrue(walletTransactionsEntry.getChildren().isEmpty());
+        Assertions.assertEquals(0, confirmationTracker.getTrackedCount(wallet));
+    }
+
+    @Test
+    public void walletsAreTrackedByIdentity() {
+        Wallet wallet = createWallet("identity");
+        Wallet copy = createWallet("identity");
+        TransactionEntry entry = createEntry(wallet, 1, TIP_HEIGHT);
+        TransactionEntry copyEntry = createEntry(copy, 1, TIP_HEIGHT);
+
+        ConfirmationTracker confirmationTracker = ConfirmationTracker.get();
+        Assertions.assertEquals(1, confirmationTracker.getTrackedCount(wallet));
+        Assertions.assertEquals(1, confirmationTracker.getTrackedCount(copy));
+
+        confirmationTracker.updateConfirmations(copy, TIP_HEIGHT + 1);
+        Assertions.assertEquals(1, entry.getConfirmations());
+        Assertions.assertEquals(2, copyEntry.getConfirmations());
+    }
+
+    @Test
+    public void entriesAboveBlockHeightAreNotUpdated() {
+        Wallet wallet = createWallet("above");
+        TransactionEntry entry = createEntry(wallet, 1, TIP_HEIGHT);
+
+        ConfirmationTracker confirmationTracker = ConfirmationTracker.get();
+        confirmationTracker.updateConfirmations(wallet, TIP_HEIGHT - 1);
+        Assertions.assertEquals(1, entry.getConfirmations());
+        Assertions.assertEquals(1, confirmationTracker.getTrackedCount(wallet));
+    }
+
+    private static Wallet createWallet(String name) {
+        Wallet wallet = new Wallet(name);
+        wallet.setStoredBlockHeight(TIP_HEIGHT);
+        return wallet;
+    }
+
+    private static TransactionEntry createEntry(Wallet wallet, int index, int height) {
+        Sha256Hash hash = Sha256Hash.of(ByteBuffer.allocate(4).putInt(index).array());
+        BlockTransaction blockTransaction = new BlockTransaction(hash, height, null, 0L, null);
+        TransactionEntry entry = new TransactionEntry(wallet, blockTransaction, Collections.emptyMap(), Collections.emptyMap());
+        ConfirmationTracker.get().track(entry);
+        return entry;
+    }
+
+    private static Wallet createSeedWallet() throws MnemonicException {
+        DeterministicSeed seed = new DeterministicSeed(Arrays.asList(MNEMONIC.split(" ")), "", 0, DeterministicSeed.Type.BIP39);
+        Wallet wallet = createWallet("seed");
+        wallet.setPolicyType(PolicyType.SINGLE);
+        wallet.setScriptType(ScriptType.P2WPKH);
+        wallet.getKeystores().add(Keystore.fromSeed(seed, ScriptType.P2WPKH.getDefaultDerivation()));
+        wallet.setDefaultPolicy(Policy.getPolicy(PolicyType.SINGLE, ScriptType.P2WPKH, wallet.getKeystores(), 1));
+        return wallet;
+    }
+
+    private static void receive(Wallet wallet, WalletNode node, long value) {
+        Transaction transaction = new Transaction();
+        transaction.addOutput(new TransactionOutput(transaction, value, node.getAddress().getOutputScript()));
+        Sha256Hash hash = transaction.getTxId();
+        wallet.updateTransactions(Map.of(hash, new BlockTransaction(hash, TIP_HEIGHT, null, 0L, transaction)));
+        node.getTransactionOutputs().add(new BlockTransactionHashIndex(hash, TIP_HEIGHT, null, 0L, 0, value));
+    }
+}
@@ -0,0 +1,72 @@
+package com.sparrowwallet.sparrow.wallet;
+
+import com.sparrowwallet.drongo.KeyPurpose;
+import com.sparrowwallet.drongo.protocol.Sha256Hash;
+import com.sparrowwallet.drongo.wallet.BlockTransactionHashIndex;
+import com.sparrowwallet.drongo.wallet.Wallet;
+import com.sparrowwallet.drongo.wallet.WalletNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class WalletTxoIndexTest {
+    private static final int HEIGHT = 800000;
+
+    @Test
+    public void indexesOutputsByCreatingAndSpendingTxid() {
+        Wallet wallet = new Wallet("index");
+        Sha256Hash fundingTxid = getTxid(1);
+        Sha256Hash spendingTxid = getTxid(2);
+
+        BlockTransactionHashIndex spendingInput = new BlockTransactionHashIndex(spendingTxid, HEIGHT + 1, null, null, 0, 1000L);
+        BlockTransactionHashIndex receivedOutput = new BlockTransactionHashIndex(fundingTxid, HEIGHT, null, null, 0, 1000L, spendingInput);
+        BlockTransactionHashIndex changeOutput = new BlockTransactionHashIndex(fundingTxid, HEIGHT, null, null, 1, 2000L);
+        WalletNode receiveNode = getNode(wallet, KeyPurpose.RECEIVE, 3);
+        WalletNode changeNode = getNode(wallet, KeyPurpose.CHANGE, 5);
+        receiveNode.getTransactionOutputs().add(receivedOutput);
+        changeNode.getTransactionOutputs().add(changeOutput);
+
+        WalletTxoIndex txoIndex = new WalletTxoIndex(wallet);
+
+        List<WalletTxoIndex.NodeTxo> outputs = txoIndex.getOutputs(fundingTxid);
+        Assertions.assertEquals(2, outputs.size());
+        Assertions.assertEquals(new WalletTxoIndex.NodeTxo(receiveNode, KeyPurpose.RECEIVE, receivedOutput), outputs.get(0));
+        Assertions.assertEquals(new WalletTxoIndex.NodeTxo(changeNode, KeyPurpose.CHANGE, changeOutput), outputs.get(1));
+
+        List<WalletTxoIndex.NodeTxo> spentOutputs = txoIndex.getSpentOutputs(spendingTxid);
+        Assertions.assertEquals(1, spentOutputs.size());
+        Assertions.assertSame(receivedOutput, spentOutputs.get(0).txo());
+        Assertions.assertSame(spendingInput, spentOutputs.get(0).txo().getSpentBy());
+
+        Assertions.assertTrue(txoIndex.getOutputs(spendingTxid).isEmpty());
+        Assertions.assertTrue(txoIndex.getSpentOutputs(fundingTxid).isEmpty());
+    }
+
+    @Test
+    public void indexReflectsHistoryWhenBuilt() {
+        Wallet wallet = new Wallet("snapshot");
+        Sha256Hash txid = getTxid(3);
+        WalletTxoIndex emptyIndex = new WalletTxoIndex(wallet);
+
+        getNode(wallet, KeyPurpose.RECEIVE, 0).getTransactionOutputs().add(new BlockTransactionHashIndex(txid, HEIGHT, null, null, 0, 1000L));
+
+        //The index is not updated in place, which is why WalletForm discards it when the wallet history changes
+        Assertions.assertTrue(emptyIndex.getOutputs(txid).isEmpty());
+        Assertions.assertEquals(1, new WalletTxoIndex(wallet).getOutputs(txid).size());
+    }
+
+    private static WalletNode getNode(Wallet wallet, KeyPurpose keyPurpose, int index) {
+        WalletNode purposeNode = wallet.getNode(keyPurpose);
+        return purposeNode.getChildren().stream().filter(node -> node.getIndex() == index).findFirst().orElseGet(() -> {
+            WalletNode node = new WalletNode(wallet, keyPurpose, index);
+            purposeNode.getChildren().add(node);
+            return node;
+        });
+    }
+
+    private static Sha256Hash getTxid(int index) {
+        return Sha256Hash.of(ByteBuffer.allocate(4).putInt(index).array());
+    }
+}